@@ -0,0 +1,254 @@
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * The {@code CSVBindingPlan} class resolves a CSV header once into the column positions
+ * needed to build a {@link SpaceObject}.
+ *
+ * <p>The header of an RSO export is fixed for the whole file, but its column order is not
+ * (see {@code rso_metrics_columns_jumbled.csv}). Compiling the header into a plan lets every
+ * row be decoded by column index, with no per-field name lookups. Columns that are not
+ * constructor arguments, such as {@code HRR_Category} or {@code deltaV_90day}, are bound to
+ * the matching {@link SpaceObject} setters.</p>
+ *
+ * <p>Numeric and boolean fields are parsed straight from the tokenizer's record buffer.
+ * Malformed values decode as zero and are counted in a {@link FieldErrorCounter}.
+ * Country, orbit type, object type, launch site and geohash are interned, so objects
+ * decoded through the same {@link StringInterner} share one instance per distinct value.</p>
+ */
+public class CSVBindingPlan {
+
+    /** Value types of the optional columns. */
+    private static final byte STRING = 0;
+    private static final byte INT = 1;
+    private static final byte DOUBLE = 2;
+    private static final byte BOOLEAN = 3;
+
+    /** Setters for optional columns, keyed by lower-case column name. */
+    private static final Map<String, Binding> OPTIONAL_COLUMNS = new HashMap<>();
+
+    static {
+        bindString("hrr_category", SpaceObject::setHRRCategory);
+        bindBoolean("is_nominated", SpaceObject::setNominated);
+        bindString("nominated_at", SpaceObject::setNominatedAt);
+        bindBoolean("has_dossier", SpaceObject::setHasDossier);
+        bindString("last_updated_at", SpaceObject::setLastUpdatedAt);
+        bindString("justification", SpaceObject::setJustification);
+        bindString("focused_analysis", SpaceObject::setFocusedAnalysis);
+        bindBoolean("is_unk_object", SpaceObject::setUnknownObject);
+        bindInt("all_maneuvers", SpaceObject::setAllManeuvers);
+        bindInt("days_since_ob", SpaceObject::setDaysSinceOb);
+        bindInt("recent_maneuvers", SpaceObject::setRecentManeuvers);
+        bindDouble("deltav_90day", SpaceObject::setDeltaV90Day);
+        bindBoolean("has_sister_debris", SpaceObject::setHasSisterDebris);
+    }
+
+    /** Column positions of the constructor arguments, or -1 if the file lacks the column. */
+    private final int recordId;
+    private final int noradId;
+    private final int name;
+    private final int country;
+    private final int orbitType;
+    private final int objectType;
+    private final int launchYear;
+    private final int launchSite;
+    private final int longitude;
+    private final int avgLongitude;
+    private final int geoHash;
+    private final int daysOld;
+    private final int conjunctionCount;
+
+    /** Column of the delta file change type, or -1 for a full catalog file. */
+    private final int changeType;
+
+    /** Optional columns present in the file, in header order. */
+    private final int[] optionalColumns;
+    private final Binding[] optionalBindings;
+
+    private final String[] headers;
+
+    private CSVBindingPlan(String[] headers, Map<String, Integer> columnIndex) {
+        this.headers = headers.clone();
+        recordId = column(columnIndex, "record_id");
+        noradId = column(columnIndex, "norad_cat_id");
+        name = column(columnIndex, "satellite_name");
+        country = column(columnIndex, "country");
+        orbitType = column(columnIndex, "approximate_orbit_type");
+        objectType = column(columnIndex, "object_type");
+        launchYear = column(columnIndex, "launch_year");
+        launchSite = column(columnIndex, "launch_site");
+        longitude = column(columnIndex, "longitude");
+        avgLongitude = column(columnIndex, "avg_longitude");
+        geoHash = column(columnIndex, "geohash");
+        daysOld = column(columnIndex, "days_old");
+        conjunctionCount = column(columnIndex, "conjunction_count");
+        changeType = column(columnIndex, "change_type");
+
+        List<Map.Entry<String, Integer>> present = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : columnIndex.entrySet()) {
+            if (OPTIONAL_COLUMNS.containsKey(entry.getKey())) present.add(entry);
+        }
+        present.sort(Map.Entry.comparingByValue());
+
+        optionalColumns = new int[present.size()];
+        optionalBindings = new Binding[present.size()];
+        for (int i = 0; i < present.size(); i++) {
+            optionalColumns[i] = present.get(i).getValue();
+            optionalBindings[i] = OPTIONAL_COLUMNS.get(present.get(i).getKey());
+        }
+    }
+
+    /**
+     * Compiles a header record into a binding plan. Column names are matched
+     * case-insensitively and surrounding whitespace is ignored.
+     *
+     * @param headers the fields of the header record
+     * @return the plan for decoding the data records that follow
+     */
+    public static CSVBindingPlan compile(String[] headers) {
+        Map<String, Integer> columnIndex = new HashMap<>();
+        for (int i = 0; i < headers.length; i++) {
+            columnIndex.putIfAbsent(headers[i].trim().toLowerCase(), i);
+        }
+        return new CSVBindingPlan(headers, columnIndex);
+    }
+
+    /** @return the number of columns in the header */
+    public int getColumnCount() {
+        return headers.length;
+    }
+
+    /** @return the header as one CSV line, without the line break */
+    public String getHeaderLine() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < headers.length; i++) {
+            if (i > 0) sb.append(',');
+            sb.append(CSVTokenizer.escape(headers[i]));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns {@code true} if the tokenizer's current record is a delta file deletion,
+     * that is, its {@code change_type} column reads {@code DELETE} in any letter case.
+     *
+     * @param tokenizer tokenizer positioned on a data record
+     * @return whether the record deletes the object it names
+     */
+    public boolean isDeletion(CSVTokenizer tokenizer) {
+        return changeType >= 0 && tokenizer.getTrimmedField(changeType).equalsIgnoreCase("DELETE");
+    }
+
+    /**
+     * Creates an error counter sized for this plan's header.
+     *
+     * @return a new, empty counter
+     */
+    public FieldErrorCounter newErrorCounter() {
+        return new FieldErrorCounter(headers);
+    }
+
+    /**
+     * Builds the space object for the tokenizer's current record.
+     *
+     * @param tokenizer tokenizer positioned on a data record
+     * @param errors    receives the columns of any malformed values
+     * @param interner  canonicalizes the low-cardinality string fields
+     * @return the decoded object
+     */
+    public SpaceObject decode(CSVTokenizer tokenizer, FieldErrorCounter errors, StringInterner interner) {
+        SpaceObject obj = SpaceObject.create(
+                readInt(tokenizer, recordId, errors),
+                readInt(tokenizer, noradId, errors),
+                tokenizer.getTrimmedField(name),
+                tokenizer.getTrimmedField(country, interner),
+                tokenizer.getTrimmedField(orbitType, interner),
+                tokenizer.getTrimmedField(objectType, interner),
+                readInt(tokenizer, launchYear, errors),
+                tokenizer.getTrimmedField(launchSite, interner),
+                readDouble(tokenizer, longitude, errors),
+                readDouble(tokenizer, avgLongitude, errors),
+                tokenizer.getTrimmedField(geoHash, interner),
+                readInt(tokenizer, daysOld, errors),
+                readInt(tokenizer, conjunctionCount, errors));
+
+        for (int i = 0; i < optionalColumns.length; i++) {
+            int column = optionalColumns[i];
+            if (!tokenizer.isFieldBlank(column)) {
+                optionalBindings[i].apply(obj, tokenizer, column, errors);
+            }
+        }
+        return obj;
+    }
+
+    private static int column(Map<String, Integer> columnIndex, String key) {
+        return columnIndex.getOrDefault(key, -1);
+    }
+
+    private static int readInt(CSVTokenizer tokenizer, int column, FieldErrorCounter errors) {
+        int value = tokenizer.parseInt(column);
+        if (tokenizer.lastParseFailed()) errors.record(column);
+        return value;
+    }
+
+    private static double readDouble(CSVTokenizer tokenizer, int column, FieldErrorCounter errors) {
+        double value = tokenizer.parseDouble(column);
+        if (tokenizer.lastParseFailed()) errors.record(column);
+        return value;
+    }
+
+    private static void bindString(String key, BiConsumer<SpaceObject, String> setter) {
+        OPTIONAL_COLUMNS.put(key, new Binding(STRING, setter, null, null, null));
+    }
+
+    private static void bindInt(String key, ObjIntConsumer<SpaceObject> setter) {
+        OPTIONAL_COLUMNS.put(key, new Binding(INT, null, setter, null, null));
+    }
+
+    private static void bindDouble(String key, ObjDoubleConsumer<SpaceObject> setter) {
+        OPTIONAL_COLUMNS.put(key, new Binding(DOUBLE, null, null, setter, null));
+    }
+
+    private static void bindBoolean(String key, BiConsumer<SpaceObject, Boolean> setter) {
+        OPTIONAL_COLUMNS.put(key, new Binding(BOOLEAN, null, null, null, setter));
+    }
+
+    /**
+     * A typed setter for one optional column.
+     */
+    private static final class Binding {
+        private final byte type;
+        private final BiConsumer<SpaceObject, String> stringSetter;
+        private final ObjIntConsumer<SpaceObject> intSetter;
+        private final ObjDoubleConsumer<SpaceObject> doubleSetter;
+        private final BiConsumer<SpaceObject, Boolean> booleanSetter;
+
+        Binding(byte type, BiConsumer<SpaceObject, String> stringSetter,
+                ObjIntConsumer<SpaceObject> intSetter, ObjDoubleConsumer<SpaceObject> doubleSetter,
+                BiConsumer<SpaceObject, Boolean> booleanSetter) {
+            this.type = type;
+            this.stringSetter = stringSetter;
+            this.intSetter = intSetter;
+            this.doubleSetter = doubleSetter;
+            this.booleanSetter = booleanSetter;
+        }
+
+        void apply(SpaceObject obj, CSVTokenizer tokenizer, int column, FieldErrorCounter errors) {
+            switch (type) {
+                case STRING:
+                    stringSetter.accept(obj, tokenizer.getTrimmedField(column));
+                    break;
+                case INT:
+                    intSetter.accept(obj, readInt(tokenizer, column, errors));
+                    break;
+                case DOUBLE:
+                    doubleSetter.accept(obj, readDouble(tokenizer, column, errors));
+                    break;
+                default:
+                    booleanSetter.accept(obj, tokenizer.parseBoolean(column));
+            }
+        }
+    }
+}
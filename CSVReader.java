@@ -1,92 +1,487 @@
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
-// import java.util.regex.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 /**
  * The {@code CSVReader} class is responsible for reading satellite and debris data
  * from a CSV file and populating a {@link TrackingSystem} with the parsed objects.
  */
 public class CSVReader {
+    /**
+     * Version of the loading rules: column binding, value parsing, interning and row
+     * validation. Change it when the objects loaded from the same file would differ, so that
+     * snapshots saved by an older loader are not reused.
+     */
+    public static final int LOADER_VERSION = 1;
+
+    /** Smallest chunk handed to a worker by {@link #loadObjectsParallel}. */
+    private static final long MIN_CHUNK_BYTES = 4L * 1024 * 1024;
 
-    public void loadObjects(String filename, TrackingSystem system) throws IOException {
-        // Use FileInputStream and InputStreamReader to ensure proper encoding handling
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(filename), StandardCharsets.UTF_8))) {
-            String headerLine = br.readLine();
-            if (headerLine == null) return;
+    /** Largest chunk mapped at once; a single mapping cannot exceed 2 GB. */
+    private static final long MAX_CHUNK_BYTES = 256L * 1024 * 1024;
 
-            // Remove BOM (Byte Order Mark) if it exists at the start of the line
-            headerLine = headerLine.replaceAll("^[\\ufeff]", ""); // Removes BOM if present
+    /** What to do with malformed rows. */
+    private IngestErrorPolicy errorPolicy = IngestErrorPolicy.skipAndCount();
 
-            // Clean the header line by trimming any leading/trailing spaces
-            String[] headers = headerLine.split(",", -1);
-            Map<String, Integer> columnIndex = new HashMap<>();
+    /** Chunk size used by {@link #loadObjectsParallel}; 0 sizes chunks by file size and cores. */
+    private long chunkBytes;
 
-            // Map headers to their indices for easy access
-            for (int i = 0; i < headers.length; i++) {
-                columnIndex.put(headers[i].trim().toLowerCase(), i); // Case insensitive match
+    /** @return the policy applied to malformed rows */
+    public IngestErrorPolicy getErrorPolicy() {
+        return errorPolicy;
+    }
+
+    /**
+     * Sets the policy applied to malformed rows by later loads.
+     *
+     * @param errorPolicy the policy to use
+     */
+    public void setErrorPolicy(IngestErrorPolicy errorPolicy) {
+        this.errorPolicy = errorPolicy;
+    }
+
+    /**
+     * Fixes the size of the chunks {@link #loadObjectsParallel} splits a file into, so tests
+     * can cross chunk boundaries with small files.
+     *
+     * @param chunkBytes bytes per chunk before aligning to a record, or 0 for the default
+     */
+    void setChunkBytes(long chunkBytes) {
+        this.chunkBytes = chunkBytes;
+    }
+
+    /**
+     * Reads every record of a CSV file on the calling thread and adds the objects
+     * to the tracking system in file order. Readers of the system see the whole load
+     * at once, when it finishes.
+     *
+     * @param filename path of the CSV file to read, plain or gzip-compressed
+     * @param system   the tracking system to populate
+     * @return the statistics of the load
+     * @throws IOException if the file cannot be read, or the error policy aborts the load
+     */
+    public IngestSummary loadObjects(String filename, TrackingSystem system) throws IOException {
+        system.beginUpdate();
+        try (ObjectStream objects = openObjects(filename)) {
+            for (SpaceObject obj : objects) {
+                system.addObject(obj);
             }
+            return objects.getSummary();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            system.endUpdate();
+        }
+    }
+
+    /**
+     * Opens a CSV file as a stream of space objects, parsed one record at a time as the
+     * caller iterates. Nothing is retained between records, so one-shot reports can run
+     * over a catalog of any size with flat heap use:
+     *
+     * <pre>
+     * try (CSVReader.ObjectStream objects = reader.openObjects("rso_metrics.csv")) {
+     *     new DebrisDensityAnalysis().generateReport(objects);
+     * }
+     * </pre>
+     *
+     * <p>The stream applies this reader's error policy. Read failures and fail-fast aborts
+     * surface from the iterator as {@link UncheckedIOException}.</p>
+     *
+     * @param filename path of the CSV file to read, plain or gzip-compressed
+     * @return the open stream; close it when done
+     * @throws IOException if the file cannot be opened or its header cannot be read
+     */
+    public ObjectStream openObjects(String filename) throws IOException {
+        // Gzip-compressed files are inflated on another thread while this one parses
+        Reader in = new InputStreamReader(CompressedFiles.openInput(filename), StandardCharsets.UTF_8);
+        try {
+            return new ObjectStream(filename, in, errorPolicy);
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * A one-shot, single-pass stream of the space objects in a CSV file. It is both the
+     * {@link Iterable} and its only {@link Iterator}.
+     */
+    public static final class ObjectStream implements Iterable<SpaceObject>, Iterator<SpaceObject>, Closeable {
+        private final long startTime = System.nanoTime();
+        private final Reader in;
+        private final CSVTokenizer tokenizer;
+        private final CSVBindingPlan plan;
+        private final IngestSummary summary;
+        private final StringInterner interner = new StringInterner();
+        private final IngestErrorPolicy errorPolicy;
+        private final Quarantine quarantine;
+        private SpaceObject next;
+        private boolean nextIsDeletion;
+        private boolean lastIsDeletion;
+        private boolean done;
+
+        private ObjectStream(String filename, Reader in, IngestErrorPolicy errorPolicy) throws IOException {
+            this.in = in;
+            this.errorPolicy = errorPolicy;
+            this.tokenizer = new CSVTokenizer(in);
+
+            // The tokenizer drops the BOM, so the header can be compiled as-is
+            done = !tokenizer.nextRecord();
+            this.plan = CSVBindingPlan.compile(done ? new String[0] : tokenizer.getFields());
+            this.summary = new IngestSummary(filename, plan.newErrorCounter());
+            this.quarantine = new Quarantine(errorPolicy);
+            quarantine.setHeader(plan.getHeaderLine());
+        }
 
-            // Debug: Print column mappings
-            //System.out.println("Column Index Map: " + columnIndex);
-
-            String line;
-            while ((line = br.readLine()) != null) {
-                // Remove BOM from each line (if any)
-                line = line.replaceAll("^[\\ufeff]", ""); // Remove BOM if present in the line
-
-                // Parse the line using a regular expression that accounts for commas inside quotes
-                String[] parts = parseCSVLine(line);
-
-                // Debug: Print parsed line (check if the parts are split correctly)
-                //System.out.println("Parsed Line: " + Arrays.toString(parts));  // Debug output
-
-                try {
-                    int recordId = getInt(parts, columnIndex, "record_id");
-                    int noradId = getInt(parts, columnIndex, "norad_cat_id");
-                    String name = getStr(parts, columnIndex, "satellite_name");
-                    String country = getStr(parts, columnIndex, "country");
-                    String orbitType = getStr(parts, columnIndex, "approximate_orbit_type");
-                    String objectType = getStr(parts, columnIndex, "object_type");
-                    int launchYear = getInt(parts, columnIndex, "launch_year");
-                    String launchSite = getStr(parts, columnIndex, "launch_site");
-                    double longitude = getDouble(parts, columnIndex, "longitude");
-                    double avgLongitude = getDouble(parts, columnIndex, "avg_longitude");
-                    String geoHash = getStr(parts, columnIndex, "geohash");
-                    int daysOld = getInt(parts, columnIndex, "days_old");
-                    int conjunctionCount = getInt(parts, columnIndex, "conjunction_count");
-
-                    // Debug: Show what's being parsed
-                    // System.out.printf("Parsed: ID=%d, DaysOld=%d, Name=%s, Type=%s%n",
-                    //         recordId, daysOld, name, objectType);
-
-                    // Create the SpaceObject based on the object type
-                    SpaceObject obj;
-                    switch (objectType.toUpperCase()) {
-                        case "DEBRIS":
-                            obj = new Debris(recordId, noradId, name, country, orbitType, objectType,
-                                    launchYear, launchSite, longitude, avgLongitude, geoHash, daysOld, conjunctionCount);
-                            break;
-                        case "PAYLOAD":
-                            obj = new Satellite(recordId, noradId, name, country, orbitType, objectType,
-                                    launchYear, launchSite, longitude, avgLongitude, geoHash, daysOld, conjunctionCount);
-                            break;
-                        case "ROCKET BODY":
-                            obj = new RocketBody(recordId, noradId, name, country, orbitType, objectType,
-                                    launchYear, launchSite, longitude, avgLongitude, geoHash, daysOld, conjunctionCount);
-                            break;
-                        default:
-                            obj = new UnknownObject(recordId, noradId, name, country, orbitType, objectType,
-                                    launchYear, launchSite, longitude, avgLongitude, geoHash, daysOld, conjunctionCount);
-                            break;
+        @Override
+        public Iterator<SpaceObject> iterator() {
+            return this;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !done) advance();
+            return next != null;
+        }
+
+        @Override
+        public SpaceObject next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            SpaceObject obj = next;
+            lastIsDeletion = nextIsDeletion;
+            next = null;
+            return obj;
+        }
+
+        /**
+         * Returns {@code true} if the object last returned by {@link #next()} came from a
+         * delta file row whose {@code change_type} is {@code DELETE}.
+         *
+         * @return whether the last object is to be removed rather than upserted
+         */
+        public boolean isDeletion() {
+            return lastIsDeletion;
+        }
+
+        /**
+         * Returns the statistics of the records read so far; complete once the
+         * stream is exhausted.
+         *
+         * @return the ingest summary
+         */
+        public IngestSummary getSummary() {
+            return summary;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                quarantine.close();
+            } finally {
+                in.close();
+            }
+        }
+
+        private void advance() {
+            try {
+                while (tokenizer.nextRecord()) {
+                    if (tokenizer.isBlankRecord()) continue;
+                    next = parseRecord(tokenizer, plan, interner, summary, quarantine.lines);
+                    if (next != null) {
+                        nextIsDeletion = plan.isDeletion(tokenizer);
+                        return;
                     }
+                    quarantine.flush();
+                    checkErrorBudget(errorPolicy, summary);
+                }
+                done = true;
+                summary.setElapsedNanos(System.nanoTime() - startTime);
+            } catch (IOException e) {
+                done = true;
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
 
-                    // Add object to the tracking system
-                    system.addObject(obj);
-                } catch (Exception e) {
-                    System.err.println("Skipping invalid line: " + line);
-                    e.printStackTrace(); // Optional: for deeper debugging
+    /**
+     * Applies an incremental delta file to the tracking system. A delta file has the same
+     * columns as a catalog export plus a {@code change_type} column. Rows whose change type is
+     * {@code DELETE} remove the object with that catalog ID; every other row adds the object
+     * or replaces the tracked one with the same catalog ID in place. The cost is proportional
+     * to the number of rows in the delta, not to the size of the catalog. Readers of the
+     * system see the whole delta at once, when it has been applied.
+     *
+     * @param filename path of the delta CSV file
+     * @param system   the tracking system to update
+     * @return the counts of inserted, updated and deleted objects
+     * @throws IOException if the file cannot be read, or the error policy aborts the load
+     * @see TrackingSystem#catalogId(SpaceObject)
+     */
+    public DeltaSummary applyDelta(String filename, TrackingSystem system) throws IOException {
+        system.beginUpdate();
+        try (ObjectStream objects = openObjects(filename)) {
+            DeltaSummary delta = new DeltaSummary(objects.getSummary());
+            for (SpaceObject obj : objects) {
+                if (objects.isDeletion()) {
+                    delta.recordDelete(system.removeObject(TrackingSystem.catalogId(obj)));
+                } else {
+                    delta.recordUpsert(system.upsertObject(obj));
                 }
             }
+            return delta;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            system.endUpdate();
+        }
+    }
+
+    /**
+     * Reads a CSV file by memory-mapping it, splitting it into line-aligned chunks and
+     * parsing the chunks on all available cores. The parsed objects are added to the
+     * tracking system in file order, exactly as {@link #loadObjects} would add them, and
+     * readers of the system see them all at once when the load finishes.
+     *
+     * <p>Chunks are split at line breaks, and parsed on the guess that each break ends a
+     * record. A chunk whose last record ends inside an open quote shows the guess was wrong
+     * for its end: a quoted field spans the break. It is then parsed again together with the
+     * next chunk, so quoted line breaks load as they do in {@link #loadObjects}.</p>
+     *
+     * <p>A gzip-compressed file cannot be split without inflating it first, so it is read
+     * by {@link #loadObjects} instead, with decompression and parsing on separate threads.</p>
+     *
+     * @param filename path of the CSV file to read
+     * @param system   the tracking system to populate
+     * @return the statistics of the load
+     * @throws IOException if the file cannot be read, or the error policy aborts the load
+     */
+    public IngestSummary loadObjectsParallel(String filename, TrackingSystem system) throws IOException {
+        if (CompressedFiles.isCompressed(filename)) return loadObjects(filename, system);
+        long startTime = System.nanoTime();
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+             Quarantine quarantine = new Quarantine(errorPolicy)) {
+            long size = channel.size();
+            long headerEnd = nextLineStart(channel, 0, size);
+            CSVTokenizer header = new CSVTokenizer(decode(channel, 0, headerEnd));
+            if (!header.nextRecord()) return new IngestSummary(filename, new FieldErrorCounter(new String[0]));
+
+            CSVBindingPlan plan = CSVBindingPlan.compile(header.getFields());
+            IngestSummary summary = new IngestSummary(filename, plan.newErrorCounter());
+            quarantine.setHeader(plan.getHeaderLine());
+            boolean keepRejected = errorPolicy.getAction() == IngestErrorPolicy.Action.QUARANTINE;
+
+            long chunkSize = chunkBytes > 0 ? chunkBytes
+                    : Math.min(MAX_CHUNK_BYTES, Math.max(MIN_CHUNK_BYTES, (size - headerEnd) / (threads * 4L)));
+            List<Future<Chunk>> chunks = new ArrayList<>();
+            List<Long> starts = new ArrayList<>();
+            long start = headerEnd;
+            while (start < size) {
+                long end = nextLineStart(channel, Math.min(size, start + chunkSize), size);
+                long chunkStart = start;
+                chunks.add(pool.submit(() -> parseChunk(channel, chunkStart, end, plan, filename, keepRejected)));
+                starts.add(start);
+                start = end;
+            }
+            starts.add(size);
+
+            // Merge in chunk order so records keep their position from the file
+            system.beginUpdate();
+            try {
+                for (int i = 0; i < chunks.size(); i++) {
+                    Chunk chunk = chunks.get(i).get();
+                    long chunkStart = starts.get(i);
+                    // The break after this chunk is inside a quoted field, so the next chunk
+                    // started mid-record: parse both again as one
+                    while (chunk.endsInQuote && i + 1 < chunks.size()) {
+                        i++;
+                        chunk = parseChunk(channel, chunkStart, starts.get(i + 1), plan, filename, keepRejected);
+                    }
+                    for (SpaceObject obj : chunk.objects) {
+                        system.addObject(obj);
+                    }
+                    summary.merge(chunk.summary);
+                    if (chunk.rejected != null) {
+                        quarantine.lines.addAll(chunk.rejected);
+                        quarantine.flush();
+                    }
+                    checkErrorBudget(errorPolicy, summary);
+                }
+            } finally {
+                system.endUpdate();
+            }
+            summary.setElapsedNanos(System.nanoTime() - startTime);
+            return summary;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while loading " + filename);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            throw new IOException("Failed to parse " + filename, cause);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Parses one line-aligned byte range of the file into space objects.
+     */
+    private Chunk parseChunk(FileChannel channel, long start, long end, CSVBindingPlan plan,
+                             String filename, boolean keepRejected) throws IOException {
+        if (end - start > Integer.MAX_VALUE) {
+            throw new IOException("A quoted field in " + filename + " spans more than 2 GB");
+        }
+        Chunk chunk = new Chunk(new IngestSummary(filename, plan.newErrorCounter()), keepRejected);
+        CSVTokenizer tokenizer = new CSVTokenizer(decode(channel, start, end));
+        StringInterner interner = new StringInterner();
+        while (tokenizer.nextRecord()) {
+            chunk.endsInQuote = tokenizer.hasUnterminatedQuote();
+            if (tokenizer.isBlankRecord()) continue;
+            SpaceObject obj = parseRecord(tokenizer, plan, interner, chunk.summary, chunk.rejected);
+            if (obj != null) {
+                chunk.objects.add(obj);
+            }
+        }
+        return chunk;
+    }
+
+    /**
+     * Maps a byte range of the file and decodes it as UTF-8 text.
+     */
+    private static Reader decode(FileChannel channel, long start, long end) throws IOException {
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        CharBuffer chars = StandardCharsets.UTF_8.decode(mapped);
+        return new CharArrayReader(chars.array(), chars.arrayOffset(), chars.remaining());
+    }
+
+    /**
+     * Returns the offset just past the first line feed at or after {@code from},
+     * or {@code size} if the file ends first.
+     */
+    private static long nextLineStart(FileChannel channel, long from, long size) throws IOException {
+        ByteBuffer window = ByteBuffer.allocate(64 * 1024);
+        long position = from;
+        while (position < size) {
+            window.clear();
+            int n = channel.read(window, position);
+            if (n <= 0) break;
+            for (int i = 0; i < n; i++) {
+                if (window.get(i) == '\n') return position + i + 1;
+            }
+            position += n;
+        }
+        return size;
+    }
+
+    /**
+     * Builds the space object for the tokenizer's current, non-blank record.
+     * Malformed records are counted in the summary and, if {@code rejected} is not
+     * {@code null}, copied into it as CSV lines.
+     *
+     * @return the parsed object, or {@code null} if the record was rejected
+     */
+    private static SpaceObject parseRecord(CSVTokenizer tokenizer, CSVBindingPlan plan, StringInterner interner,
+                                           IngestSummary summary, List<String> rejected) {
+        IngestSummary.SkipReason reason;
+        if (tokenizer.hasUnterminatedQuote()) {
+            reason = IngestSummary.SkipReason.UNTERMINATED_QUOTE;
+        } else if (tokenizer.getFieldCount() != plan.getColumnCount()) {
+            reason = IngestSummary.SkipReason.FIELD_COUNT;
+        } else {
+            try {
+                SpaceObject obj = plan.decode(tokenizer, summary.getFieldErrors(), interner);
+                summary.recordLoaded();
+                return obj;
+            } catch (RuntimeException e) {
+                reason = IngestSummary.SkipReason.DECODE_ERROR;
+            }
+        }
+
+        summary.recordSkipped(reason);
+        if (rejected != null) {
+            rejected.add(tokenizer.toCSVLine());
+        }
+        return null;
+    }
+
+    /**
+     * Aborts the load if the fail-fast policy's error budget is used up.
+     */
+    private static void checkErrorBudget(IngestErrorPolicy errorPolicy, IngestSummary summary) throws IOException {
+        if (errorPolicy.getAction() == IngestErrorPolicy.Action.FAIL_FAST
+                && summary.getRowsSkipped() >= errorPolicy.getMaxErrors()) {
+            throw new IOException("Aborting load of " + summary.getSource() + " after "
+                    + summary.getRowsSkipped() + " malformed rows: " + summary);
+        }
+    }
+
+    /**
+     * Objects, statistics and rejected rows parsed from one chunk of a file.
+     */
+    private static final class Chunk {
+        private final List<SpaceObject> objects = new ArrayList<>();
+        private final IngestSummary summary;
+        private final List<String> rejected;
+        /** Whether the chunk's last record ran into its end inside a quoted field. */
+        private boolean endsInQuote;
+
+        Chunk(IngestSummary summary, boolean keepRejected) {
+            this.summary = summary;
+            this.rejected = keepRejected ? new ArrayList<>() : null;
+        }
+    }
+
+    /**
+     * Buffered side file for rejected rows. Nothing is created unless the policy
+     * quarantines rows and at least one row is rejected.
+     */
+    private static final class Quarantine implements Closeable {
+        /** Pending rejected rows; {@code null} when the policy does not quarantine. */
+        private final List<String> lines;
+        private final String file;
+        private String header;
+        private Writer writer;
+
+        Quarantine(IngestErrorPolicy policy) {
+            boolean enabled = policy.getAction() == IngestErrorPolicy.Action.QUARANTINE;
+            this.lines = enabled ? new ArrayList<>() : null;
+            this.file = policy.getQuarantineFile();
+        }
+
+        void setHeader(String header) {
+            this.header = header;
+        }
+
+        void flush() throws IOException {
+            if (lines == null || lines.isEmpty()) return;
+            if (writer == null) {
+                writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), 1 << 16);
+                writer.write(header);
+                writer.write('\n');
+            }
+            for (String line : lines) {
+                writer.write(line);
+                writer.write('\n');
+            }
+            lines.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (writer != null) writer.close();
         }
     }
 
@@ -123,13 +518,4 @@ public class CSVReader {
             return 0.0;
         }
     }
-
-    /**
-     * Handles proper parsing of a CSV line to deal with commas inside quotes.
-     */
-    private String[] parseCSVLine(String line) {
-        // Use a regular expression to split by commas, respecting commas inside quotes
-        String regex = ",(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)";
-        return line.split(regex, -1); // Ensure it handles trailing commas too
-    }
 }
@@ -0,0 +1,445 @@
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * The {@code CSVTokenizer} class splits CSV text into records and fields in a single pass.
+ *
+ * <p>The tokenizer is a small state machine that reads characters from a {@link Reader}
+ * through its own buffer. It understands quoted fields (such as the {@code "lat,lon"} geohash
+ * pairs in the RSO exports), doubled quotes inside quoted fields, and both LF and CRLF line
+ * endings. A leading byte order mark is dropped once at the start of the stream.</p>
+ *
+ * <p>Field contents of the current record are kept in reusable buffers, so reading a record
+ * does not allocate anything until a caller asks for a field as a {@link String}.</p>
+ */
+public class CSVTokenizer {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** Parser states while scanning a record. */
+    private static final int FIELD_START = 0;
+    private static final int UNQUOTED = 1;
+    private static final int QUOTED = 2;
+    private static final int QUOTE_IN_QUOTED = 3;
+
+    private final Reader in;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private boolean firstRead = true;
+    private boolean skipLineFeed;
+    private boolean endOfInput;
+
+    /** Unescaped characters of every field in the current record, back to back. */
+    private char[] record = new char[256];
+    private int recordLength;
+    private int[] fieldStarts = new int[32];
+    private int[] fieldEnds = new int[32];
+    private int fieldCount;
+    private boolean unterminatedQuote;
+    private long recordNumber;
+
+    /** Set by the typed field readers when a value is not a valid number. */
+    private boolean parseError;
+
+    /**
+     * Creates a tokenizer reading from the given character stream.
+     *
+     * @param in the source of CSV text; it is not closed by this class
+     */
+    public CSVTokenizer(Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * Advances to the next record in the input.
+     *
+     * @return {@code true} if a record was read, {@code false} at the end of the input
+     * @throws IOException if the underlying reader fails
+     */
+    public boolean nextRecord() throws IOException {
+        recordLength = 0;
+        fieldCount = 0;
+        unterminatedQuote = false;
+
+        int state = FIELD_START;
+        int fieldStart = 0;
+        boolean sawInput = false;
+
+        while (true) {
+            if (position >= limit && !fill()) {
+                if (!sawInput) return false;
+                if (state == QUOTED) unterminatedQuote = true;
+                endField(fieldStart);
+                recordNumber++;
+                return true;
+            }
+
+            char c = buffer[position++];
+            if (skipLineFeed) {
+                skipLineFeed = false;
+                if (c == '\n') continue;
+            }
+            sawInput = true;
+
+            if (state == QUOTED) {
+                if (c == '"') state = QUOTE_IN_QUOTED;
+                else append(c);
+                continue;
+            }
+            if (state == QUOTE_IN_QUOTED) {
+                if (c == '"') {
+                    // A doubled quote inside a quoted field is a literal quote
+                    append('"');
+                    state = QUOTED;
+                    continue;
+                }
+                // The closing quote ended the quoted section; c is read as unquoted text
+                state = UNQUOTED;
+            }
+
+            if (c == ',') {
+                endField(fieldStart);
+                fieldStart = recordLength;
+                state = FIELD_START;
+            } else if (c == '\n' || c == '\r') {
+                skipLineFeed = c == '\r';
+                endField(fieldStart);
+                recordNumber++;
+                return true;
+            } else if (c == '"' && state == FIELD_START) {
+                state = QUOTED;
+            } else {
+                append(c);
+                state = UNQUOTED;
+            }
+        }
+    }
+
+    /** @return the number of fields in the current record */
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /** @return the 1-based number of the current record, counting the header */
+    public long getRecordNumber() {
+        return recordNumber;
+    }
+
+    /** @return {@code true} if the current record ended inside an open quoted field */
+    public boolean hasUnterminatedQuote() {
+        return unterminatedQuote;
+    }
+
+    /**
+     * Returns {@code true} if the current record is an empty line.
+     *
+     * @return whether the record holds a single empty field
+     */
+    public boolean isBlankRecord() {
+        return fieldCount == 1 && fieldEnds[0] == fieldStarts[0];
+    }
+
+    /**
+     * Returns the unescaped contents of a field in the current record.
+     *
+     * @param index zero-based field index
+     * @return the field text, or an empty string if the record has no such field
+     */
+    public String getField(int index) {
+        if (index < 0 || index >= fieldCount) return "";
+        return new String(record, fieldStarts[index], fieldEnds[index] - fieldStarts[index]);
+    }
+
+    /**
+     * Returns the contents of a field with surrounding whitespace removed.
+     *
+     * @param index zero-based field index
+     * @return the trimmed field text, or an empty string if the record has no such field
+     */
+    public String getTrimmedField(int index) {
+        if (index < 0 || index >= fieldCount) return "";
+        int start = trimStart(index);
+        int end = trimEnd(index, start);
+        return new String(record, start, end - start);
+    }
+
+    /**
+     * Returns a field with surrounding whitespace removed, as the interner's canonical
+     * instance. A value the interner has already seen is returned without allocating.
+     *
+     * @param index    zero-based field index
+     * @param interner the interner to look the value up in
+     * @return the interned field, or "" if the index is out of range
+     */
+    public String getTrimmedField(int index, StringInterner interner) {
+        if (index < 0 || index >= fieldCount) return "";
+        int start = trimStart(index);
+        return interner.intern(record, start, trimEnd(index, start));
+    }
+
+    /**
+     * Returns {@code true} if a field is missing or holds only whitespace.
+     *
+     * @param index zero-based field index
+     * @return whether the field is blank
+     */
+    public boolean isFieldBlank(int index) {
+        if (index < 0 || index >= fieldCount) return true;
+        return trimStart(index) == fieldEnds[index];
+    }
+
+    /**
+     * Parses a field as a decimal integer directly from the record buffer. Values with
+     * anything but ASCII digits are handed to {@link Integer#parseInt}, so a field parses
+     * exactly as it would there. A blank field yields 0. A malformed or out-of-range value also yields 0
+     * and sets {@link #lastParseFailed()}.
+     *
+     * @param index zero-based field index
+     * @return the parsed value
+     */
+    public int parseInt(int index) {
+        parseError = false;
+        if (isFieldBlank(index)) return 0;
+        int start = trimStart(index);
+        int end = trimEnd(index, start);
+        int pos = start;
+
+        boolean negative = record[pos] == '-';
+        if (negative || record[pos] == '+') pos++;
+        if (pos == end) return fail();
+
+        // Accumulate negatively so Integer.MIN_VALUE parses without overflow
+        int limit = negative ? Integer.MIN_VALUE : -Integer.MAX_VALUE;
+        int result = 0;
+        for (; pos < end; pos++) {
+            int digit = record[pos] - '0';
+            if (digit < 0 || digit > 9) return parseIntSlow(start, end);
+            if (result < (limit + digit) / 10) return fail();
+            result = result * 10 - digit;
+        }
+        return negative ? result : -result;
+    }
+
+    /**
+     * Parses a field as a decimal floating point number directly from the record buffer.
+     * Plain decimals with up to 15 significant digits, like the longitudes in the RSO
+     * exports, are converted exactly without creating a {@link String}; anything longer or
+     * spelled otherwise, such as {@code NaN}, {@code Infinity} or hex, falls back to
+     * {@link Double#parseDouble}, so a field parses exactly as it would there. A blank field yields 0.0. A malformed value
+     * also yields 0.0 and sets {@link #lastParseFailed()}.
+     *
+     * @param index zero-based field index
+     * @return the parsed value
+     */
+    public double parseDouble(int index) {
+        parseError = false;
+        if (isFieldBlank(index)) return 0.0;
+        int start = trimStart(index);
+        int end = trimEnd(index, start);
+        int pos = start;
+
+        boolean negative = record[pos] == '-';
+        if (negative || record[pos] == '+') pos++;
+
+        long mantissa = 0;
+        int significantDigits = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean seenPoint = false;
+        for (; pos < end; pos++) {
+            char c = record[pos];
+            if (c >= '0' && c <= '9') {
+                digits++;
+                if (mantissa == 0 && c == '0') {
+                    if (seenPoint) scale--;
+                    continue;
+                }
+                if (significantDigits < 18) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    significantDigits++;
+                    if (seenPoint) scale--;
+                } else if (!seenPoint) {
+                    scale++;
+                }
+            } else if (c == '.' && !seenPoint) {
+                seenPoint = true;
+            } else {
+                break;
+            }
+        }
+        if (digits == 0) return parseDoubleSlow(start, end);
+
+        if (pos < end) {
+            char c = record[pos];
+            if (c != 'e' && c != 'E') return parseDoubleSlow(start, end);
+            pos++;
+            boolean negativeExponent = pos < end && record[pos] == '-';
+            if (pos < end && (record[pos] == '-' || record[pos] == '+')) pos++;
+            if (pos == end) return parseDoubleSlow(start, end);
+            int exponent = 0;
+            for (; pos < end; pos++) {
+                int digit = record[pos] - '0';
+                if (digit < 0 || digit > 9) return parseDoubleSlow(start, end);
+                if (exponent < 10000) exponent = exponent * 10 + digit;
+            }
+            scale += negativeExponent ? -exponent : exponent;
+        }
+
+        // Exact when both the mantissa and the power of ten are representable doubles
+        if (significantDigits <= 15 && scale >= -22 && scale <= 22) {
+            double value = mantissa;
+            value = scale < 0 ? value / POWERS_OF_TEN[-scale] : value * POWERS_OF_TEN[scale];
+            return negative ? -value : value;
+        }
+        return parseDoubleSlow(start, end);
+    }
+
+    /**
+     * Parses a field as a boolean; only {@code true} in any letter case is true.
+     *
+     * @param index zero-based field index
+     * @return the parsed value
+     */
+    public boolean parseBoolean(int index) {
+        if (isFieldBlank(index)) return false;
+        int start = trimStart(index);
+        int end = trimEnd(index, start);
+        if (end - start != 4) return false;
+        return (record[start] | 0x20) == 't' && (record[start + 1] | 0x20) == 'r'
+                && (record[start + 2] | 0x20) == 'u' && (record[start + 3] | 0x20) == 'e';
+    }
+
+    /** @return {@code true} if the last {@link #parseInt} or {@link #parseDouble} call saw a malformed value */
+    public boolean lastParseFailed() {
+        return parseError;
+    }
+
+    /**
+     * Copies all fields of the current record into a new array.
+     *
+     * @return the fields of the current record
+     */
+    public String[] getFields() {
+        String[] fields = new String[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            fields[i] = getField(i);
+        }
+        return fields;
+    }
+
+    /**
+     * Writes the current record back out as one CSV line, without the line break.
+     * Fields are quoted where needed, so the line reads back as the same record.
+     *
+     * @return the record as CSV text
+     */
+    public String toCSVLine() {
+        StringBuilder sb = new StringBuilder(recordLength + fieldCount);
+        for (int i = 0; i < fieldCount; i++) {
+            if (i > 0) sb.append(',');
+            sb.append(escape(getField(i)));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Quotes a value for writing to a CSV file if it contains a comma, quote or line break.
+     *
+     * @param value the raw value, may be {@code null}
+     * @return the value ready to be written as one CSV field
+     */
+    public static String escape(String value) {
+        if (value == null) return "";
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return '"' + value.replace("\"", "\"\"") + '"';
+            }
+        }
+        return value;
+    }
+
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /** Parses what the fast path does not handle, such as {@code NaN} or hex, as {@link Double#parseDouble} does. */
+    private double parseDoubleSlow(int start, int end) {
+        try {
+            return Double.parseDouble(new String(record, start, end - start));
+        } catch (NumberFormatException e) {
+            return fail();
+        }
+    }
+
+    /** Parses what the fast path does not handle, such as non-ASCII digits, as {@link Integer#parseInt} does. */
+    private int parseIntSlow(int start, int end) {
+        try {
+            return Integer.parseInt(new String(record, start, end - start));
+        } catch (NumberFormatException e) {
+            return fail();
+        }
+    }
+
+    private int fail() {
+        parseError = true;
+        return 0;
+    }
+
+    private int trimStart(int index) {
+        int start = fieldStarts[index];
+        int end = fieldEnds[index];
+        while (start < end && record[start] <= ' ') start++;
+        return start;
+    }
+
+    private int trimEnd(int index, int start) {
+        int end = fieldEnds[index];
+        while (end > start && record[end - 1] <= ' ') end--;
+        return end;
+    }
+
+    private boolean fill() throws IOException {
+        if (endOfInput) return false;
+        int n;
+        do {
+            n = in.read(buffer, 0, buffer.length);
+        } while (n == 0);
+        if (n < 0) {
+            endOfInput = true;
+            return false;
+        }
+        position = 0;
+        limit = n;
+        if (firstRead) {
+            firstRead = false;
+            if (buffer[0] == '\uFEFF') position = 1; // Skip the BOM once
+            if (position >= limit) return fill();
+        }
+        return true;
+    }
+
+    private void append(char c) {
+        if (recordLength == record.length) {
+            char[] grown = new char[record.length * 2];
+            System.arraycopy(record, 0, grown, 0, recordLength);
+            record = grown;
+        }
+        record[recordLength++] = c;
+    }
+
+    private void endField(int start) {
+        if (fieldCount == fieldStarts.length) {
+            int[] starts = new int[fieldCount * 2];
+            int[] ends = new int[fieldCount * 2];
+            System.arraycopy(fieldStarts, 0, starts, 0, fieldCount);
+            System.arraycopy(fieldEnds, 0, ends, 0, fieldCount);
+            fieldStarts = starts;
+            fieldEnds = ends;
+        }
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount] = recordLength;
+        fieldCount++;
+    }
+}
@@ -0,0 +1,422 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * The {@code CSVWriter} class writes CSV records as UTF-8 straight into a reusable byte
+ * buffer, which is drained to a channel in large blocks.
+ *
+ * <p>Numbers are formatted digit by digit into the buffer, and strings are encoded
+ * character by character, so writing a record allocates nothing. A field is quoted when it
+ * contains a comma, quote or line break, such as the {@code "lat,lon"} geohash, with quotes
+ * doubled as {@link CSVTokenizer} expects. The separating commas are written by the writer:
+ * call the {@code writeField} methods for each field of a record, then {@link #endRecord()}.
+ * The {@code append} methods write without separators, for rows laid out by a
+ * {@link RowFormatter} and for text reports.</p>
+ *
+ * <p>Doubles are written as {@link Double#toString(double)} would write them, or with fixed
+ * decimals as {@link String#format} would.</p>
+ */
+public class CSVWriter implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    /** Room for any number: a long, or a double in {@link Double#toString} form. */
+    private static final int MAX_NUMBER_LENGTH = 32;
+
+    /** Most fraction digits written without falling back to {@link Double#toString}. */
+    private static final int MAX_FAST_DECIMALS = 8;
+
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8};
+    private static final long[] LONG_POWERS_OF_TEN = {1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L};
+
+    /** Whether the default locale formats {@code %.2f} with plain ASCII digits and a point, as {@link #appendFixed} does. */
+    private static final boolean PLAIN_FIXED_FORMAT = String.format("%.2f", -1234.5).equals("-1234.50");
+
+    private final WritableByteChannel channel;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private final ByteBuffer wrapped = ByteBuffer.wrap(buffer);
+    private int position;
+    private boolean firstField = true;
+    private long bytesWritten;
+
+    /**
+     * Creates a writer that writes to a channel.
+     *
+     * @param channel where the CSV bytes go; closed with this writer
+     */
+    public CSVWriter(WritableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Creates or replaces a file and opens a writer on it. A file whose name ends in
+     * {@code .gz} is gzip-compressed as it is written.
+     *
+     * @param filename path of the file
+     * @return the writer
+     * @throws IOException if the file cannot be opened
+     */
+    public static CSVWriter open(String filename) throws IOException {
+        return new CSVWriter(CompressedFiles.openOutput(filename));
+    }
+
+    /**
+     * Writes a whole record of string fields, such as a header.
+     *
+     * @param fields the fields
+     * @throws IOException if the channel cannot be written
+     */
+    public void writeRecord(String... fields) throws IOException {
+        for (String field : fields) {
+            writeField(field);
+        }
+        endRecord();
+    }
+
+    /**
+     * Writes a string field, quoted if needed. {@code null} is written as an empty field.
+     *
+     * @param value the value
+     * @throws IOException if the channel cannot be written
+     */
+    public void writeField(String value) throws IOException {
+        separate();
+        appendEscaped(value);
+    }
+
+    /**
+     * Writes an int field.
+     *
+     * @param value the value
+     * @throws IOException if the channel cannot be written
+     */
+    public void writeField(int value) throws IOException {
+        writeField((long) value);
+    }
+
+    /**
+     * Writes a long field.
+     *
+     * @param value the value
+     * @throws IOException if the channel cannot be written
+     */
+    public void writeField(long value) throws IOException {
+        separate();
+        append(value);
+    }
+
+    /**
+     * Writes a double field exactly as {@link Double#toString(double)} would. Values with
+     * up to eight decimals between 0.001 and 10,000,000 are formatted without allocating.
+     *
+     * @param value the value
+     * @throws IOException if the channel cannot be written
+     */
+    public void writeField(double value) throws IOException {
+        separate();
+        append(value);
+    }
+
+    /**
+     * Appends text as it is, without quoting or a separator. Used for fixed text such as
+     * line breaks and the labels of text reports.
+     *
+     * @param text the text
+     * @throws IOException if the channel cannot be written
+     */
+    public void append(String text) throws IOException {
+        int length = text.length();
+        // A char takes at most 3 bytes
+        if ((long) length * 3 > buffer.length - position) {
+            appendCharByChar(text, false);
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                buffer[position++] = (byte) c;
+            } else {
+                i = encode(text, i);
+            }
+        }
+    }
+
+    /**
+     * Appends a string quoted if needed, without a separator. {@code null} appends nothing.
+     *
+     * @param value the value
+     * @throws IOException if the channel cannot be written
+     */
+    public void appendEscaped(String value) throws IOException {
+        if (value == null) return;
+        int length = value.length();
+        boolean quote = needsQuotes(value);
+        // A char takes at most 3 bytes, and 6 when it is a quote to double
+        if ((long) length * 6 + 2 > buffer.length - position) {
+            appendCharByChar(value, quote);
+            return;
+        }
+        if (quote) buffer[position++] = '"';
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (c == '"' && quote) buffer[position++] = '"';
+                buffer[position++] = (byte) c;
+            } else {
+                i = encode(value, i);
+            }
+        }
+        if (quote) buffer[position++] = '"';
+    }
+
+    /**
+     * Appends a long, without a separator.
+     *
+     * @param value the value
+     * @throws IOException if the channel cannot be written
+     */
+    public void append(long value) throws IOException {
+        ensure(MAX_NUMBER_LENGTH);
+        writeLong(value);
+    }
+
+    /**
+     * Appends a double as {@link Double#toString(double)} would, without a separator.
+     *
+     * @param value the value
+     * @throws IOException if the channel cannot be written
+     */
+    public void append(double value) throws IOException {
+        ensure(MAX_NUMBER_LENGTH);
+        double magnitude = Math.abs(value);
+        if (magnitude == 0) {
+            writeAscii(Double.doubleToRawLongBits(value) < 0 ? "-0.0" : "0.0");
+            return;
+        }
+        // Double.toString switches to exponent form outside [1e-3, 1e7)
+        if (magnitude >= 1e-3 && magnitude < 1e7) {
+            int decimals = shortestDecimals(magnitude);
+            if (decimals > 0) {
+                if (value < 0) buffer[position++] = '-';
+                writeFixed(Math.round(magnitude * POWERS_OF_TEN[decimals]), decimals, 1);
+                return;
+            }
+        }
+        writeAscii(Double.toString(value));
+    }
+
+    /**
+     * Appends a double with a fixed number of decimals, as {@code String.format("%.2f", value)}
+     * does for two: the digits of {@link Double#toString(double)} rounded half up, and a
+     * minus sign for any negative value, even one that rounds to zero. Finite values below
+     * 10,000,000 are formatted without allocating.
+     *
+     * @param value    the value
+     * @param decimals the number of decimals, at most eight
+     * @throws IOException if the channel cannot be written
+     */
+    public void appendFixed(double value, int decimals) throws IOException {
+        if (decimals < 0 || decimals > MAX_FAST_DECIMALS) throw new IllegalArgumentException("decimals must be between 0 and " + MAX_FAST_DECIMALS);
+        double magnitude = Math.abs(value);
+        if (!(magnitude < 1e7) || !PLAIN_FIXED_FORMAT) {
+            append(String.format("%." + decimals + "f", value));
+            return;
+        }
+        long rounded;
+        int shortest = shortestDecimals(magnitude);
+        if (shortest > 0) {
+            rounded = Math.round(magnitude * POWERS_OF_TEN[shortest]);
+            if (shortest > decimals) {
+                long unit = LONG_POWERS_OF_TEN[shortest - decimals];
+                rounded = rounded / unit + (rounded % unit * 2 >= unit ? 1 : 0);
+            } else {
+                rounded *= LONG_POWERS_OF_TEN[decimals - shortest];
+            }
+        } else {
+            // More digits than can be found exactly; safe to round the binary value unless it is near a tie
+            double scaled = magnitude * POWERS_OF_TEN[decimals];
+            double floor = Math.floor(scaled);
+            if (Math.abs(scaled - floor - 0.5) <= 4 * Math.ulp(scaled)) {
+                append(String.format("%." + decimals + "f", value));
+                return;
+            }
+            rounded = (long) floor + (scaled - floor > 0.5 ? 1 : 0);
+        }
+        ensure(MAX_NUMBER_LENGTH);
+        if (Double.doubleToRawLongBits(value) < 0) buffer[position++] = '-';
+        writeFixed(rounded, decimals, decimals);
+    }
+
+    /**
+     * Ends the current record with a line break.
+     *
+     * @throws IOException if the channel cannot be written
+     */
+    public void endRecord() throws IOException {
+        ensure(1);
+        buffer[position++] = '\n';
+        firstField = true;
+    }
+
+    /** @return the number of bytes written so far, including any still buffered */
+    public long getBytesWritten() {
+        return bytesWritten + position;
+    }
+
+    /**
+     * Writes out the buffered bytes.
+     *
+     * @throws IOException if the channel cannot be written
+     */
+    public void flush() throws IOException {
+        wrapped.limit(position).position(0);
+        while (wrapped.hasRemaining()) {
+            channel.write(wrapped);
+        }
+        bytesWritten += position;
+        position = 0;
+    }
+
+    /**
+     * Writes out the buffered bytes and closes the channel.
+     *
+     * @throws IOException if the channel cannot be written or closed
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /** Writes the comma before every field but the first of a record. */
+    private void separate() throws IOException {
+        if (firstField) {
+            firstField = false;
+            return;
+        }
+        ensure(1);
+        buffer[position++] = ',';
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.length - position < bytes) flush();
+    }
+
+    private static boolean needsQuotes(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') return true;
+        }
+        return false;
+    }
+
+    /**
+     * Finds the fewest decimals, from one to eight, that write a positive value so it reads
+     * back as the same double. That is also what {@link Double#toString(double)} writes.
+     *
+     * @return the number of decimals, or 0 if more than eight are needed
+     */
+    private static int shortestDecimals(double magnitude) {
+        for (int decimals = 1; decimals <= MAX_FAST_DECIMALS; decimals++) {
+            if (Math.round(magnitude * POWERS_OF_TEN[decimals]) / POWERS_OF_TEN[decimals] == magnitude) return decimals;
+        }
+        return 0;
+    }
+
+    /** Writes a string too long to be sure of fitting in the buffer, a char at a time. */
+    private void appendCharByChar(String value, boolean quote) throws IOException {
+        ensure(1);
+        if (quote) buffer[position++] = '"';
+        for (int i = 0; i < value.length(); i++) {
+            ensure(6);
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (c == '"' && quote) buffer[position++] = '"';
+                buffer[position++] = (byte) c;
+            } else {
+                i = encode(value, i);
+            }
+        }
+        ensure(1);
+        if (quote) buffer[position++] = '"';
+    }
+
+    /**
+     * Encodes the non-ASCII char at {@code i} as UTF-8, with the low surrogate that follows
+     * a high one.
+     *
+     * @return the index of the last char encoded
+     */
+    private int encode(String value, int i) {
+        char c = value.charAt(i);
+        if (c < 0x800) {
+            buffer[position++] = (byte) (0xC0 | c >> 6);
+            buffer[position++] = (byte) (0x80 | c & 0x3F);
+        } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+            int codePoint = Character.toCodePoint(c, value.charAt(++i));
+            buffer[position++] = (byte) (0xF0 | codePoint >> 18);
+            buffer[position++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+            buffer[position++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+            buffer[position++] = (byte) (0x80 | codePoint & 0x3F);
+        } else if (Character.isSurrogate(c)) {
+            // An unpaired surrogate is written as '?', like String.getBytes
+            buffer[position++] = '?';
+        } else {
+            buffer[position++] = (byte) (0xE0 | c >> 12);
+            buffer[position++] = (byte) (0x80 | c >> 6 & 0x3F);
+            buffer[position++] = (byte) (0x80 | c & 0x3F);
+        }
+        return i;
+    }
+
+    private void writeLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            writeAscii("-9223372036854775808");
+            return;
+        }
+        if (value < 0) {
+            buffer[position++] = '-';
+            value = -value;
+        }
+        writeDigits(value, 1);
+    }
+
+    /**
+     * Writes {@code scaled / 10^decimals} with {@code decimals} fraction digits, dropping
+     * trailing zeros down to {@code minDecimals}. With no decimals, no point is written.
+     */
+    private void writeFixed(long scaled, int decimals, int minDecimals) {
+        long unit = LONG_POWERS_OF_TEN[decimals];
+        writeDigits(scaled / unit, 1);
+        if (decimals == 0) return;
+        buffer[position++] = '.';
+        long fraction = scaled % unit;
+        while (decimals > minDecimals && fraction % 10 == 0) {
+            fraction /= 10;
+            decimals--;
+        }
+        writeDigits(fraction, decimals);
+    }
+
+    /** Writes a non-negative number with at least {@code minDigits} digits, padding with zeros. */
+    private void writeDigits(long value, int minDigits) {
+        int digits = 1;
+        for (long rest = value / 10; rest != 0; rest /= 10) digits++;
+        digits = Math.max(digits, minDigits);
+        for (int i = position + digits - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        position += digits;
+    }
+
+    private void writeAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            buffer[position++] = (byte) value.charAt(i);
+        }
+    }
+}
@@ -0,0 +1,359 @@
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * The {@code CatalogSnapshotFile} class saves the tracked catalog to a compact, versioned,
+ * columnar binary file and loads it back, so a restart does not have to re-parse the CSV.
+ *
+ * <p>Every {@link SpaceObject} field is stored. Each field is written as one column for the
+ * whole catalog: ints and doubles as fixed-width arrays, booleans as one flag byte per
+ * object, and strings either as codes into a per-column {@link StringDictionary} (country,
+ * launch site, orbit type and the other low-cardinality fields) or as a length column
+ * followed by one UTF-8 blob (names). Loading memory-maps the file and bulk-copies each
+ * column out of the mapping.</p>
+ *
+ * <p>The header records the source the catalog was loaded from, as a fingerprint string
+ * chosen by the caller, such as the source file's path, size and modification time. A
+ * reader passes the fingerprint it expects, and a snapshot of another source, or of an
+ * older version of the same file, is rejected rather than trusted.</p>
+ *
+ * <p>A snapshot is written to a temporary file and moved over the old one in one atomic
+ * step, so an interrupted save leaves the previous snapshot in place. Reading checks every
+ * count and length against the bytes left in the file, and reports a truncated or damaged
+ * snapshot as an {@link IOException}.</p>
+ *
+ * <p>A snapshot file must be smaller than 2 GB, the limit of a single mapping. That is
+ * roughly twenty million objects.</p>
+ */
+public class CatalogSnapshotFile {
+    /** "RSOS" in ASCII. */
+    private static final int MAGIC = 0x52534F53;
+    private static final int VERSION = 2;
+
+    /** Bits of the per-object flag byte. */
+    private static final int STILL_IN_ORBIT = 1;
+    private static final int NOMINATED = 1 << 1;
+    private static final int HAS_DOSSIER = 1 << 2;
+    private static final int UNKNOWN_OBJECT = 1 << 3;
+    private static final int HAS_SISTER_DEBRIS = 1 << 4;
+
+    /**
+     * Writes a snapshot of the given objects, replacing any existing file.
+     *
+     * @param objects  the objects to save, in catalog order
+     * @param filename path of the snapshot file
+     * @param source   fingerprint of the source the objects were loaded from; may be empty
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(List<SpaceObject> objects, String filename, String source) throws IOException {
+        Path temporary = Paths.get(filename + ".tmp");
+        try {
+            writeTo(objects, temporary.toString(), source);
+            Files.move(temporary, Paths.get(filename), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static void writeTo(List<SpaceObject> objects, String filename, String source) throws IOException {
+        int n = objects.size();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            byte[] sourceBytes = source.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(sourceBytes.length);
+            out.write(sourceBytes);
+            out.writeInt(n);
+
+            int[] ints = new int[n];
+            double[] doubles = new double[n];
+
+            for (int column = 0; column < 8; column++) {
+                for (int i = 0; i < n; i++) ints[i] = intField(objects.get(i), column);
+                writeInts(out, ints);
+            }
+            for (int column = 0; column < 3; column++) {
+                for (int i = 0; i < n; i++) doubles[i] = doubleField(objects.get(i), column);
+                writeDoubles(out, doubles);
+            }
+            for (SpaceObject obj : objects) out.writeByte(flags(obj));
+
+            for (int column = 0; column < 9; column++) {
+                StringDictionary dictionary = new StringDictionary();
+                for (int i = 0; i < n; i++) ints[i] = dictionary.encode(dictionaryField(objects.get(i), column));
+                out.writeInt(dictionary.size());
+                for (int code = 0; code < dictionary.size(); code++) {
+                    byte[] bytes = dictionary.decode(code).getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+                writeInts(out, ints);
+            }
+
+            for (int column = 0; column < 3; column++) {
+                ByteArrayOutputStream blob = new ByteArrayOutputStream();
+                for (int i = 0; i < n; i++) {
+                    String value = textField(objects.get(i), column);
+                    if (value == null) {
+                        ints[i] = -1;
+                    } else {
+                        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                        ints[i] = bytes.length;
+                        blob.write(bytes);
+                    }
+                }
+                writeInts(out, ints);
+                out.writeInt(blob.size());
+                blob.writeTo(out);
+            }
+        }
+    }
+
+    /**
+     * Reads a snapshot written by {@link #write}, whatever its source.
+     *
+     * @param filename path of the snapshot file
+     * @return the saved objects, in catalog order
+     * @throws IOException if the file cannot be read or is not a snapshot of this version
+     */
+    public static List<SpaceObject> read(String filename) throws IOException {
+        return read(filename, null);
+    }
+
+    /**
+     * Reads a snapshot written by {@link #write} from a given source.
+     *
+     * @param filename path of the snapshot file
+     * @param source   the source fingerprint the snapshot must have been written with, or
+     *                 {@code null} to accept any
+     * @return the saved objects, in catalog order
+     * @throws IOException if the file cannot be read, is not a snapshot of this version, or
+     *                     was written from another source
+     */
+    public static List<SpaceObject> read(String filename, String source) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot " + filename + " is larger than 2 GB");
+            }
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            try {
+                return decode(in, filename, source);
+            } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+                throw corrupt(filename, e);
+            }
+        }
+    }
+
+    /** Decodes a whole snapshot, checking each count and length before it is used. */
+    private static List<SpaceObject> decode(ByteBuffer in, String filename, String source) throws IOException {
+        if (in.remaining() < 12 || in.getInt() != MAGIC) {
+            throw new IOException(filename + " is not a catalog snapshot");
+        }
+        int version = in.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version " + version + " in " + filename);
+        }
+        String written = readString(in, length(in, 1, filename));
+        if (source != null && !source.equals(written)) {
+            throw new IOException("Snapshot " + filename + " was not written from " + source);
+        }
+        require(in, Integer.BYTES, filename);
+        int n = in.getInt();
+        // Every object takes at least one flag byte, so a larger count cannot be right
+        if (n < 0 || n > in.remaining()) throw corrupt(filename, null);
+
+        int[][] ints = new int[8][];
+        for (int column = 0; column < ints.length; column++) ints[column] = readInts(in, n, filename);
+        double[][] doubles = new double[3][];
+        for (int column = 0; column < doubles.length; column++) {
+            require(in, (long) n * Double.BYTES, filename);
+            doubles[column] = new double[n];
+            in.asDoubleBuffer().get(doubles[column]);
+            in.position(in.position() + n * Double.BYTES);
+        }
+        byte[] flags = new byte[n];
+        in.get(flags);
+
+        String[][] dictionaries = new String[9][];
+        int[][] codes = new int[9][];
+        for (int column = 0; column < dictionaries.length; column++) {
+            dictionaries[column] = new String[length(in, Integer.BYTES, filename)];
+            for (int code = 0; code < dictionaries[column].length; code++) {
+                dictionaries[column][code] = readString(in, length(in, 1, filename));
+            }
+            codes[column] = readInts(in, n, filename);
+            for (int code : codes[column]) {
+                if (code != StringDictionary.NULL_CODE && (code < 0 || code >= dictionaries[column].length)) {
+                    throw corrupt(filename, null);
+                }
+            }
+        }
+
+        String[][] texts = new String[3][n];
+        for (int column = 0; column < texts.length; column++) {
+            int[] lengths = readInts(in, n, filename);
+            byte[] blob = new byte[length(in, 1, filename)];
+            in.get(blob);
+            int offset = 0;
+            for (int i = 0; i < n; i++) {
+                if (lengths[i] < 0) continue;
+                if (lengths[i] > blob.length - offset) throw corrupt(filename, null);
+                texts[column][i] = new String(blob, offset, lengths[i], StandardCharsets.UTF_8);
+                offset += lengths[i];
+            }
+        }
+        if (in.hasRemaining()) throw corrupt(filename, null);
+
+        List<SpaceObject> objects = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            SpaceObject obj = SpaceObject.create(ints[0][i], ints[1][i], texts[0][i],
+                    entry(dictionaries, codes, 0, i), entry(dictionaries, codes, 1, i),
+                    entry(dictionaries, codes, 2, i), ints[2][i], entry(dictionaries, codes, 3, i),
+                    doubles[0][i], doubles[1][i], entry(dictionaries, codes, 4, i), ints[3][i], ints[4][i]);
+            obj.setAllManeuvers(ints[5][i]);
+            obj.setDaysSinceOb(ints[6][i]);
+            obj.setRecentManeuvers(ints[7][i]);
+            obj.setDeltaV90Day(doubles[2][i]);
+            obj.setStillInOrbit((flags[i] & STILL_IN_ORBIT) != 0);
+            obj.setNominated((flags[i] & NOMINATED) != 0);
+            obj.setHasDossier((flags[i] & HAS_DOSSIER) != 0);
+            obj.setUnknownObject((flags[i] & UNKNOWN_OBJECT) != 0);
+            obj.setHasSisterDebris((flags[i] & HAS_SISTER_DEBRIS) != 0);
+            obj.setHRRCategory(entry(dictionaries, codes, 5, i));
+            obj.setRiskLevel(entry(dictionaries, codes, 6, i));
+            obj.setNominatedAt(entry(dictionaries, codes, 7, i));
+            obj.setLastUpdatedAt(entry(dictionaries, codes, 8, i));
+            obj.setJustification(texts[1][i]);
+            obj.setFocusedAnalysis(texts[2][i]);
+            objects.add(obj);
+        }
+        return objects;
+    }
+
+    /** Int columns, in file order. */
+    private static int intField(SpaceObject obj, int column) {
+        switch (column) {
+            case 0: return obj.getRecordId();
+            case 1: return obj.getNoradId();
+            case 2: return obj.getLaunchYear();
+            case 3: return obj.getDaysOld();
+            case 4: return obj.getConjunctionCount();
+            case 5: return obj.getAllManeuvers();
+            case 6: return obj.getDaysSinceOb();
+            default: return obj.getRecentManeuvers();
+        }
+    }
+
+    /** Double columns, in file order. */
+    private static double doubleField(SpaceObject obj, int column) {
+        switch (column) {
+            case 0: return obj.getLongitude();
+            case 1: return obj.getAvgLongitude();
+            default: return obj.getDeltaV90Day();
+        }
+    }
+
+    /** Dictionary-encoded string columns, in file order. */
+    private static String dictionaryField(SpaceObject obj, int column) {
+        switch (column) {
+            case 0: return obj.getCountry();
+            case 1: return obj.getOrbitType();
+            case 2: return obj.objectType; // the catalog spelling, not the subclass label
+            case 3: return obj.getLaunchSite();
+            case 4: return obj.getGeoHash();
+            case 5: return obj.getHRRCategory();
+            case 6: return obj.getRiskLevel();
+            case 7: return obj.getNominatedAt();
+            default: return obj.getLastUpdatedAt();
+        }
+    }
+
+    /** Free-text string columns, in file order. */
+    private static String textField(SpaceObject obj, int column) {
+        switch (column) {
+            case 0: return obj.getSatelliteName();
+            case 1: return obj.getJustification();
+            default: return obj.getFocusedAnalysis();
+        }
+    }
+
+    private static int flags(SpaceObject obj) {
+        int flags = 0;
+        if (obj.isStillInOrbit()) flags |= STILL_IN_ORBIT;
+        if (obj.isNominated()) flags |= NOMINATED;
+        if (obj.hasDossier()) flags |= HAS_DOSSIER;
+        if (obj.isUnknownObject()) flags |= UNKNOWN_OBJECT;
+        if (obj.hasSisterDebris()) flags |= HAS_SISTER_DEBRIS;
+        return flags;
+    }
+
+    private static String entry(String[][] dictionaries, int[][] codes, int column, int row) {
+        int code = codes[column][row];
+        return code == StringDictionary.NULL_CODE ? null : dictionaries[column][code];
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        for (int value : values) {
+            if (!buffer.hasRemaining()) drain(out, buffer);
+            buffer.putInt(value);
+        }
+        drain(out, buffer);
+    }
+
+    private static void writeDoubles(DataOutputStream out, double[] values) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        for (double value : values) {
+            if (!buffer.hasRemaining()) drain(out, buffer);
+            buffer.putDouble(value);
+        }
+        drain(out, buffer);
+    }
+
+    private static void drain(DataOutputStream out, ByteBuffer buffer) throws IOException {
+        out.write(buffer.array(), 0, buffer.position());
+        buffer.clear();
+    }
+
+    private static IOException corrupt(String filename, Exception cause) {
+        return new IOException("Snapshot " + filename + " is truncated or corrupt", cause);
+    }
+
+    /** Fails unless the buffer has at least {@code bytes} more bytes. */
+    private static void require(ByteBuffer in, long bytes, String filename) throws IOException {
+        if (bytes > in.remaining()) throw corrupt(filename, null);
+    }
+
+    /** Reads a count of items of {@code itemBytes} each, checked against the bytes left. */
+    private static int length(ByteBuffer in, int itemBytes, String filename) throws IOException {
+        require(in, Integer.BYTES, filename);
+        int length = in.getInt();
+        if (length < 0) throw corrupt(filename, null);
+        require(in, (long) length * itemBytes, filename);
+        return length;
+    }
+
+    private static int[] readInts(ByteBuffer in, int n, String filename) throws IOException {
+        require(in, (long) n * Integer.BYTES, filename);
+        int[] values = new int[n];
+        in.asIntBuffer().get(values);
+        in.position(in.position() + n * Integer.BYTES);
+        return values;
+    }
+
+    private static String readString(ByteBuffer in, int length) {
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,312 @@
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * The {@code CatalogVersion} class is one published, immutable state of a
+ * {@link TrackingSystem}'s catalog, which any number of threads can read without locking.
+ *
+ * <p>The writer publishes a new version after each change (or once at the end of an
+ * update batch), in the style of read-copy-update: readers pick up the current version
+ * with a single volatile read and keep using it, so a reader always sees one consistent
+ * catalog, never half of a load. Publishing the objects is O(1) because they are a
+ * {@link SegmentedObjectList.Snapshot}.</p>
+ *
+ * <p>Rows are slots: the row of an object is its position in {@link #slots()}, where the
+ * objects the writer has removed leave {@code null}s until it compacts. Slots keep their
+ * numbers from one version to the next, so when the writer publishes a version it carries
+ * forward every index the previous version had built (the scan columns, the type, orbit,
+ * ID, longitude and geohash indexes and the top-K rankings) by copying it and applying just
+ * the changed slots. The copies share all unchanged structure with the previous version's,
+ * so carrying costs time proportional to the changes plus one directory per index. A
+ * ranking is dropped instead if a changed slot was one of its rows.</p>
+ *
+ * <p>An index the previous version had not built, or that could not be carried, is built
+ * from the slots the first time a reader asks for it, and then shared by all later readers
+ * of that version. If two readers ask at once, both may build it; either copy is correct
+ * and one is kept.</p>
+ */
+public class CatalogVersion {
+    /** The published slots; removed objects leave {@code null}s until the writer compacts. */
+    private final SegmentedObjectList.Snapshot slots;
+    private final RollupCube rollup;
+
+    private volatile ColumnarCatalog columns;
+    private volatile CategoryIndex typeIndex;
+    private volatile CategoryIndex orbitIndex;
+    private volatile IdIndex rowsByCatalogId;
+    private volatile IdIndex rowsByRecordId;
+    private volatile LongitudeIndex longitudeIndex;
+    private volatile GeoGridIndex geoIndex;
+    /** The widest ranking built for each metric, by ordinal. */
+    private final AtomicReferenceArray<TopKHeap> rankings = new AtomicReferenceArray<>(RankingMetric.values().length);
+
+    /**
+     * Creates a version over a snapshot of the writer's slots.
+     *
+     * @param slots  the writer's slots at publication
+     * @param rollup a read-only snapshot of the writer's rollup cube at publication
+     */
+    CatalogVersion(SegmentedObjectList.Snapshot slots, RollupCube rollup) {
+        this.slots = slots;
+        this.rollup = rollup;
+    }
+
+    /**
+     * Returns the tracked objects in catalog order. While removed slots are pending this
+     * is a view that skips them, created in O(slots / 4096).
+     *
+     * @return a read-only list of the objects
+     */
+    public List<SpaceObject> objects() {
+        return slots.withoutNulls();
+    }
+
+    /**
+     * Returns the slots, whose positions are the row numbers used by this version's
+     * columns and indexes.
+     *
+     * @return a read-only list of the objects, with {@code null} for removed slots
+     */
+    public List<SpaceObject> slots() {
+        return slots;
+    }
+
+    /** @return the read-only totals of this version's objects, maintained by the writer */
+    public RollupCube rollup() {
+        return rollup;
+    }
+
+    /** @return the scan fields of {@link #slots()}, row for row; removed slots are empty rows */
+    public ColumnarCatalog columns() {
+        ColumnarCatalog result = columns;
+        if (result == null) {
+            result = new ColumnarCatalog();
+            for (SpaceObject obj : slots) {
+                result.add(obj);
+            }
+            columns = result;
+        }
+        return result;
+    }
+
+    /** @return the rows of each object type */
+    public CategoryIndex typeIndex() {
+        CategoryIndex result = typeIndex;
+        if (result == null) {
+            typeIndex = result = CategoryIndex.build(slots, SpaceObject::getObjectType);
+        }
+        return result;
+    }
+
+    /** @return the rows of each orbit type */
+    public CategoryIndex orbitIndex() {
+        CategoryIndex result = orbitIndex;
+        if (result == null) {
+            orbitIndex = result = CategoryIndex.build(slots, SpaceObject::getOrbitType);
+        }
+        return result;
+    }
+
+    /** @return the row of each catalog ID, see {@link TrackingSystem#catalogId} */
+    public IdIndex rowsByCatalogId() {
+        IdIndex result = rowsByCatalogId;
+        if (result == null) {
+            rowsByCatalogId = result = buildIdIndex(TrackingSystem::catalogId);
+        }
+        return result;
+    }
+
+    /** @return the row of each record ID; the last row wins for duplicates */
+    public IdIndex rowsByRecordId() {
+        IdIndex result = rowsByRecordId;
+        if (result == null) {
+            rowsByRecordId = result = buildIdIndex(SpaceObject::getRecordId);
+        }
+        return result;
+    }
+
+    private IdIndex buildIdIndex(ToIntFunction<SpaceObject> id) {
+        IdIndex result = new IdIndex(slots.size() - slots.nullCount());
+        for (int row = 0; row < slots.size(); row++) {
+            SpaceObject obj = slots.get(row);
+            if (obj != null) result.add(id.applyAsInt(obj), row);
+        }
+        return result;
+    }
+
+    /** @return the sorted longitude index */
+    public LongitudeIndex longitudeIndex() {
+        LongitudeIndex result = longitudeIndex;
+        if (result == null) {
+            longitudeIndex = result = LongitudeIndex.build(slots);
+        }
+        return result;
+    }
+
+    /** @return the longitude index if a reader has already built it, else {@code null} */
+    public LongitudeIndex longitudeIndexIfBuilt() {
+        return longitudeIndex;
+    }
+
+    /**
+     * Returns the rows of the {@code k} highest-scoring objects. The first call for a metric
+     * scans the columns once, keeping a bounded heap, and later calls for up to that many
+     * rows reuse the result.
+     *
+     * @param metric the score to rank by
+     * @param k      the number of rows wanted
+     * @return up to {@code k} rows, highest score first; equal scores in row order
+     */
+    public int[] top(RankingMetric metric, int k) {
+        TopKHeap ranked = rankings.get(metric.ordinal());
+        if (ranked == null || ranked.capacity() < k) {
+            ranked = rank(metric, k);
+            rankings.set(metric.ordinal(), ranked);
+        }
+        return ranked.rows(k);
+    }
+
+    /**
+     * Ranks every row, splitting large catalogs into ranges ranked on separate threads
+     * whose heaps are merged.
+     */
+    private TopKHeap rank(RankingMetric metric, int k) {
+        ColumnarCatalog columns = columns();
+        return ParallelScan.reduce(ParallelScan.Scan.RANKING, columns.size(), (from, to) -> {
+            TopKHeap heap = new TopKHeap(k);
+            columns.offerTop(metric, from, to, heap);
+            return heap;
+        }, (first, second) -> {
+            first.merge(second);
+            return first;
+        });
+    }
+
+    /**
+     * Carries forward the columns, indexes and rankings already built for the version this
+     * one replaces, applying the slots changed since. Called by the writer before
+     * publishing this version, and only if the slots have not been compacted in between.
+     *
+     * @param previous     the version this one replaces
+     * @param changedSlots slots appended, replaced or removed since {@code previous}, in any order
+     * @param changedCount the number of entries of {@code changedSlots} in use
+     */
+    void carry(CatalogVersion previous, int[] changedSlots, int changedCount) {
+        int[] sorted = Arrays.copyOf(changedSlots, changedCount);
+        Arrays.sort(sorted);
+        int count = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) sorted[count++] = sorted[i];
+        }
+        int[] changed = Arrays.copyOf(sorted, count);
+        SegmentedObjectList.Snapshot before = previous.slots;
+
+        ColumnarCatalog previousColumns = previous.columns;
+        if (previousColumns != null) {
+            ColumnarCatalog result = previousColumns.copy();
+            for (int slot : changed) {
+                if (slot < result.size()) result.set(slot, slots.get(slot));
+                else result.add(slots.get(slot));
+            }
+            columns = result;
+        }
+
+        CategoryIndex previousTypes = previous.typeIndex;
+        if (previousTypes != null) typeIndex = carry(previousTypes, before, changed, SpaceObject::getObjectType);
+        CategoryIndex previousOrbits = previous.orbitIndex;
+        if (previousOrbits != null) orbitIndex = carry(previousOrbits, before, changed, SpaceObject::getOrbitType);
+
+        IdIndex previousCatalogIds = previous.rowsByCatalogId;
+        if (previousCatalogIds != null) rowsByCatalogId = carry(previousCatalogIds, before, changed, TrackingSystem::catalogId);
+        IdIndex previousRecordIds = previous.rowsByRecordId;
+        if (previousRecordIds != null) rowsByRecordId = carry(previousRecordIds, before, changed, SpaceObject::getRecordId);
+
+        LongitudeIndex previousLongitudes = previous.longitudeIndex;
+        if (previousLongitudes != null) {
+            LongitudeIndex result = previousLongitudes.copy();
+            for (int slot : changed) {
+                SpaceObject old = slot < before.size() ? before.get(slot) : null;
+                SpaceObject obj = slots.get(slot);
+                if (old != null && obj != null && Double.compare(old.getLongitude(), obj.getLongitude()) == 0) continue;
+                if (old != null) result.remove(old.getLongitude(), slot);
+                if (obj != null) result.add(obj.getLongitude(), slot);
+            }
+            longitudeIndex = result;
+        }
+
+        GeoGridIndex previousGeo = previous.geoIndex;
+        if (previousGeo != null) {
+            GeoGridIndex result = previousGeo.copy();
+            for (int slot : changed) {
+                SpaceObject old = slot < before.size() ? before.get(slot) : null;
+                SpaceObject obj = slots.get(slot);
+                if (old != null && obj != null && Objects.equals(old.getGeoHash(), obj.getGeoHash())) continue;
+                if (old != null) result.remove(old.getGeoHash(), slot);
+                if (obj != null) result.add(obj.getGeoHash(), slot);
+            }
+            geoIndex = result;
+        }
+
+        for (RankingMetric metric : RankingMetric.values()) {
+            TopKHeap ranked = previous.rankings.get(metric.ordinal());
+            if (ranked == null) continue;
+            TopKHeap heap = ranked.copy();
+            boolean carried = true;
+            for (int i = 0; i < changed.length && carried; i++) {
+                int slot = changed[i];
+                SpaceObject obj = slots.get(slot);
+                // A ranked object that was replaced or removed may leave room for a row the heap never kept
+                if (slot < before.size() && ranked.contains(slot)) {
+                    carried = false;
+                } else if (obj != null) {
+                    heap.offer(metric.score(obj), slot);
+                }
+            }
+            if (carried) rankings.set(metric.ordinal(), heap);
+        }
+    }
+
+    /** Copies a category index and moves the changed slots whose value changed. */
+    private CategoryIndex carry(CategoryIndex previous, List<SpaceObject> before, int[] changed,
+                                Function<SpaceObject, String> category) {
+        CategoryIndex result = previous.copy();
+        for (int slot : changed) {
+            SpaceObject old = slot < before.size() ? before.get(slot) : null;
+            SpaceObject obj = slots.get(slot);
+            String oldValue = old == null ? null : category.apply(old);
+            String value = obj == null ? null : category.apply(obj);
+            if (old != null && obj != null && CategoryIndex.sameKey(oldValue, value)) continue;
+            if (old != null) result.remove(oldValue, slot);
+            if (obj != null) result.add(value, slot);
+        }
+        return result;
+    }
+
+    /**
+     * Copies an ID index and moves the changed slots whose ID changed, or returns
+     * {@code null} to have it rebuilt if it can no longer answer or has outgrown its shards.
+     */
+    private IdIndex carry(IdIndex previous, List<SpaceObject> before, int[] changed, ToIntFunction<SpaceObject> id) {
+        if (!previous.suits(slots.size() - slots.nullCount())) return null;
+        IdIndex result = previous.copy();
+        for (int slot : changed) {
+            SpaceObject old = slot < before.size() ? before.get(slot) : null;
+            SpaceObject obj = slots.get(slot);
+            if (old != null && obj != null && id.applyAsInt(old) == id.applyAsInt(obj)) continue;
+            if (old != null && !result.remove(id.applyAsInt(old), slot)) return null;
+            if (obj != null) result.add(id.applyAsInt(obj), slot);
+        }
+        return result;
+    }
+
+    /** @return the geohash coordinate index */
+    public GeoGridIndex geoIndex() {
+        GeoGridIndex result = geoIndex;
+        if (result == null) {
+            geoIndex = result = GeoGridIndex.build(slots);
+        }
+        return result;
+    }
+}
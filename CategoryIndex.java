@@ -0,0 +1,133 @@
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * The {@code CategoryIndex} class is a secondary index from a category value, such as an
+ * object type or orbit type, to the catalog rows holding that value.
+ *
+ * <p>Values are matched ignoring case, the way the tracking system's menus compare them.
+ * Each value's rows are kept in a {@link SortedEntryList}, so a lookup costs time
+ * proportional to the number of rows returned and the rows come back in catalog order.
+ * {@link #copy()} shares those lists, so a catalog version can derive its index from the
+ * previous version's by adding and removing just the changed rows.</p>
+ */
+public class CategoryIndex {
+    private final Map<String, SortedEntryList> rowsByValue;
+
+    /** Creates an empty index. */
+    public CategoryIndex() {
+        rowsByValue = new HashMap<>();
+    }
+
+    private CategoryIndex(CategoryIndex other) {
+        rowsByValue = new HashMap<>();
+        for (Map.Entry<String, SortedEntryList> entry : other.rowsByValue.entrySet()) {
+            rowsByValue.put(entry.getKey(), entry.getValue().copy());
+        }
+    }
+
+    /**
+     * Builds the index over a list of objects; the position of each object is its row.
+     * {@code null} entries are skipped.
+     *
+     * @param objects  the objects to index
+     * @param category the value to index each object by
+     * @return the index
+     */
+    public static CategoryIndex build(List<SpaceObject> objects, Function<SpaceObject, String> category) {
+        // Rows are collected per value in ascending order, so each list is built without sorting
+        Map<String, int[]> rows = new HashMap<>();
+        Map<String, Integer> counts = new HashMap<>();
+        for (int row = 0; row < objects.size(); row++) {
+            SpaceObject obj = objects.get(row);
+            String value = obj == null ? null : category.apply(obj);
+            if (value == null) continue;
+            String key = key(value);
+            int count = counts.getOrDefault(key, 0);
+            int[] keyRows = rows.get(key);
+            if (keyRows == null || count == keyRows.length) {
+                keyRows = keyRows == null ? new int[16] : Arrays.copyOf(keyRows, count * 2);
+                rows.put(key, keyRows);
+            }
+            keyRows[count] = row;
+            counts.put(key, count + 1);
+        }
+
+        CategoryIndex index = new CategoryIndex();
+        for (Map.Entry<String, int[]> entry : rows.entrySet()) {
+            int count = counts.get(entry.getKey());
+            index.rowsByValue.put(entry.getKey(), SortedEntryList.build(new long[count], entry.getValue(), count));
+        }
+        return index;
+    }
+
+    /**
+     * Returns a copy that shares this index's row lists until either index next changes them.
+     * Costs O(values + rows / 1024).
+     *
+     * @return the copy
+     */
+    public CategoryIndex copy() {
+        return new CategoryIndex(this);
+    }
+
+    /**
+     * Adds a row under a value. {@code null} values are not indexed.
+     *
+     * @param value the row's category value
+     * @param row   the row number
+     */
+    public void add(String value, int row) {
+        if (value == null) return;
+        rowsByValue.computeIfAbsent(key(value), k -> new SortedEntryList()).insert(0, row);
+    }
+
+    /**
+     * Removes a row from under a value.
+     *
+     * @param value the value the row was added with
+     * @param row   the row number
+     */
+    public void remove(String value, int row) {
+        if (value == null) return;
+        SortedEntryList rows = rowsByValue.get(key(value));
+        if (rows != null) rows.remove(0, row);
+    }
+
+    /**
+     * Returns the rows holding a value, in ascending order.
+     *
+     * @param value the value to look up, compared ignoring case
+     * @return the matching rows; empty if there are none
+     */
+    public int[] rows(String value) {
+        SortedEntryList rows = value == null ? null : rowsByValue.get(key(value));
+        return rows == null ? new int[0] : rows.rows(0, rows.size());
+    }
+
+    /**
+     * Returns the number of rows holding a value.
+     *
+     * @param value the value to look up, compared ignoring case
+     * @return the row count
+     */
+    public int count(String value) {
+        SortedEntryList rows = value == null ? null : rowsByValue.get(key(value));
+        return rows == null ? 0 : rows.size();
+    }
+
+    /**
+     * Tells whether two values are indexed under the same key.
+     *
+     * @param first  a value, may be {@code null}
+     * @param second another value, may be {@code null}
+     * @return whether both are {@code null} or equal ignoring case
+     */
+    public static boolean sameKey(String first, String second) {
+        return first == null ? second == null : second != null && key(first).equals(key(second));
+    }
+
+    private static String key(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,276 @@
+import java.util.Arrays;
+
+/**
+ * The {@code ColumnarCatalog} class stores the fields that catalog scans filter on as
+ * parallel primitive arrays, one array per field, indexed by row.
+ *
+ * <p>Scanning a {@code double[]} of longitudes is a tight loop over contiguous memory,
+ * while scanning a list of {@link SpaceObject}s follows a pointer to a separate heap object
+ * for every row. Low-cardinality strings (orbit type, object type, country) are stored as
+ * {@link StringDictionary} codes, so comparing them is an integer compare.</p>
+ *
+ * <p>The scans return the matching row numbers; the caller decides whether to turn a row
+ * into an object. A row holds the values its object had when the row was written, and a
+ * setter called on the object afterwards does not change them. A row may also be empty,
+ * such as the row of a removed object; scans skip it.</p>
+ *
+ * <p>The arrays are kept in segments of 4096 rows. {@link #copy()} shares the segments, and
+ * the first later change to a segment copies it, the way {@link SegmentedObjectList} shares
+ * segments, so a catalog version derives its columns from the previous version's by
+ * writing just the changed rows.</p>
+ */
+public class ColumnarCatalog {
+    private static final int SEGMENT_SHIFT = 12;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    private final StringDictionary orbitTypes;
+    private final StringDictionary objectTypes;
+    private final StringDictionary countries;
+
+    private Segment[] segments = new Segment[16];
+    private int size;
+
+    /** Incremented by every copy; a segment may be shared unless it was copied in this epoch. */
+    private int epoch;
+    /** Epoch in which each segment was created or last copied. */
+    private int[] segmentEpochs = new int[16];
+
+    /** Creates an empty catalog. */
+    public ColumnarCatalog() {
+        orbitTypes = new StringDictionary();
+        objectTypes = new StringDictionary();
+        countries = new StringDictionary();
+    }
+
+    private ColumnarCatalog(ColumnarCatalog other) {
+        // The dictionaries are small, and copying them keeps the original's codes fixed
+        orbitTypes = new StringDictionary(other.orbitTypes);
+        objectTypes = new StringDictionary(other.objectTypes);
+        countries = new StringDictionary(other.countries);
+        segments = other.segments.clone();
+        size = other.size;
+        // Every segment starts out shared with the original
+        segmentEpochs = new int[segments.length];
+        epoch = 1;
+    }
+
+    /**
+     * Returns a copy that shares this catalog's segments until either catalog next changes
+     * them. Costs O(distinct values + rows / 4096).
+     *
+     * @return the copy
+     */
+    public ColumnarCatalog copy() {
+        ColumnarCatalog copy = new ColumnarCatalog(this);
+        epoch++;
+        return copy;
+    }
+
+    /**
+     * Appends a row holding the object's scan fields.
+     *
+     * @param obj the object to add, or {@code null} for an empty row
+     * @return the new row number
+     */
+    public int add(SpaceObject obj) {
+        int segment = size >>> SEGMENT_SHIFT;
+        if (segment == segments.length) {
+            segments = Arrays.copyOf(segments, segment * 2);
+            segmentEpochs = Arrays.copyOf(segmentEpochs, segment * 2);
+        }
+        if (segments[segment] == null) {
+            segments[segment] = new Segment();
+            segmentEpochs[segment] = epoch;
+        }
+        set(size, obj);
+        return size++;
+    }
+
+    /**
+     * Overwrites a row with the object's current scan fields.
+     *
+     * @param row the row number
+     * @param obj the object whose fields to store, or {@code null} to empty the row
+     */
+    public void set(int row, SpaceObject obj) {
+        Segment segment = writable(row >>> SEGMENT_SHIFT);
+        int i = row & SEGMENT_MASK;
+        segment.empty[i] = obj == null;
+        if (obj == null) return;
+        segment.longitude[i] = obj.getLongitude();
+        segment.avgLongitude[i] = obj.getAvgLongitude();
+        segment.deltaV90Day[i] = obj.getDeltaV90Day();
+        segment.daysOld[i] = obj.getDaysOld();
+        segment.conjunctionCount[i] = obj.getConjunctionCount();
+        segment.launchYear[i] = obj.getLaunchYear();
+        segment.orbitType[i] = orbitTypes.encode(obj.getOrbitType());
+        segment.objectType[i] = objectTypes.encode(obj.getObjectType());
+        segment.country[i] = countries.encode(obj.getCountry());
+    }
+
+    /** @return the number of rows, including empty ones */
+    public int size() {
+        return size;
+    }
+
+    /** @param row row number @return whether the row holds an object */
+    public boolean hasObject(int row) { return !segments[row >>> SEGMENT_SHIFT].empty[row & SEGMENT_MASK]; }
+
+    /** @param row row number @return the stored longitude */
+    public double getLongitude(int row) { return segments[row >>> SEGMENT_SHIFT].longitude[row & SEGMENT_MASK]; }
+
+    /** @param row row number @return the stored average longitude */
+    public double getAvgLongitude(int row) { return segments[row >>> SEGMENT_SHIFT].avgLongitude[row & SEGMENT_MASK]; }
+
+    /** @param row row number @return the stored delta-V over the last 90 days */
+    public double getDeltaV90Day(int row) { return segments[row >>> SEGMENT_SHIFT].deltaV90Day[row & SEGMENT_MASK]; }
+
+    /** @param row row number @return the stored days since launch */
+    public int getDaysOld(int row) { return segments[row >>> SEGMENT_SHIFT].daysOld[row & SEGMENT_MASK]; }
+
+    /** @param row row number @return the stored conjunction count */
+    public int getConjunctionCount(int row) { return segments[row >>> SEGMENT_SHIFT].conjunctionCount[row & SEGMENT_MASK]; }
+
+    /** @param row row number @return the stored launch year */
+    public int getLaunchYear(int row) { return segments[row >>> SEGMENT_SHIFT].launchYear[row & SEGMENT_MASK]; }
+
+    /** @param row row number @return the orbit type code, see {@link #orbitTypeCodes} */
+    public int getOrbitTypeCode(int row) { return segments[row >>> SEGMENT_SHIFT].orbitType[row & SEGMENT_MASK]; }
+
+    /** @param row row number @return the object type code, see {@link #objectTypeCodes} */
+    public int getObjectTypeCode(int row) { return segments[row >>> SEGMENT_SHIFT].objectType[row & SEGMENT_MASK]; }
+
+    /** @param row row number @return the country code, see {@link #countryCodes} */
+    public int getCountryCode(int row) { return segments[row >>> SEGMENT_SHIFT].country[row & SEGMENT_MASK]; }
+
+    /**
+     * Marks the object type codes whose value equals {@code type}, ignoring case.
+     *
+     * @param type the object type, e.g. "Debris"
+     * @return a flag per object type code
+     */
+    public boolean[] objectTypeCodes(String type) {
+        return codesIgnoringCase(objectTypes, type);
+    }
+
+    /**
+     * Marks the orbit type codes whose value equals {@code type}, ignoring case.
+     *
+     * @param type the orbit type, e.g. "LEO"
+     * @return a flag per orbit type code
+     */
+    public boolean[] orbitTypeCodes(String type) {
+        return codesIgnoringCase(orbitTypes, type);
+    }
+
+    /**
+     * Marks the country codes whose value equals {@code country}, ignoring case.
+     *
+     * @param country the country, e.g. "US"
+     * @return a flag per country code
+     */
+    public boolean[] countryCodes(String country) {
+        return codesIgnoringCase(countries, country);
+    }
+
+    /**
+     * Offers the rows in {@code [from, to)} to a top-K heap, scored by a ranking metric,
+     * skipping empty rows. The score of each row is the same as {@link RankingMetric#score}
+     * of its object.
+     *
+     * @param metric the score to rank by
+     * @param from   first row, inclusive
+     * @param to     last row, exclusive
+     * @param heap   receives the rows
+     */
+    public void offerTop(RankingMetric metric, int from, int to, TopKHeap heap) {
+        for (int row = from; row < to; ) {
+            Segment segment = segments[row >>> SEGMENT_SHIFT];
+            int end = Math.min(to, (row | SEGMENT_MASK) + 1);
+            int base = row & ~SEGMENT_MASK;
+            switch (metric) {
+                case DRIFT:
+                    for (; row < end; row++) {
+                        int i = row - base;
+                        if (!segment.empty[i]) heap.offer(Math.abs(segment.longitude[i] - segment.avgLongitude[i]), row);
+                    }
+                    break;
+                case CONJUNCTION_COUNT:
+                    for (; row < end; row++) {
+                        int i = row - base;
+                        if (!segment.empty[i]) heap.offer(segment.conjunctionCount[i], row);
+                    }
+                    break;
+                default:
+                    for (; row < end; row++) {
+                        int i = row - base;
+                        if (!segment.empty[i]) heap.offer(segment.deltaV90Day[i], row);
+                    }
+            }
+        }
+    }
+
+    /**
+     * Marks every code whose value equals {@code value} ignoring case.
+     */
+    private static boolean[] codesIgnoringCase(StringDictionary dictionary, String value) {
+        boolean[] wanted = new boolean[dictionary.size()];
+        for (int code = 0; code < wanted.length && value != null; code++) {
+            wanted[code] = dictionary.decode(code).equalsIgnoreCase(value);
+        }
+        return wanted;
+    }
+
+    /** Makes a segment safe to change, copying it if a copy of this catalog may share it. */
+    private Segment writable(int segment) {
+        if (segmentEpochs[segment] != epoch) {
+            segments[segment] = new Segment(segments[segment]);
+            segmentEpochs[segment] = epoch;
+        }
+        return segments[segment];
+    }
+
+    /**
+     * The columns of 4096 consecutive rows.
+     */
+    private static final class Segment {
+        final double[] longitude;
+        final double[] avgLongitude;
+        final double[] deltaV90Day;
+        final int[] daysOld;
+        final int[] conjunctionCount;
+        final int[] launchYear;
+        final int[] orbitType;
+        final int[] objectType;
+        final int[] country;
+        /** Whether each row is empty. */
+        final boolean[] empty;
+
+        Segment() {
+            longitude = new double[SEGMENT_SIZE];
+            avgLongitude = new double[SEGMENT_SIZE];
+            deltaV90Day = new double[SEGMENT_SIZE];
+            daysOld = new int[SEGMENT_SIZE];
+            conjunctionCount = new int[SEGMENT_SIZE];
+            launchYear = new int[SEGMENT_SIZE];
+            orbitType = new int[SEGMENT_SIZE];
+            objectType = new int[SEGMENT_SIZE];
+            country = new int[SEGMENT_SIZE];
+            empty = new boolean[SEGMENT_SIZE];
+        }
+
+        Segment(Segment other) {
+            longitude = other.longitude.clone();
+            avgLongitude = other.avgLongitude.clone();
+            deltaV90Day = other.deltaV90Day.clone();
+            daysOld = other.daysOld.clone();
+            conjunctionCount = other.conjunctionCount.clone();
+            launchYear = other.launchYear.clone();
+            orbitType = other.orbitType.clone();
+            objectType = other.objectType.clone();
+            country = other.country.clone();
+            empty = other.empty.clone();
+        }
+    }
+}
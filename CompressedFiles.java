@@ -0,0 +1,177 @@
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The {@code CompressedFiles} class opens catalog files that may be gzip-compressed, so
+ * readers and writers handle compressed and plain files alike.
+ *
+ * <p>Files are compressed on write when their name ends in {@code .gz}, and decompressed on
+ * read when they start with the gzip magic bytes, whatever their name. Decompression runs
+ * on its own thread, a few blocks ahead of the reader, so parsing and inflating overlap
+ * instead of taking turns. Only the JDK's {@code java.util.zip} is used.</p>
+ */
+public class CompressedFiles {
+    /** Suffix of the files written compressed. */
+    public static final String GZIP_SUFFIX = ".gz";
+
+    /** Bytes inflated per block handed from the decompression thread to the reader. */
+    private static final int BLOCK_SIZE = 256 * 1024;
+
+    /** Blocks in flight; the decompression thread waits when the reader is this far behind. */
+    private static final int BLOCKS = 4;
+
+    private static final int GZIP_MAGIC = 0x8b1f;
+
+    /**
+     * Tells whether a file starts with the gzip magic bytes.
+     *
+     * @param filename path of the file
+     * @return whether the file is gzip-compressed
+     * @throws IOException if the file cannot be read
+     */
+    public static boolean isCompressed(String filename) throws IOException {
+        try (InputStream in = Files.newInputStream(Paths.get(filename))) {
+            int first = in.read();
+            int second = in.read();
+            return second >= 0 && (first | second << 8) == GZIP_MAGIC;
+        }
+    }
+
+    /**
+     * Opens a file for reading its contents, decompressed if it is gzip-compressed.
+     *
+     * @param filename path of the file
+     * @return the contents; close it when done
+     * @throws IOException if the file cannot be opened
+     */
+    public static InputStream openInput(String filename) throws IOException {
+        InputStream in = Files.newInputStream(Paths.get(filename));
+        if (!isCompressed(filename)) return in;
+        try {
+            return new PipelinedInputStream(new GZIPInputStream(in, 1 << 16), filename);
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Creates or replaces a file and opens it for writing, gzip-compressed if its name ends
+     * in {@link #GZIP_SUFFIX}.
+     *
+     * @param filename path of the file
+     * @return the channel to write through; closing it finishes the file
+     * @throws IOException if the file cannot be opened
+     */
+    public static WritableByteChannel openOutput(String filename) throws IOException {
+        if (filename.endsWith(GZIP_SUFFIX)) {
+            return Channels.newChannel(new GZIPOutputStream(new FileOutputStream(filename), 1 << 16));
+        }
+        return FileChannel.open(Paths.get(filename),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    }
+
+    /** A block of inflated bytes; a negative length marks the end of the stream. */
+    private static final class Block {
+        final byte[] data = new byte[BLOCK_SIZE];
+        int length;
+    }
+
+    /**
+     * Reads a stream on a background thread into a fixed ring of blocks, which the reader
+     * drains and hands back. No allocation happens once the blocks exist.
+     */
+    private static final class PipelinedInputStream extends InputStream {
+        // One spare slot, for the end marker added on failure
+        private final BlockingQueue<Block> filled = new ArrayBlockingQueue<>(BLOCKS + 1);
+        private final BlockingQueue<Block> free = new ArrayBlockingQueue<>(BLOCKS);
+        private final Thread producer;
+        private volatile IOException failure;
+        private Block current;
+        private int position;
+
+        PipelinedInputStream(InputStream source, String filename) {
+            for (int i = 0; i < BLOCKS; i++) free.add(new Block());
+            producer = new Thread(() -> fill(source), "decompress " + filename);
+            producer.setDaemon(true);
+            producer.start();
+        }
+
+        /** Runs on the producer thread until the source ends, fails, or this stream is closed. */
+        private void fill(InputStream source) {
+            try (InputStream in = source) {
+                while (true) {
+                    Block block = free.take();
+                    int length = in.readNBytes(block.data, 0, BLOCK_SIZE);
+                    block.length = length == 0 ? -1 : length;
+                    filled.put(block);
+                    if (length == 0) return;
+                }
+            } catch (InterruptedException e) {
+                // Closed by the reader
+            } catch (IOException e) {
+                failure = e;
+                Block end = free.poll();
+                if (end == null) end = new Block();
+                end.length = -1;
+                filled.offer(end);
+            }
+        }
+
+        /** @return whether a block with unread bytes is current */
+        private boolean advance() throws IOException {
+            if (current != null && position < current.length) return true;
+            if (current != null && current.length < 0) return false;
+            if (current != null) free.add(current);
+            try {
+                current = filled.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while decompressing");
+            }
+            position = 0;
+            if (current.length < 0) {
+                if (failure != null) throw failure;
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return advance() ? current.data[position++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            if (!advance()) return -1;
+            int n = Math.min(len, current.length - position);
+            System.arraycopy(current.data, position, b, off, n);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return current == null || current.length < 0 ? 0 : current.length - position;
+        }
+
+        @Override
+        public void close() {
+            producer.interrupt();
+        }
+    }
+}
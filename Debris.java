@@ -49,6 +49,7 @@ public class Debris extends SpaceObject implements Analyzable {
      * @param conjunctionCount the new conjunction count
      */
     public void setConjunctionCount(int conjunctionCount) {
+        if (this.conjunctionCount != conjunctionCount) markDirty();
         this.conjunctionCount = conjunctionCount;
     }
 
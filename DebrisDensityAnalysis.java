@@ -9,21 +9,40 @@ public class DebrisDensityAnalysis {
     /**
      * Generates and prints a report of the number of space objects in each orbit type.
      *
-     * <p>This method iterates through a list of {@link SpaceObject} instances, groups them
-     * by their {@code orbitType}, and prints the count of objects in each orbit category.</p>
+     * <p>This method iterates once through the {@link SpaceObject} instances, totals them
+     * in a {@link RollupCube}, and prints the count of objects in each orbit category.
+     * Only the totals are kept, so a {@link CSVReader.ObjectStream} can be passed to report
+     * on a file of any size. A large random-access list is totalled in parallel ranges.</p>
      *
-     * @param objects the list of space objects to analyze
+     * @param objects the space objects to analyze
      */
-    public void generateReport(List<SpaceObject> objects) {
-        System.out.println("Generating debris density report...");
-
-        // Group by orbit type
-        Map<String, Integer> densityMap = new HashMap<>();
-        for (SpaceObject obj : objects) {
-            densityMap.put(obj.orbitType, densityMap.getOrDefault(obj.orbitType, 0) + 1);
+    public void generateReport(Iterable<? extends SpaceObject> objects) {
+        RollupCube cube;
+        if (objects instanceof List && objects instanceof RandomAccess) {
+            // A large list is totalled in parallel ranges whose cubes merge in list order
+            List<? extends SpaceObject> list = (List<? extends SpaceObject>) objects;
+            cube = ParallelScan.reduce(ParallelScan.Scan.DENSITY_ANALYSIS, list.size(),
+                    (from, to) -> RollupCube.build(list.subList(from, to)), RollupCube::merge);
+        } else {
+            cube = RollupCube.build(objects);
         }
+        printReport(cube.groupBy(RollupCube.Dimension.ORBIT_TYPE));
+    }
+
+    /**
+     * Generates and prints the same report for the objects tracked by a system, from the
+     * totals it maintains, without reading any objects.
+     *
+     * @param system the tracking system to analyze
+     */
+    public void generateReport(TrackingSystem system) {
+        printReport(system.rollup(RollupCube.Dimension.ORBIT_TYPE));
+    }
 
-        // Output results
-        densityMap.forEach((k, v) -> System.out.println(k + ": " + v + " objects"));
+    private static void printReport(List<RollupCube.Group> byOrbitType) {
+        System.out.println("Generating debris density report...");
+        for (RollupCube.Group group : byOrbitType) {
+            System.out.println(group.getKeys().get(0) + ": " + group.getCount() + " objects");
+        }
     }
 }
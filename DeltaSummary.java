@@ -0,0 +1,77 @@
+/**
+ * The {@code DeltaSummary} class counts what an incremental delta file changed:
+ * objects inserted, objects updated in place, objects deleted, and deletions that
+ * named an object which was not tracked.
+ */
+public class DeltaSummary {
+    private final IngestSummary ingest;
+    private long inserted;
+    private long updated;
+    private long deleted;
+    private long missing;
+
+    /**
+     * Creates an empty summary.
+     *
+     * @param ingest the statistics of reading the delta file
+     */
+    public DeltaSummary(IngestSummary ingest) {
+        this.ingest = ingest;
+    }
+
+    /**
+     * Records an upsert.
+     *
+     * @param replaced {@code true} if an existing object was replaced
+     */
+    public void recordUpsert(boolean replaced) {
+        if (replaced) updated++;
+        else inserted++;
+    }
+
+    /**
+     * Records a deletion.
+     *
+     * @param found {@code true} if the object was tracked and has been removed
+     */
+    public void recordDelete(boolean found) {
+        if (found) deleted++;
+        else missing++;
+    }
+
+    /** @return the statistics of reading the delta file */
+    public IngestSummary getIngestSummary() {
+        return ingest;
+    }
+
+    /** @return the number of objects that were not tracked before */
+    public long getInserted() {
+        return inserted;
+    }
+
+    /** @return the number of tracked objects replaced in place */
+    public long getUpdated() {
+        return updated;
+    }
+
+    /** @return the number of tracked objects removed */
+    public long getDeleted() {
+        return deleted;
+    }
+
+    /** @return the number of deletions naming an object that was not tracked */
+    public long getMissing() {
+        return missing;
+    }
+
+    /**
+     * Returns a one-line report of the changes followed by the ingest statistics.
+     *
+     * @return the summary text
+     */
+    @Override
+    public String toString() {
+        return String.format("Delta: %,d inserted, %,d updated, %,d deleted, %,d deletions not found. %s",
+                inserted, updated, deleted, missing, ingest);
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ * The {@code FieldErrorCounter} class counts malformed values per CSV column during ingest.
+ *
+ * <p>Recording an error is a single array increment, so a feed full of bad numbers costs
+ * no more than a clean one. The counts are reported once, after the file has been read.</p>
+ */
+public class FieldErrorCounter {
+    private final String[] columnNames;
+    private final long[] counts;
+    private long total;
+
+    /**
+     * Creates a counter for a file with the given header.
+     *
+     * @param columnNames the header fields, in file order
+     */
+    public FieldErrorCounter(String[] columnNames) {
+        this.columnNames = columnNames.clone();
+        this.counts = new long[columnNames.length];
+    }
+
+    /**
+     * Records one malformed value.
+     *
+     * @param column zero-based index of the column holding the value
+     */
+    public void record(int column) {
+        counts[column]++;
+        total++;
+    }
+
+    /**
+     * Adds the counts of another counter for the same header to this one.
+     *
+     * @param other the counter to merge in
+     */
+    public void merge(FieldErrorCounter other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+    }
+
+    /** @return the total number of malformed values recorded */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Returns the number of malformed values recorded for a column.
+     *
+     * @param column zero-based column index
+     * @return the error count for that column
+     */
+    public long getCount(int column) {
+        return counts[column];
+    }
+
+    /**
+     * Returns the non-zero counts as {@code name: count} pairs, e.g. {@code longitude: 3, days_old: 1}.
+     *
+     * @return a one-line summary of the recorded errors
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) continue;
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(columnNames[i].trim()).append(": ").append(counts[i]);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,435 @@
+import java.util.*;
+
+/**
+ * The {@code GeoGridIndex} class is a spatial index over the coordinates held in each
+ * object's {@code geohash} field, which in RSO exports is a {@code "lat,lon"} pair in degrees.
+ *
+ * <p>Points are bucketed into one-degree latitude/longitude cells. Each distinct point gets a
+ * number, and the index is a {@link SortedEntryList} of rows keyed by cell, then point, so
+ * within a cell the objects at the same coordinates (typically those launched from one site)
+ * form a single run and each distinct point costs one distance calculation however many
+ * objects share it. A radius query visits only the cells that can hold a point within the
+ * radius, wrapping across the antimeridian and widening to full longitude circles near the
+ * poles. Distances are great-circle distances on a spherical Earth.</p>
+ *
+ * <p>Objects whose geohash is missing or not a coordinate pair are not indexed.
+ * {@link #copy()} shares the entries and the point coordinates, so a catalog version can
+ * derive its index from the previous version's by adding and removing just the changed
+ * rows.</p>
+ */
+public class GeoGridIndex {
+    /** Mean Earth radius in kilometres. */
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+
+    private static final int LAT_CELLS = 180;
+    private static final int LON_CELLS = 360;
+
+    private static final int POINT_SHIFT = 10;
+    private static final int POINT_SEGMENT = 1 << POINT_SHIFT;
+    private static final int POINT_MASK = POINT_SEGMENT - 1;
+
+    /** Rows keyed by {@code cell << 32 | point}. */
+    private final SortedEntryList entries;
+    /** Coordinates of each point, in segments of {@link #POINT_SEGMENT}. */
+    private double[][] latitudes;
+    private double[][] longitudes;
+    private int pointCount;
+
+    /** Incremented by every copy; a segment may be shared unless it was copied in this epoch. */
+    private int epoch;
+    /** Epoch in which each point segment was created or last copied. */
+    private int[] segmentEpochs;
+
+    private GeoGridIndex() {
+        entries = new SortedEntryList();
+        latitudes = new double[4][];
+        longitudes = new double[4][];
+        segmentEpochs = new int[4];
+    }
+
+    private GeoGridIndex(GeoGridIndex other) {
+        entries = other.entries.copy();
+        latitudes = other.latitudes.clone();
+        longitudes = other.longitudes.clone();
+        pointCount = other.pointCount;
+        // Every point segment starts out shared with the original
+        segmentEpochs = new int[other.segmentEpochs.length];
+        epoch = 1;
+    }
+
+    private GeoGridIndex(SortedEntryList entries, double[][] latitudes, double[][] longitudes, int pointCount) {
+        this.entries = entries;
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        this.pointCount = pointCount;
+        segmentEpochs = new int[latitudes.length];
+    }
+
+    /**
+     * Builds the index over a list of objects; the position of each object is its row.
+     * {@code null} entries are skipped.
+     *
+     * @param objects the objects to index
+     * @return the index
+     */
+    public static GeoGridIndex build(List<SpaceObject> objects) {
+        // Give each distinct geohash a point number, and key each object by cell and point
+        Map<String, Integer> pointsByHash = new HashMap<>();
+        List<double[]> points = new ArrayList<>();
+        int n = objects.size();
+        long[] keys = new long[n];
+        int[] rows = new int[n];
+        int count = 0;
+        for (int row = 0; row < n; row++) {
+            SpaceObject obj = objects.get(row);
+            if (obj == null) continue;
+            Integer point = pointsByHash.get(obj.getGeoHash());
+            if (point == null) {
+                double[] coordinates = parse(obj.getGeoHash());
+                point = coordinates == null ? -1 : points.size();
+                if (coordinates != null) points.add(coordinates);
+                pointsByHash.put(obj.getGeoHash(), point);
+            }
+            if (point < 0) continue;
+            double[] coordinates = points.get(point);
+            keys[count] = key(cellOf(coordinates[0], coordinates[1]), point);
+            rows[count++] = row;
+        }
+
+        int segments = Math.max(4, (points.size() + POINT_SEGMENT - 1) >>> POINT_SHIFT);
+        double[][] latitudes = new double[segments][];
+        double[][] longitudes = new double[segments][];
+        for (int p = 0; p < points.size(); p++) {
+            if ((p & POINT_MASK) == 0) {
+                latitudes[p >>> POINT_SHIFT] = new double[POINT_SEGMENT];
+                longitudes[p >>> POINT_SHIFT] = new double[POINT_SEGMENT];
+            }
+            latitudes[p >>> POINT_SHIFT][p & POINT_MASK] = points.get(p)[0];
+            longitudes[p >>> POINT_SHIFT][p & POINT_MASK] = points.get(p)[1];
+        }
+        return new GeoGridIndex(SortedEntryList.build(keys, rows, count), latitudes, longitudes, points.size());
+    }
+
+    /**
+     * Returns a copy that shares this index's entries and points until either index next
+     * changes them. Costs O((rows + points) / 1024).
+     *
+     * @return the copy
+     */
+    public GeoGridIndex copy() {
+        GeoGridIndex copy = new GeoGridIndex(this);
+        epoch++;
+        return copy;
+    }
+
+    /**
+     * Adds a row at the coordinates of a geohash; a geohash that is not a coordinate pair is
+     * ignored.
+     *
+     * @param geoHash the row's geohash
+     * @param row     the row number
+     */
+    public void add(String geoHash, int row) {
+        double[] coordinates = parse(geoHash);
+        if (coordinates == null) return;
+        int cell = cellOf(coordinates[0], coordinates[1]);
+        int point = findPoint(cell, coordinates[0], coordinates[1]);
+        if (point < 0) point = addPoint(coordinates[0], coordinates[1]);
+        entries.insert(key(cell, point), row);
+    }
+
+    /**
+     * Removes a row.
+     *
+     * @param geoHash the geohash the row was added with
+     * @param row     the row number
+     */
+    public void remove(String geoHash, int row) {
+        double[] coordinates = parse(geoHash);
+        if (coordinates == null) return;
+        int cell = cellOf(coordinates[0], coordinates[1]);
+        // Several points may share the coordinates; the row is under one of them
+        for (int position = entries.lowerBound(key(cell, 0)); position < entries.lowerBound(key(cell + 1, 0)); ) {
+            long key = entries.key(position);
+            int point = (int) key;
+            if (latitude(point) == coordinates[0] && longitude(point) == coordinates[1] && entries.remove(key, row)) return;
+            position = entries.upperBound(key);
+        }
+    }
+
+    /** @return the number of indexed rows */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Finds the rows within a great-circle distance of a point.
+     *
+     * @param latitude  the point's latitude in degrees
+     * @param longitude the point's longitude in degrees
+     * @param radiusKm  the search radius in kilometres
+     * @return the matching rows in ascending order
+     */
+    public int[] withinRadius(double latitude, double longitude, double radiusKm) {
+        Nearest all = new Nearest(Integer.MAX_VALUE);
+        search(latitude, longitude, radiusKm, all);
+        int[] result = Arrays.copyOf(all.rows, all.size);
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Finds the {@code k} rows nearest to a point. The search radius starts small and
+     * doubles until it holds {@code k} points, so only the cells around the point are read.
+     *
+     * @param latitude  the point's latitude in degrees
+     * @param longitude the point's longitude in degrees
+     * @param k         the number of rows wanted
+     * @return up to {@code k} rows, nearest first; ties are broken by row
+     */
+    public int[] nearest(double latitude, double longitude, int k) {
+        if (k <= 0 || entries.size() == 0) return new int[0];
+        double halfCircumference = Math.PI * EARTH_RADIUS_KM;
+        for (double radius = 50; ; radius *= 2) {
+            Nearest best = new Nearest(k);
+            int found = search(latitude, longitude, Math.min(radius, halfCircumference), best);
+            if (found >= k || radius >= halfCircumference) return best.sorted();
+        }
+    }
+
+    /**
+     * Great-circle distance between two points.
+     *
+     * @param lat1 latitude of the first point in degrees
+     * @param lon1 longitude of the first point in degrees
+     * @param lat2 latitude of the second point in degrees
+     * @param lon2 longitude of the second point in degrees
+     * @return the distance in kilometres
+     */
+    public static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+
+    /**
+     * Parses a {@code "lat,lon"} geohash field.
+     *
+     * @param geoHash the field value
+     * @return latitude and longitude in degrees, or {@code null} if the value is not a valid pair
+     */
+    public static double[] parse(String geoHash) {
+        if (geoHash == null) return null;
+        int comma = geoHash.indexOf(',');
+        if (comma < 0) return null;
+        try {
+            double lat = Double.parseDouble(geoHash.substring(0, comma).trim());
+            double lon = Double.parseDouble(geoHash.substring(comma + 1).trim());
+            if (Math.abs(lat) > 90 || Math.abs(lon) > 180) return null;
+            return new double[] {lat, lon};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Offers every point within the radius to {@code out}.
+     *
+     * @return the number of points within the radius
+     */
+    private int search(double latitude, double longitude, double radiusKm, Nearest out) {
+        double angle = radiusKm / EARTH_RADIUS_KM;
+        double dLat = Math.toDegrees(angle);
+        double minLat = latitude - dLat;
+        double maxLat = latitude + dLat;
+
+        int firstLonCell = 0;
+        int lonCellCount = LON_CELLS;
+        if (minLat > -90 && maxLat < 90) {
+            // Widest longitude span of the circle, taken at the band edge nearest a pole
+            double cosLat = Math.cos(Math.toRadians(Math.max(Math.abs(minLat), Math.abs(maxLat))));
+            double sinSpan = Math.sin(angle) / cosLat;
+            if (sinSpan < 1) {
+                double dLon = Math.toDegrees(Math.asin(sinSpan));
+                int first = (int) Math.floor(longitude - dLon + 180);
+                int last = (int) Math.floor(longitude + dLon + 180);
+                firstLonCell = Math.floorMod(first, LON_CELLS);
+                lonCellCount = Math.min(LON_CELLS, last - first + 1);
+            }
+        }
+
+        int found = 0;
+        for (int latCell = latCell(minLat); latCell <= latCell(maxLat); latCell++) {
+            for (int i = 0; i < lonCellCount; i++) {
+                int cell = latCell * LON_CELLS + (firstLonCell + i) % LON_CELLS;
+                int end = entries.lowerBound(key(cell + 1, 0));
+                for (int position = entries.lowerBound(key(cell, 0)); position < end; ) {
+                    long key = entries.key(position);
+                    int runEnd = entries.upperBound(key);
+                    int point = (int) key;
+                    double distance = distanceKm(latitude, longitude, latitude(point), longitude(point));
+                    if (distance <= radiusKm) {
+                        // Rows of a run share a distance, so past the capacity only higher rows are left
+                        int[] rows = entries.rows(position, (int) Math.min(runEnd, (long) position + out.capacity));
+                        out.offer(distance, rows, 0, rows.length);
+                        found += runEnd - position;
+                    }
+                    position = runEnd;
+                }
+            }
+        }
+        return found;
+    }
+
+    /** The first point in a cell at exactly the given coordinates, or -1 if there is none. */
+    private int findPoint(int cell, double latitude, double longitude) {
+        int end = entries.lowerBound(key(cell + 1, 0));
+        for (int position = entries.lowerBound(key(cell, 0)); position < end; ) {
+            long key = entries.key(position);
+            int point = (int) key;
+            if (latitude(point) == latitude && longitude(point) == longitude) return point;
+            position = entries.upperBound(key);
+        }
+        return -1;
+    }
+
+    /** Numbers a new point, copying the last point segment first if a copy may share it. */
+    private int addPoint(double latitude, double longitude) {
+        int point = pointCount;
+        int segment = point >>> POINT_SHIFT;
+        if (segment == latitudes.length) {
+            latitudes = Arrays.copyOf(latitudes, segment * 2);
+            longitudes = Arrays.copyOf(longitudes, segment * 2);
+            segmentEpochs = Arrays.copyOf(segmentEpochs, segment * 2);
+        }
+        if (latitudes[segment] == null) {
+            latitudes[segment] = new double[POINT_SEGMENT];
+            longitudes[segment] = new double[POINT_SEGMENT];
+            segmentEpochs[segment] = epoch;
+        } else if (segmentEpochs[segment] != epoch) {
+            latitudes[segment] = latitudes[segment].clone();
+            longitudes[segment] = longitudes[segment].clone();
+            segmentEpochs[segment] = epoch;
+        }
+        latitudes[segment][point & POINT_MASK] = latitude;
+        longitudes[segment][point & POINT_MASK] = longitude;
+        pointCount++;
+        return point;
+    }
+
+    private double latitude(int point) {
+        return latitudes[point >>> POINT_SHIFT][point & POINT_MASK];
+    }
+
+    private double longitude(int point) {
+        return longitudes[point >>> POINT_SHIFT][point & POINT_MASK];
+    }
+
+    private static long key(int cell, int point) {
+        return (long) cell << 32 | point;
+    }
+
+    private static int cellOf(double latitude, double longitude) {
+        return latCell(latitude) * LON_CELLS + lonCell(longitude);
+    }
+
+    private static int latCell(double latitude) {
+        return Math.max(0, Math.min(LAT_CELLS - 1, (int) Math.floor(latitude + 90)));
+    }
+
+    private static int lonCell(double longitude) {
+        return Math.floorMod((int) Math.floor(longitude + 180), LON_CELLS);
+    }
+
+    /**
+     * Collects points by distance: all of them, or with a capacity, the nearest ones in a
+     * bounded max-heap whose root is the farthest point kept.
+     */
+    private static final class Nearest {
+        private final int capacity;
+        private double[] distances = new double[16];
+        private int[] rows = new int[16];
+        private int size;
+
+        Nearest(int capacity) {
+            this.capacity = capacity;
+        }
+
+        /**
+         * Offers rows {@code from} to {@code to} of {@code source}, all at one distance
+         * and in ascending order.
+         */
+        void offer(double distance, int[] source, int from, int to) {
+            for (int i = from; i < to; i++) {
+                int row = source[i];
+                if (size < capacity) {
+                    if (size == rows.length) {
+                        distances = Arrays.copyOf(distances, Math.max(size * 2, size + to - i));
+                        rows = Arrays.copyOf(rows, distances.length);
+                    }
+                    distances[size] = distance;
+                    rows[size] = row;
+                    if (capacity != Integer.MAX_VALUE) siftUp(size);
+                    size++;
+                } else if (farther(distances[0], rows[0], distance, row)) {
+                    distances[0] = distance;
+                    rows[0] = row;
+                    siftDown(0);
+                } else {
+                    return; // the remaining rows are at the same distance with higher row numbers
+                }
+            }
+        }
+
+        /** @return the kept rows, nearest first */
+        int[] sorted() {
+            int[] result = new int[size];
+            for (int i = size - 1; i >= 0; i--) {
+                result[i] = rows[0];
+                distances[0] = distances[i];
+                rows[0] = rows[i];
+                size = i;
+                siftDown(0);
+            }
+            return result;
+        }
+
+        /** Whether entry a sorts after entry b. */
+        private static boolean farther(double distanceA, int rowA, double distanceB, int rowB) {
+            return distanceA > distanceB || distanceA == distanceB && rowA > rowB;
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (!farther(distances[i], rows[i], distances[parent], rows[parent])) break;
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int largest = i;
+                int left = 2 * i + 1;
+                int right = left + 1;
+                if (left < size && farther(distances[left], rows[left], distances[largest], rows[largest])) largest = left;
+                if (right < size && farther(distances[right], rows[right], distances[largest], rows[largest])) largest = right;
+                if (largest == i) return;
+                swap(i, largest);
+                i = largest;
+            }
+        }
+
+        private void swap(int i, int j) {
+            double distance = distances[i];
+            distances[i] = distances[j];
+            distances[j] = distance;
+            int row = rows[i];
+            rows[i] = rows[j];
+            rows[j] = row;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/**
+ * The {@code IdIndex} class maps an ID, such as a catalog ID or record ID, to the last catalog
+ * row holding it, in {@link IntHashIndex} shards that catalog versions can share.
+ *
+ * <p>IDs are spread over the shards by hash. {@link #copy()} copies only the shard directory,
+ * and the first later change to a shared shard copies that shard, so a catalog version
+ * derives its index from the previous version's at a cost of one shard per changed row.
+ * The shard count is fixed when the index is created, sized for about 2048 IDs per shard;
+ * see {@link #suits(int)}.</p>
+ *
+ * <p>An ID held by several rows maps to the highest of them. Only the number of the other
+ * rows is kept, so removing the highest row of such an ID leaves the index unable to tell
+ * which row now holds it, and {@link #remove} reports that instead.</p>
+ */
+public class IdIndex {
+    private static final int SHARD_KEYS = 2048;
+
+    private final int shardBits;
+    /** Highest row of each ID, per shard. */
+    private final IntHashIndex[] rows;
+    /** Number of other rows of each ID held by more than one row, per shard. */
+    private final IntHashIndex[] others;
+
+    /** Incremented by every copy; a shard may be shared unless it was copied in this epoch. */
+    private int epoch;
+    /** Epoch in which each shard was created or last copied. */
+    private final int[] shardEpochs;
+
+    /**
+     * Creates an empty index.
+     *
+     * @param expectedSize the number of IDs the index is sized for
+     */
+    public IdIndex(int expectedSize) {
+        int bits = 0;
+        while (bits < 20 && (long) SHARD_KEYS << bits < expectedSize) bits++;
+        shardBits = bits;
+        rows = new IntHashIndex[1 << bits];
+        others = new IntHashIndex[1 << bits];
+        for (int shard = 0; shard < rows.length; shard++) {
+            rows[shard] = new IntHashIndex();
+            others[shard] = new IntHashIndex();
+        }
+        shardEpochs = new int[rows.length];
+    }
+
+    private IdIndex(IdIndex other) {
+        shardBits = other.shardBits;
+        rows = other.rows.clone();
+        others = other.others.clone();
+        // Every shard starts out shared with the original
+        shardEpochs = new int[rows.length];
+        epoch = 1;
+    }
+
+    /**
+     * Returns a copy that shares this index's shards until either index next changes them.
+     *
+     * @return the copy
+     */
+    public IdIndex copy() {
+        IdIndex copy = new IdIndex(this);
+        epoch++;
+        return copy;
+    }
+
+    /**
+     * Tells whether the shard count still suits an index of a given size, within a factor
+     * of four. A copied index keeps its shard count, so an index that has grown or shrunk
+     * well past it should be rebuilt instead.
+     *
+     * @param size the number of IDs
+     * @return whether the shards are sized for about that many IDs
+     */
+    public boolean suits(int size) {
+        long perShard = size >> shardBits;
+        return perShard <= SHARD_KEYS * 4L && (shardBits == 0 || perShard * 4 >= SHARD_KEYS);
+    }
+
+    /**
+     * Returns the row holding an ID.
+     *
+     * @param id the ID
+     * @return the highest row holding it, or {@link IntHashIndex#MISSING}
+     */
+    public int get(int id) {
+        return rows[shard(id)].get(id);
+    }
+
+    /**
+     * Records that a row holds an ID.
+     *
+     * @param id  the ID
+     * @param row the row; must not be negative
+     */
+    public void add(int id, int row) {
+        int shard = writable(shard(id));
+        int highest = rows[shard].get(id);
+        if (highest == IntHashIndex.MISSING) {
+            rows[shard].put(id, row);
+            return;
+        }
+        int count = others[shard].get(id);
+        others[shard].put(id, count == IntHashIndex.MISSING ? 1 : count + 1);
+        if (row > highest) rows[shard].put(id, row);
+    }
+
+    /**
+     * Records that a row no longer holds an ID.
+     *
+     * @param id  the ID
+     * @param row the row added with the ID
+     * @return {@code false} if the row was the highest of several holding the ID, so the
+     *         index can no longer answer for it and must not be used
+     */
+    public boolean remove(int id, int row) {
+        int shard = writable(shard(id));
+        int count = others[shard].get(id);
+        if (count == IntHashIndex.MISSING) {
+            rows[shard].remove(id);
+            return true;
+        }
+        if (rows[shard].get(id) == row) return false;
+        if (count == 1) others[shard].remove(id);
+        else others[shard].put(id, count - 1);
+        return true;
+    }
+
+    private int shard(int id) {
+        return shardBits == 0 ? 0 : IntHashIndex.hash(id) >>> (32 - shardBits);
+    }
+
+    /** Makes a shard safe to change, copying it if a copy of this index may share it. */
+    private int writable(int shard) {
+        if (shardEpochs[shard] != epoch) {
+            rows[shard] = new IntHashIndex(rows[shard]);
+            others[shard] = new IntHashIndex(others[shard]);
+            shardEpochs[shard] = epoch;
+        }
+        return shard;
+    }
+}
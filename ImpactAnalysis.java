@@ -1,33 +1,75 @@
 import java.util.List;
+import java.util.RandomAccess;
 
 public class ImpactAnalysis {
 
     /**
      * Analyzes the long-term impact of objects in Low Earth Orbit (LEO).
      * Specifically looks for objects with Days Old > 200 and Conjunction Count > 0.
+     * The objects are visited once, in order, so a {@link CSVReader.ObjectStream} can be
+     * passed to analyze a file without loading it into a {@link TrackingSystem}. A large
+     * random-access list is instead checked in parallel ranges, with the matches printed
+     * in list order.
      * 
-     * @param spaceObjects the list of space objects to analyze
+     * @param spaceObjects the space objects to analyze
      */
-    public void analyzeLongTermImpact(List<SpaceObject> spaceObjects) {
+    public void analyzeLongTermImpact(Iterable<? extends SpaceObject> spaceObjects) {
         System.out.println("Analyzing Long-Term Impact for LEO objects...");
         System.out.printf("%-10s %-25s %-12s %-12s %-15s %-10s %-20s%n",
             "RecordID", "Satellite Name", "Country", "Orbit Type", "Object Type", "Days Old", "Conjunction Count");
 
-        int count = 0; // Counter to track matches
-        for (SpaceObject obj : spaceObjects) {
+        Matches matches;
+        if (spaceObjects instanceof List && spaceObjects instanceof RandomAccess) {
+            List<? extends SpaceObject> list = (List<? extends SpaceObject>) spaceObjects;
+            matches = ParallelScan.reduce(ParallelScan.Scan.IMPACT_ANALYSIS, list.size(), (from, to) -> {
+                Matches range = new Matches();
+                for (int i = from; i < to; i++) {
+                    range.check(list.get(i));
+                }
+                return range;
+            }, Matches::append);
+        } else {
+            // Printed as found, so a stream of any size is analyzed in flat heap
+            matches = new Matches();
+            for (SpaceObject obj : spaceObjects) {
+                if (!matches.check(obj)) continue;
+                System.out.print(matches.lines);
+                matches.lines.setLength(0);
+            }
+        }
+
+        System.out.print(matches.lines);
+        if (matches.count == 0) {
+            System.out.println("No LEO objects found with Days Old > 200 and Conjunction Count > 0.");
+        }
+    }
+
+    /**
+     * The report lines of the matching objects in one run of objects.
+     */
+    private static final class Matches {
+        private final StringBuilder lines = new StringBuilder();
+        private int count; // Counter to track matches
+
+        /** Adds the object's line if it matches, and tells whether it did. */
+        boolean check(SpaceObject obj) {
             if (obj.getOrbitType().equalsIgnoreCase("LEO") &&
                 obj.getDaysOld() > 200 &&
                 obj.getConjunctionCount() > 0) {
 
                 count++;
-                System.out.printf("%-10s %-25s %-12s %-12s %-15s %-10d %-20d%n",
+                lines.append(String.format("%-10s %-25s %-12s %-12s %-15s %-10d %-20d%n",
                     obj.getRecordId(), obj.getSatelliteName(), obj.getCountry(),
-                    obj.getOrbitType(), obj.getObjectType(), obj.getDaysOld(), obj.getConjunctionCount());
+                    obj.getOrbitType(), obj.getObjectType(), obj.getDaysOld(), obj.getConjunctionCount()));
+                return true;
             }
+            return false;
         }
 
-        if (count == 0) {
-            System.out.println("No LEO objects found with Days Old > 200 and Conjunction Count > 0.");
+        Matches append(Matches next) {
+            lines.append(next.lines);
+            count += next.count;
+            return this;
         }
     }
 }
@@ -0,0 +1,76 @@
+/**
+ * The {@code IngestErrorPolicy} class decides what {@link CSVReader} does with a malformed row.
+ *
+ * <p>A row is malformed if its field count differs from the header, if it ends inside an
+ * open quoted field, or if it cannot be turned into a {@link SpaceObject}. Malformed numeric
+ * values inside an otherwise well-formed row are not row errors; they load as zero and are
+ * counted in the {@link IngestSummary}.</p>
+ *
+ * <ul>
+ *   <li>{@link #skipAndCount()} drops the row and counts it by reason (the default)</li>
+ *   <li>{@link #quarantine(String)} also copies the row to a side file through a buffered writer</li>
+ *   <li>{@link #failFast(long)} aborts the load with an {@link java.io.IOException} once a number of
+ *       rows have been rejected; objects loaded before that point stay in the tracking system</li>
+ * </ul>
+ */
+public class IngestErrorPolicy {
+
+    /** What happens to a malformed row. */
+    public enum Action { SKIP, QUARANTINE, FAIL_FAST }
+
+    private final Action action;
+    private final String quarantineFile;
+    private final long maxErrors;
+
+    private IngestErrorPolicy(Action action, String quarantineFile, long maxErrors) {
+        this.action = action;
+        this.quarantineFile = quarantineFile;
+        this.maxErrors = maxErrors;
+    }
+
+    /**
+     * Skips malformed rows and counts them by reason.
+     *
+     * @return the policy
+     */
+    public static IngestErrorPolicy skipAndCount() {
+        return new IngestErrorPolicy(Action.SKIP, null, Long.MAX_VALUE);
+    }
+
+    /**
+     * Skips malformed rows and writes them, below a copy of the header, to a side file.
+     * The file is only created if a malformed row is seen.
+     *
+     * @param quarantineFile path of the file receiving rejected rows; it is overwritten
+     * @return the policy
+     */
+    public static IngestErrorPolicy quarantine(String quarantineFile) {
+        return new IngestErrorPolicy(Action.QUARANTINE, quarantineFile, Long.MAX_VALUE);
+    }
+
+    /**
+     * Skips malformed rows until {@code maxErrors} have been seen, then aborts the load.
+     *
+     * @param maxErrors the number of malformed rows that aborts the load; at least 1
+     * @return the policy
+     */
+    public static IngestErrorPolicy failFast(long maxErrors) {
+        if (maxErrors < 1) throw new IllegalArgumentException("maxErrors must be at least 1");
+        return new IngestErrorPolicy(Action.FAIL_FAST, null, maxErrors);
+    }
+
+    /** @return what happens to a malformed row */
+    public Action getAction() {
+        return action;
+    }
+
+    /** @return the quarantine file, or {@code null} if rows are not quarantined */
+    public String getQuarantineFile() {
+        return quarantineFile;
+    }
+
+    /** @return the number of malformed rows that aborts the load */
+    public long getMaxErrors() {
+        return maxErrors;
+    }
+}
@@ -0,0 +1,151 @@
+/**
+ * The {@code IngestSummary} class holds the statistics of one CSV load: how many rows were
+ * read and loaded, how many were skipped and why, how many field values were malformed,
+ * and how long the load took.
+ */
+public class IngestSummary {
+
+    /** Why a row was rejected. */
+    public enum SkipReason {
+        FIELD_COUNT("wrong field count"),
+        UNTERMINATED_QUOTE("unterminated quote"),
+        DECODE_ERROR("decode error");
+
+        private final String label;
+
+        SkipReason(String label) {
+            this.label = label;
+        }
+
+        /** @return a short description for reports */
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private final String source;
+    private final FieldErrorCounter fieldErrors;
+    private final long[] skipped = new long[SkipReason.values().length];
+    private long rowsRead;
+    private long rowsLoaded;
+    private long elapsedNanos;
+
+    /**
+     * Creates an empty summary.
+     *
+     * @param source      the file being loaded
+     * @param fieldErrors the counter receiving malformed field values
+     */
+    public IngestSummary(String source, FieldErrorCounter fieldErrors) {
+        this.source = source;
+        this.fieldErrors = fieldErrors;
+    }
+
+    /** Records a row that was turned into a space object. */
+    public void recordLoaded() {
+        rowsRead++;
+        rowsLoaded++;
+    }
+
+    /**
+     * Records a rejected row.
+     *
+     * @param reason why the row was rejected
+     */
+    public void recordSkipped(SkipReason reason) {
+        rowsRead++;
+        skipped[reason.ordinal()]++;
+    }
+
+    /**
+     * Adds the counts of a summary for another part of the same file.
+     *
+     * @param other the summary to merge in
+     */
+    public void merge(IngestSummary other) {
+        rowsRead += other.rowsRead;
+        rowsLoaded += other.rowsLoaded;
+        for (int i = 0; i < skipped.length; i++) {
+            skipped[i] += other.skipped[i];
+        }
+        fieldErrors.merge(other.fieldErrors);
+    }
+
+    /**
+     * Sets the wall-clock duration of the load.
+     *
+     * @param elapsedNanos duration in nanoseconds
+     */
+    public void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /** @return the file that was loaded */
+    public String getSource() {
+        return source;
+    }
+
+    /** @return the number of non-blank data rows read */
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    /** @return the number of rows turned into space objects */
+    public long getRowsLoaded() {
+        return rowsLoaded;
+    }
+
+    /** @return the number of rejected rows */
+    public long getRowsSkipped() {
+        return rowsRead - rowsLoaded;
+    }
+
+    /**
+     * Returns the number of rows rejected for a reason.
+     *
+     * @param reason the reason to look up
+     * @return the count for that reason
+     */
+    public long getRowsSkipped(SkipReason reason) {
+        return skipped[reason.ordinal()];
+    }
+
+    /** @return the per-column counts of malformed values that were loaded as zero */
+    public FieldErrorCounter getFieldErrors() {
+        return fieldErrors;
+    }
+
+    /** @return rows read per second of wall-clock time */
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : rowsRead / (elapsedNanos / 1e9);
+    }
+
+    /**
+     * Returns a one-line report, for example
+     * {@code Loaded 98 of 98 rows from rso_metrics.csv in 0.04 s (2,450 rows/s), skipped 0}.
+     *
+     * @return the summary text
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Loaded %,d of %,d rows from %s in %.2f s (%,.0f rows/s), skipped %,d",
+                rowsLoaded, rowsRead, source, elapsedNanos / 1e9, getRowsPerSecond(), getRowsSkipped()));
+        if (getRowsSkipped() > 0) {
+            sb.append(" (");
+            boolean first = true;
+            for (SkipReason reason : SkipReason.values()) {
+                if (skipped[reason.ordinal()] == 0) continue;
+                if (!first) sb.append(", ");
+                sb.append(reason.getLabel()).append(": ").append(skipped[reason.ordinal()]);
+                first = false;
+            }
+            sb.append(")");
+        }
+        if (fieldErrors.getTotal() > 0) {
+            sb.append("; ").append(fieldErrors.getTotal()).append(" malformed values loaded as 0 (")
+                    .append(fieldErrors).append(")");
+        }
+        return sb.toString();
+    }
+}
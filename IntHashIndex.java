@@ -0,0 +1,135 @@
+import java.util.Arrays;
+
+/**
+ * The {@code IntHashIndex} class maps {@code int} keys to catalog slots (non-negative
+ * {@code int}s) in an open-addressing hash table, with no boxing of keys or values.
+ *
+ * <p>Keys and slots live in two parallel {@code int[]}s probed linearly, so a lookup is a
+ * couple of array reads instead of the {@code Integer} allocation and pointer chasing of a
+ * {@code HashMap<Integer, Integer>}. Removal shifts the following entries back, so the table
+ * never fills with deleted markers.</p>
+ */
+public class IntHashIndex {
+    /** Returned by {@link #get} for a missing key; also marks empty table entries. */
+    public static final int MISSING = -1;
+
+    private int[] keys;
+    private int[] slots;
+    private int size;
+
+    /** Creates an empty index. */
+    public IntHashIndex() {
+        keys = new int[16];
+        slots = new int[16];
+        Arrays.fill(slots, MISSING);
+    }
+
+    /**
+     * Creates a copy of another index.
+     *
+     * @param other the index to copy
+     */
+    public IntHashIndex(IntHashIndex other) {
+        keys = other.keys.clone();
+        slots = other.slots.clone();
+        size = other.size;
+    }
+
+    /**
+     * Returns the slot stored under a key.
+     *
+     * @param key the key
+     * @return the slot, or {@link #MISSING}
+     */
+    public int get(int key) {
+        int mask = keys.length - 1;
+        for (int i = hash(key) & mask; slots[i] != MISSING; i = (i + 1) & mask) {
+            if (keys[i] == key) return slots[i];
+        }
+        return MISSING;
+    }
+
+    /**
+     * Stores a slot under a key, replacing any previous slot.
+     *
+     * @param key  the key
+     * @param slot the slot; must not be negative
+     * @return the previous slot, or {@link #MISSING}
+     */
+    public int put(int key, int slot) {
+        if (slot < 0) throw new IllegalArgumentException("Slot must not be negative: " + slot);
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        for (; slots[i] != MISSING; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                int previous = slots[i];
+                slots[i] = slot;
+                return previous;
+            }
+        }
+        keys[i] = key;
+        slots[i] = slot;
+        if (++size * 4 > keys.length * 3) resize(keys.length * 2);
+        return MISSING;
+    }
+
+    /**
+     * Removes a key.
+     *
+     * @param key the key
+     * @return the slot that was stored, or {@link #MISSING}
+     */
+    public int remove(int key) {
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        while (slots[i] != MISSING && keys[i] != key) i = (i + 1) & mask;
+        if (slots[i] == MISSING) return MISSING;
+        int removed = slots[i];
+
+        // Shift back any later entry of the probe run that may no longer reach its slot
+        int gap = i;
+        for (int j = (gap + 1) & mask; slots[j] != MISSING; j = (j + 1) & mask) {
+            int home = hash(keys[j]) & mask;
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                slots[gap] = slots[j];
+                gap = j;
+            }
+        }
+        slots[gap] = MISSING;
+        size--;
+        return removed;
+    }
+
+    /** Removes every key. */
+    public void clear() {
+        Arrays.fill(slots, MISSING);
+        size = 0;
+    }
+
+    /** @return the number of keys */
+    public int size() {
+        return size;
+    }
+
+    static int hash(int key) {
+        int h = key * 0x9E3779B9; // Fibonacci hashing spreads sequential catalog IDs
+        return h ^ (h >>> 16);
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldSlots = slots;
+        keys = new int[capacity];
+        slots = new int[capacity];
+        Arrays.fill(slots, MISSING);
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldSlots[i] == MISSING) continue;
+            int j = hash(oldKeys[i]) & mask;
+            while (slots[j] != MISSING) j = (j + 1) & mask;
+            keys[j] = oldKeys[i];
+            slots[j] = oldSlots[i];
+        }
+    }
+}
@@ -1,14 +1,68 @@
 import static org.junit.jupiter.api.Assertions.*;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import org.junit.jupiter.api.Test;
 
 class JUnitTests {
 
     @Test
-    void testLoadDataFromCSV() {
-        assertDoesNotThrow(() -> {
-            RunSimulation.testableLoadDataFromCSV();
-        }, "Loading CSV data should not throw any exception");
+    void testLoadDataFromCSV() throws Exception {
+        Path directory = Files.createTempDirectory("rso_load");
+        Path catalog = directory.resolve("rso_metrics.csv");
+        Path snapshot = directory.resolve("rso_catalog.snapshot");
+        try {
+            Files.copy(Paths.get("rso_metrics_columns_jumbled.csv"), catalog);
+            TrackingSystem parsed = new TrackingSystem();
+            assertDoesNotThrow(() -> {
+                RunSimulation.testableLoadDataFromCSV(parsed, catalog.toString(), snapshot.toString());
+            }, "Loading CSV data should not throw any exception");
+            assertTrue(Files.isRegularFile(snapshot), "Parsing the CSV should save a snapshot beside it.");
+            int objects = parsed.getAllObjects().size();
+            assertTrue(objects > 0);
+
+            TrackingSystem restored = new TrackingSystem();
+            RunSimulation.testableLoadDataFromCSV(restored, catalog.toString(), snapshot.toString());
+            assertEquals(objects, restored.getAllObjects().size());
+
+            // Dropping the last row changes the CSV's fingerprint, so the snapshot is not used
+            List<String> lines = Files.readAllLines(catalog);
+            Files.write(catalog, lines.subList(0, lines.size() - 1));
+            TrackingSystem reparsed = new TrackingSystem();
+            RunSimulation.testableLoadDataFromCSV(reparsed, catalog.toString(), snapshot.toString());
+            assertEquals(objects - 1, reparsed.getAllObjects().size());
+            assertThrows(IOException.class, () -> CatalogSnapshotFile.read(snapshot.toString(), "another source"));
+        } finally {
+            Files.deleteIfExists(catalog);
+            Files.deleteIfExists(snapshot);
+            Files.delete(directory);
+        }
     }
 
     @Test
@@ -47,4 +101,1168 @@ class JUnitTests {
         double result = reader.getDouble(parts, columnIndex, "longitude");
         assertEquals(0.0, result, "getDouble should return 0.0 for invalid double data.");
     }
+
+    @Test
+    void testTokenizer_QuotedFieldsAndCRLF() throws Exception {
+        String csv = "\ufeffid,geohash,name\r\n1,\"62.925556,40.577778\",\"SL-14 \"\"R/B\"\"\"\r\n2,,plain\n";
+        CSVTokenizer tokenizer = new CSVTokenizer(new StringReader(csv));
+
+        assertTrue(tokenizer.nextRecord());
+        assertEquals("id", tokenizer.getField(0), "BOM should be dropped from the header.");
+        assertTrue(tokenizer.nextRecord());
+        assertEquals(3, tokenizer.getFieldCount());
+        assertEquals("62.925556,40.577778", tokenizer.getField(1));
+        assertEquals("SL-14 \"R/B\"", tokenizer.getField(2));
+        assertTrue(tokenizer.nextRecord());
+        assertEquals("", tokenizer.getField(1));
+        assertEquals("plain", tokenizer.getField(2));
+        assertFalse(tokenizer.nextRecord());
+    }
+
+    @Test
+    void testLoadObjectsParallel_MatchesSequentialOrder() throws Exception {
+        // Names with quoted line breaks, so chunk breaks fall inside quoted fields too
+        File csv = File.createTempFile("rso_chunks", ".csv");
+        List<String> lines = Files.readAllLines(Paths.get("rso_metrics_columns_jumbled.csv"));
+        StringBuilder text = new StringBuilder(lines.get(0)).append('\n');
+        int nameColumn = List.of(lines.get(0).replace("\ufeff", "").split(",")).indexOf("satellite_name");
+        for (int i = 1; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (i % 7 == 3) {
+                CSVTokenizer row = new CSVTokenizer(new StringReader(line));
+                row.nextRecord();
+                String[] fields = row.getFields();
+                fields[nameColumn] = fields[nameColumn] + "\n\"line\"\r\n" + i + "\n";
+                StringBuilder quoted = new StringBuilder();
+                for (String field : fields) quoted.append(quoted.length() == 0 ? "" : ",").append(CSVTokenizer.escape(field));
+                line = quoted.toString();
+            }
+            text.append(line).append(i % 5 == 0 ? "\r\n" : "\n");
+        }
+        Files.write(csv.toPath(), text.toString().getBytes(StandardCharsets.UTF_8));
+
+        try {
+            TrackingSystem sequential = new TrackingSystem();
+            CSVReader reader = new CSVReader();
+            IngestSummary expectedSummary = reader.loadObjects(csv.getPath(), sequential);
+            List<SpaceObject> expected = sequential.getAllObjects();
+            assertTrue(expected.get(2).getSatelliteName().contains("\n\"line\"\r\n"));
+
+            for (long chunkBytes : new long[] {0, 1, 2, 17, 64, 100, 333, 1000, 4096, text.length() / 2}) {
+                TrackingSystem parallel = new TrackingSystem();
+                reader.setChunkBytes(chunkBytes);
+                IngestSummary summary = reader.loadObjectsParallel(csv.getPath(), parallel);
+                assertEquals(expectedSummary.getRowsLoaded(), summary.getRowsLoaded(), "chunk bytes " + chunkBytes);
+                assertEquals(expectedSummary.getRowsSkipped(), summary.getRowsSkipped(), "chunk bytes " + chunkBytes);
+
+                List<SpaceObject> actual = parallel.getAllObjects();
+                assertEquals(expected.size(), actual.size(), "chunk bytes " + chunkBytes);
+                for (int i = 0; i < expected.size(); i++) {
+                    assertEquals(expected.get(i).getRecordId(), actual.get(i).getRecordId());
+                    assertEquals(expected.get(i).getSatelliteName(), actual.get(i).getSatelliteName());
+                    assertEquals(expected.get(i).getGeoHash(), actual.get(i).getGeoHash());
+                }
+            }
+        } finally {
+            csv.delete();
+        }
+    }
+
+    @Test
+    void testBindingPlan_JumbledHeaderAndOptionalColumns() throws Exception {
+        String csv = "object_type,HRR_Category,Record_ID,deltaV_90day,is_nominated,longitude\n"
+                + "ROCKET BODY,Red,42,1.5,TRUE,-70.5\n";
+        CSVTokenizer tokenizer = new CSVTokenizer(new StringReader(csv));
+        assertTrue(tokenizer.nextRecord());
+        CSVBindingPlan plan = CSVBindingPlan.compile(tokenizer.getFields());
+        assertTrue(tokenizer.nextRecord());
+
+        FieldErrorCounter errors = plan.newErrorCounter();
+        SpaceObject obj = plan.decode(tokenizer, errors, new StringInterner());
+        assertTrue(obj instanceof RocketBody);
+        assertEquals(42, obj.getRecordId());
+        assertEquals(-70.5, obj.getLongitude());
+        assertEquals("Red", obj.getHRRCategory());
+        assertEquals(1.5, obj.getDeltaV90Day());
+        assertTrue(obj.isNominated());
+        assertEquals(0, errors.getTotal());
+    }
+
+    @Test
+    void testTokenizer_NumericFieldsFromBuffer() throws Exception {
+        CSVTokenizer tokenizer = new CSVTokenizer(new StringReader("-70.94856912, 17390 ,abc,1e3,-2147483648,99999999999\n"));
+        assertTrue(tokenizer.nextRecord());
+
+        assertEquals(-70.94856912, tokenizer.parseDouble(0));
+        assertEquals(17390, tokenizer.parseInt(1));
+        assertFalse(tokenizer.lastParseFailed());
+        assertEquals(0.0, tokenizer.parseDouble(2));
+        assertTrue(tokenizer.lastParseFailed(), "Malformed values should be flagged, not thrown.");
+        assertEquals(1000.0, tokenizer.parseDouble(3));
+        assertEquals(Integer.MIN_VALUE, tokenizer.parseInt(4));
+        assertEquals(0, tokenizer.parseInt(5));
+        assertTrue(tokenizer.lastParseFailed(), "Out-of-range integers should be flagged.");
+
+        // Whatever Double.parseDouble and Integer.parseInt accept still parses
+        tokenizer = new CSVTokenizer(new StringReader("NaN,-Infinity,0x1p3,2.5d,1e400,\u0661\u0662,1.2.3\n"));
+        assertTrue(tokenizer.nextRecord());
+        assertTrue(Double.isNaN(tokenizer.parseDouble(0)));
+        assertEquals(Double.NEGATIVE_INFINITY, tokenizer.parseDouble(1));
+        assertEquals(8.0, tokenizer.parseDouble(2));
+        assertEquals(2.5, tokenizer.parseDouble(3));
+        assertEquals(Double.POSITIVE_INFINITY, tokenizer.parseDouble(4));
+        assertFalse(tokenizer.lastParseFailed());
+        assertEquals(12, tokenizer.parseInt(5));
+        assertFalse(tokenizer.lastParseFailed());
+        assertEquals(0.0, tokenizer.parseDouble(6));
+        assertTrue(tokenizer.lastParseFailed());
+    }
+
+    @Test
+    void testLoadObjects_ErrorPolicies() throws Exception {
+        File csv = File.createTempFile("rso_bad", ".csv");
+        File rejected = File.createTempFile("rso_rejected", ".csv");
+        csv.deleteOnExit();
+        rejected.deleteOnExit();
+        Files.writeString(csv.toPath(),
+                "record_id,object_type,longitude\n1,DEBRIS,10.5\n2,DEBRIS\n3,PAYLOAD,abc\n4,\"DEBRIS\n");
+
+        CSVReader reader = new CSVReader();
+        reader.setErrorPolicy(IngestErrorPolicy.quarantine(rejected.getPath()));
+        TrackingSystem system = new TrackingSystem();
+        IngestSummary summary = reader.loadObjects(csv.getPath(), system);
+
+        assertEquals(4, summary.getRowsRead());
+        assertEquals(2, summary.getRowsLoaded());
+        assertEquals(1, summary.getRowsSkipped(IngestSummary.SkipReason.FIELD_COUNT));
+        assertEquals(1, summary.getRowsSkipped(IngestSummary.SkipReason.UNTERMINATED_QUOTE));
+        assertEquals(1, summary.getFieldErrors().getTotal(), "Bad longitude should be counted, not fatal.");
+        CSVTokenizer quarantined = new CSVTokenizer(new StringReader(Files.readString(rejected.toPath())));
+        int records = 0;
+        while (quarantined.nextRecord()) records++;
+        assertEquals(3, records, "Header plus both rejected rows should be quarantined.");
+
+        reader.setErrorPolicy(IngestErrorPolicy.failFast(2));
+        assertThrows(IOException.class, () -> reader.loadObjects(csv.getPath(), new TrackingSystem()));
+    }
+
+    @Test
+    void testOpenObjects_StreamsWithoutTrackingSystem() throws Exception {
+        CSVReader reader = new CSVReader();
+        int streamed = 0;
+        try (CSVReader.ObjectStream objects = reader.openObjects("rso_metrics_columns_jumbled.csv")) {
+            for (SpaceObject obj : objects) {
+                assertNotNull(obj.getObjectType());
+                streamed++;
+            }
+            assertEquals(streamed, objects.getSummary().getRowsLoaded());
+        }
+
+        TrackingSystem system = new TrackingSystem();
+        reader.loadObjects("rso_metrics_columns_jumbled.csv", system);
+        assertEquals(system.getAllObjects().size(), streamed);
+    }
+
+    @Test
+    void testSnapshot_RoundTripsAllFields() throws Exception {
+        TrackingSystem original = new TrackingSystem();
+        new CSVReader().loadObjects("rso_metrics_columns_jumbled.csv", original);
+        SpaceObject first = original.getAllObjects().get(0);
+        first.setHRRCategory("Red");
+        first.setDeltaV90Day(2.25);
+        first.setRiskLevel("High");
+        first.setStillInOrbit(true);
+
+        File file = File.createTempFile("rso_catalog", ".snapshot");
+        file.deleteOnExit();
+        original.saveSnapshot(file.getPath());
+        TrackingSystem restored = new TrackingSystem();
+        restored.loadSnapshot(file.getPath());
+
+        List<SpaceObject> expected = original.getAllObjects();
+        List<SpaceObject> actual = restored.getAllObjects();
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getClass(), actual.get(i).getClass());
+            assertEquals(expected.get(i).getSummary(), actual.get(i).getSummary());
+            assertEquals(expected.get(i).getConjunctionCount(), actual.get(i).getConjunctionCount());
+            assertEquals(expected.get(i).getNoradId(), actual.get(i).getNoradId());
+        }
+        SpaceObject restoredFirst = actual.get(0);
+        assertEquals("Red", restoredFirst.getHRRCategory());
+        assertEquals(2.25, restoredFirst.getDeltaV90Day());
+        assertEquals("High", restoredFirst.getRiskLevel());
+        assertTrue(restoredFirst.isStillInOrbit());
+        assertFalse(new File(file.getPath() + ".tmp").exists(), "The temporary file is moved into place.");
+
+        // A torn or damaged snapshot is an IOException, so loading falls back to the CSV
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        File damaged = File.createTempFile("rso_catalog_damaged", ".snapshot");
+        damaged.deleteOnExit();
+        Random random = new Random(7);
+        try {
+            for (int length = 0; length < bytes.length; length += 1 + length / 50) {
+                Files.write(damaged.toPath(), Arrays.copyOf(bytes, length));
+                assertThrows(IOException.class, () -> CatalogSnapshotFile.read(damaged.getPath()), "truncated to " + length);
+            }
+            for (int trial = 0; trial < 200; trial++) {
+                byte[] corrupted = bytes.clone();
+                corrupted[12 + random.nextInt(corrupted.length - 12)] ^= (byte) (1 + random.nextInt(255));
+                Files.write(damaged.toPath(), corrupted);
+                try {
+                    CatalogSnapshotFile.read(damaged.getPath());
+                } catch (IOException e) {
+                    // Detected; a flipped value byte may also decode as a different value
+                }
+            }
+        } finally {
+            damaged.delete();
+        }
+    }
+
+    @Test
+    void testApplyDelta_UpsertsAndDeletesByNoradId() throws Exception {
+        File delta = File.createTempFile("rso_delta", ".csv");
+        delta.deleteOnExit();
+        Files.writeString(delta.toPath(),
+                "record_id,norad_cat_id,satellite_name,object_type,longitude,change_type\n"
+                + "10096,10096,SL-14 R/B,ROCKET BODY,12.5,UPDATE\n"
+                + "10436,10436,,DEBRIS,,DELETE\n"
+                + "99999,99999,NEW SAT,PAYLOAD,1.0,INSERT\n");
+
+        CSVReader reader = new CSVReader();
+        TrackingSystem system = new TrackingSystem();
+        reader.loadObjects("rso_metrics_columns_jumbled.csv", system);
+        int before = system.getAllObjects().size();
+
+        DeltaSummary summary = reader.applyDelta(delta.getPath(), system);
+        assertEquals(1, summary.getInserted());
+        assertEquals(1, summary.getUpdated());
+        assertEquals(1, summary.getDeleted());
+
+        List<SpaceObject> after = system.getAllObjects();
+        assertEquals(before, after.size());
+        assertEquals(10096, after.get(0).getNoradId(), "Updated object should keep its position.");
+        assertEquals(12.5, after.get(0).getLongitude());
+        assertTrue(after.stream().noneMatch(obj -> obj.getNoradId() == 10436));
+        assertEquals(99999, after.get(after.size() - 1).getNoradId());
+
+        // Applying the same delta again must not pile up duplicates
+        reader.applyDelta(delta.getPath(), system);
+        assertEquals(before, system.getAllObjects().size());
+    }
+
+    @Test
+    void testColumnarScans_MatchObjectScansAfterRemoveAndUpsert() throws Exception {
+        TrackingSystem system = new TrackingSystem();
+        new CSVReader().loadObjects("rso_metrics_columns_jumbled.csv", system);
+        List<SpaceObject> all = system.getAllObjects();
+        system.removeObject(TrackingSystem.catalogId(all.get(1)));
+        SpaceObject moved = SpaceObject.create(all.get(0).getRecordId(), all.get(0).getNoradId(), "MOVED",
+                "US", "LEO", "DEBRIS", 1990, "AFETR", 45.0, 120.0, "0,0", 9000, 3);
+        system.upsertObject(moved);
+        all = system.getAllObjects();
+
+        List<SpaceObject> debris = system.filterByType("debris");
+        assertEquals(all.stream().filter(obj -> obj.getObjectType().equalsIgnoreCase("debris")).count(), debris.size());
+        assertTrue(debris.contains(moved), "Upserted object should be scanned with its new values.");
+
+        ColumnarCatalog columns = new ColumnarCatalog();
+        for (SpaceObject obj : all) columns.add(obj);
+        ColumnarCatalog copy = columns.copy();
+        copy.set(0, null);
+        copy.add(moved);
+        assertTrue(columns.hasObject(0), "A copy's writes must not show in the original.");
+        assertFalse(copy.hasObject(0));
+        assertEquals(all.size(), columns.size());
+        assertEquals(45.0, copy.getLongitude(all.size()));
+
+        system.assessOrbitStatusAndExport();
+        assertEquals("High", moved.getRiskLevel());
+        assertTrue(moved.isStillInOrbit());
+
+        SpaceObject late = SpaceObject.create(900777, 900777, "LATE", "US", "LEO", "DEBRIS", 1990, "AFETR",
+                45.0, 120.0, "0,0", 9000, 3);
+        system.beginUpdate();
+        try {
+            system.addObject(late);
+            system.assessOrbitStatusAndExport();
+        } finally {
+            system.endUpdate();
+        }
+        assertEquals("High", late.getRiskLevel(), "An assessment inside a batch should see the batch's writes.");
+
+        SpaceObject revived = SpaceObject.create(900778, 900778, "REVIVED", "US", "LEO", "DEBRIS", 1990, "AFETR",
+                45.0, 50.0, "0,0", 9000, 0);
+        system.addObject(revived);
+        revived.setConjunctionCount(5);
+        system.assessOrbitStatusAndExport();
+        assertTrue(revived.isStillInOrbit(), "Assessment should read counts set after the object was added.");
+        assertEquals(1, system.query().where(obj -> obj == revived && obj.getConjunctionCount() == 5).count());
+        new File("assessed_debris.csv").delete();
+        new File("exited_debris_report.txt").delete();
+    }
+
+    @Test
+    void testStringInterner_SharesLowCardinalityFields() throws Exception {
+        StringInterner interner = new StringInterner();
+        char[] chars = "xLEOxLEO".toCharArray();
+        String first = interner.intern(chars, 1, 4);
+        assertEquals("LEO", first);
+        assertSame(first, interner.intern(chars, 5, 8));
+        assertSame(first, interner.intern(new String("LEO")));
+
+        TrackingSystem system = new TrackingSystem();
+        new CSVReader().loadObjects("rso_metrics.csv", system);
+        Map<String, String> firstSeen = new HashMap<>();
+        for (SpaceObject obj : system.getAllObjects()) {
+            String country = firstSeen.computeIfAbsent(obj.getCountry(), c -> c);
+            assertSame(country, obj.getCountry(), "Equal countries should be one instance.");
+        }
+        assertTrue(firstSeen.size() < system.getAllObjects().size());
+    }
+
+    @Test
+    void testCategoryIndexes_FollowAddRemoveAndUpsert() throws Exception {
+        TrackingSystem system = new TrackingSystem();
+        new CSVReader().loadObjects("rso_metrics.csv", system);
+        List<SpaceObject> all = system.getAllObjects();
+        long debrisCount = all.stream().filter(obj -> obj.getObjectType().equalsIgnoreCase("Debris")).count();
+        assertEquals(debrisCount, system.filterByType("DEBRIS").size());
+
+        SpaceObject debris = system.filterByType("debris").get(0);
+        system.removeObject(TrackingSystem.catalogId(debris));
+        assertFalse(system.filterByType("debris").contains(debris));
+        assertEquals(debrisCount - 1, system.filterByType("debris").size());
+
+        // Re-adding the same catalog ID as a payload moves it between type indexes
+        SpaceObject payload = SpaceObject.create(debris.getRecordId(), debris.getNoradId(), "REFILED",
+                "US", "GEO", "PAYLOAD", 2001, "AFETR", 10.0, 10.0, "0,0", 100, 0);
+        system.upsertObject(payload);
+        SpaceObject replacement = SpaceObject.create(debris.getRecordId(), debris.getNoradId(), "REFILED",
+                "US", "LEO", "DEBRIS", 2001, "AFETR", 10.0, 10.0, "0,0", 100, 1);
+        system.upsertObject(replacement);
+        assertFalse(system.filterByType("payload").contains(payload));
+        assertTrue(system.filterByType("debris").contains(replacement));
+
+        List<SpaceObject> ordered = system.filterByType("debris");
+        List<SpaceObject> expected = new ArrayList<>();
+        for (SpaceObject obj : system.getAllObjects()) {
+            if (obj.getObjectType().equalsIgnoreCase("debris")) expected.add(obj);
+        }
+        assertEquals(expected, ordered, "Index results should be in catalog order.");
+    }
+
+    @Test
+    void testLongitudeIndex_RangesWrapAndBandSweeps() throws Exception {
+        TrackingSystem system = new TrackingSystem();
+        new CSVReader().loadObjects("rso_metrics.csv", system);
+        List<SpaceObject> all = system.getAllObjects();
+
+        assertEquals(all.stream().filter(obj -> obj.getLongitude() >= -20 && obj.getLongitude() <= 80).count(),
+                system.countInLongitudeRange(-20, 80));
+        assertEquals(all.stream().filter(obj -> obj.getLongitude() >= 100 || obj.getLongitude() <= -100).count(),
+                system.countInLongitudeRange(100, -100), "A reversed range should wrap across the antimeridian.");
+
+        double[] edges = new double[37];
+        for (int i = 0; i < edges.length; i++) edges[i] = -180 + 10 * i;
+        int[] bands = system.countByLongitudeBands(edges);
+        int total = 0;
+        for (int i = 0; i < bands.length; i++) {
+            double low = edges[i];
+            double high = edges[i + 1];
+            boolean last = i == bands.length - 1;
+            long expected = all.stream().filter(obj -> obj.getLongitude() >= low
+                    && (obj.getLongitude() < high || last && obj.getLongitude() == high)).count();
+            assertEquals(expected, bands[i], "Band starting at " + low);
+            total += bands[i];
+        }
+        assertEquals(system.countInLongitudeRange(-180, 180), total);
+
+        // The streaming report wraps a reversed range the same way
+        ByteArrayOutputStream indexed = new ByteArrayOutputStream();
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+        PrintStream console = System.out;
+        try {
+            System.setOut(new PrintStream(indexed, true));
+            system.generateDensityReport(100, -100);
+            System.setOut(new PrintStream(streamed, true));
+            TrackingSystem.generateDensityReport(all, 100, -100);
+        } finally {
+            System.setOut(console);
+        }
+        assertEquals(indexed.toString(), streamed.toString());
+        assertTrue(indexed.toString().contains("Total objects in range: " + system.countInLongitudeRange(100, -100)));
+
+        // The index is rebuilt after the catalog changes
+        system.removeObject(TrackingSystem.catalogId(all.get(0)));
+        assertEquals(all.stream().skip(1).filter(obj -> obj.getLongitude() >= -180).count(),
+                system.countInLongitudeRange(-180, 180));
+    }
+
+    @Test
+    void testGeoGridIndex_RadiusAndNearestMatchBruteForce() throws Exception {
+        TrackingSystem system = new TrackingSystem();
+        new CSVReader().loadObjects("rso_metrics.csv", system);
+        system.addObject(SpaceObject.create(1, 900001, "EAST", "US", "LEO", "DEBRIS", 2000, "X", 0, 0, "10.0,179.9", 10, 1));
+        system.addObject(SpaceObject.create(2, 900002, "WEST", "US", "LEO", "DEBRIS", 2000, "X", 0, 0, "10.0,-179.9", 10, 1));
+        system.addObject(SpaceObject.create(3, 900003, "NO FIX", "US", "LEO", "DEBRIS", 2000, "X", 0, 0, "", 10, 1));
+        List<SpaceObject> all = system.getAllObjects();
+
+        // Vandenberg, with a radius that also reaches the objects at other California sites
+        double lat = 34.742221;
+        double lon = -120.57243;
+        List<SpaceObject> expected = new ArrayList<>();
+        for (SpaceObject obj : all) {
+            double[] point = GeoGridIndex.parse(obj.getGeoHash());
+            if (point != null && GeoGridIndex.distanceKm(lat, lon, point[0], point[1]) <= 500) expected.add(obj);
+        }
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, system.findWithinRadius(lat, lon, 500));
+
+        List<SpaceObject> acrossAntimeridian = system.findWithinRadius(10.0, 180.0, 50);
+        assertEquals(2, acrossAntimeridian.size());
+
+        List<SpaceObject> nearest = system.findNearest(10.0, -179.95, 2);
+        assertEquals("WEST", nearest.get(0).getSatelliteName());
+        assertEquals("EAST", nearest.get(1).getSatelliteName());
+
+        List<SpaceObject> five = system.findNearest(0, 0, 5);
+        assertEquals(5, five.size());
+        double farthest = 0;
+        for (SpaceObject obj : five) {
+            double[] point = GeoGridIndex.parse(obj.getGeoHash());
+            double distance = GeoGridIndex.distanceKm(0, 0, point[0], point[1]);
+            assertTrue(distance >= farthest, "Nearest objects should come nearest first.");
+            farthest = distance;
+        }
+        for (SpaceObject obj : all) {
+            double[] point = GeoGridIndex.parse(obj.getGeoHash());
+            if (point != null && !five.contains(obj)) {
+                assertTrue(GeoGridIndex.distanceKm(0, 0, point[0], point[1]) >= farthest);
+            }
+        }
+    }
+
+    @Test
+    void testIdLookups_NoradAndRecordIdsAndPrimitiveIndex() throws Exception {
+        IntHashIndex index = new IntHashIndex();
+        Map<Integer, Integer> reference = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(2000) - 1000;
+            if (random.nextInt(3) == 0) {
+                Integer expected = reference.remove(key);
+                assertEquals(expected == null ? IntHashIndex.MISSING : expected, index.remove(key));
+            } else {
+                Integer expected = reference.put(key, i);
+                assertEquals(expected == null ? IntHashIndex.MISSING : expected, index.put(key, i));
+            }
+        }
+        assertEquals(reference.size(), index.size());
+        for (int key = -1000; key < 1000; key++) {
+            assertEquals(reference.getOrDefault(key, IntHashIndex.MISSING), index.get(key));
+        }
+
+        TrackingSystem system = new TrackingSystem();
+        new CSVReader().loadObjects("rso_metrics.csv", system);
+        List<SpaceObject> all = system.getAllObjects();
+        SpaceObject first = all.get(0);
+        assertSame(first, system.findByNoradId(first.getNoradId()));
+        assertSame(first, system.findByRecordId(first.getRecordId()));
+        assertNull(system.findByNoradId(0));
+
+        List<SpaceObject> batch = system.findByNoradIds(new int[] {all.get(2).getNoradId(), -5, first.getNoradId()});
+        assertSame(all.get(2), batch.get(0));
+        assertNull(batch.get(1));
+        assertSame(first, batch.get(2));
+
+        system.removeObject(TrackingSystem.catalogId(first));
+        assertNull(system.findByNoradId(first.getNoradId()));
+        assertNull(system.findByRecordId(first.getRecordId()));
+        assertSame(all.get(5), system.findByRecordIds(new int[] {all.get(5).getRecordId()}).get(0),
+                "Lookups should survive compaction.");
+
+        // An object without a NORAD ID must not share a key with one whose NORAD ID is its record ID
+        TrackingSystem collisions = new TrackingSystem();
+        SpaceObject unnumbered = SpaceObject.create(25544, 0, "UNNUMBERED", "US", "LEO", "DEBRIS", 2000, "X", 1, 1, "0,0", 10, 1);
+        SpaceObject station = SpaceObject.create(7, 25544, "STATION", "US", "LEO", "PAYLOAD", 1998, "X", 1, 1, "0,0", 10, 1);
+        collisions.addObject(unnumbered);
+        collisions.addObject(station);
+        assertTrue(collisions.upsertObject(SpaceObject.create(25544, 0, "RENAMED", "US", "LEO", "DEBRIS", 2000, "X", 1, 1, "0,0", 10, 1)));
+        assertSame(station, collisions.findByNoradId(25544));
+        assertEquals("RENAMED", collisions.findByRecordId(25544).getSatelliteName());
+        assertTrue(collisions.removeObject(TrackingSystem.catalogId(unnumbered)));
+        assertEquals(List.of(station), collisions.getAllObjects());
+    }
+
+    @Test
+    void testQuery_CombinesIndexedColumnAndObjectPredicates() throws Exception {
+        TrackingSystem system = new TrackingSystem();
+        new CSVReader().loadObjects("rso_metrics.csv", system);
+        List<SpaceObject> all = system.getAllObjects();
+
+        Predicate<SpaceObject> expected = obj -> obj.getOrbitType().equalsIgnoreCase("leo")
+                && obj.getDaysOld() > 200 && obj.getConjunctionCount() > 0;
+        List<SpaceObject> matches = system.query()
+                .orbitType("leo")
+                .daysOld(201, Integer.MAX_VALUE)
+                .conjunctionCount(1, Integer.MAX_VALUE)
+                .list();
+        assertEquals(all.stream().filter(expected).collect(Collectors.toList()), matches);
+
+        // With the longitude index built, a narrow range drives the query instead of a scan
+        system.countInLongitudeRange(0, 0);
+        Comparator<SpaceObject> byAge = Comparator.comparingInt(SpaceObject::getDaysOld).reversed();
+        List<Integer> oldestDebrisAges = system.query()
+                .objectType("Debris")
+                .longitude(-90, 90)
+                .where(obj -> obj.getSatelliteName().contains("DEB"))
+                .orderBy(byAge)
+                .limit(3)
+                .select(SpaceObject::getDaysOld);
+        List<Integer> bruteForce = all.stream()
+                .filter(obj -> obj.getObjectType().equalsIgnoreCase("Debris"))
+                .filter(obj -> obj.getLongitude() >= -90 && obj.getLongitude() <= 90)
+                .filter(obj -> obj.getSatelliteName().contains("DEB"))
+                .sorted(byAge).limit(3)
+                .map(SpaceObject::getDaysOld).collect(Collectors.toList());
+        assertFalse(bruteForce.isEmpty());
+        assertEquals(bruteForce, oldestDebrisAges);
+
+        assertEquals(all.stream().filter(obj -> obj.getLongitude() >= 150 || obj.getLongitude() <= -150).count(),
+                system.query().longitude(150, -150).count());
+        assertEquals(2, system.query().limit(2).count());
+        assertEquals(0, system.query().country("NOWHERE").count());
+
+        // The long-term impact analysis sees conjunction counts set after the load
+        SpaceObject quiet = all.stream()
+                .filter(obj -> obj.getOrbitType().equalsIgnoreCase("leo") && obj.getDaysOld() > 200)
+                .findFirst().get();
+        Supplier<String> impact = () -> {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            PrintStream console = System.out;
+            System.setOut(new PrintStream(out, true));
+            try {
+                system.analyzeLongTermImpact();
+            } finally {
+                System.setOut(console);
+            }
+            return out.toString();
+        };
+        String line = String.format("%-10s %-25s", quiet.getRecordId(), quiet.getSatelliteName());
+        quiet.setConjunctionCount(0);
+        assertFalse(impact.get().contains(line));
+        quiet.setConjunctionCount(3);
+        assertTrue(impact.get().contains(line));
+    }
+
+    @Test
+    void testGetAllObjects_SnapshotIsStableAndReadOnly() throws Exception {
+        TrackingSystem system = new TrackingSystem();
+        new CSVReader().loadObjects("rso_metrics.csv", system);
+        List<SpaceObject> snapshot = system.getAllObjects();
+        List<SpaceObject> copy = new ArrayList<>(snapshot);
+
+        SpaceObject first = snapshot.get(0);
+        system.upsertObject(SpaceObject.create(first.getRecordId(), first.getNoradId(), "REPLACED",
+                "US", "LEO", "DEBRIS", 2000, "X", 1.0, 1.0, "0,0", 10, 1));
+        system.removeObject(TrackingSystem.catalogId(snapshot.get(1)));
+        for (int i = 0; i < 5000; i++) {
+            system.addObject(SpaceObject.create(500000 + i, 500000 + i, "NEW", "US", "LEO", "DEBRIS",
+                    2000, "X", 1.0, 1.0, "0,0", 10, 1));
+        }
+
+        assertEquals(copy, snapshot, "A snapshot should not see later changes.");
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.add(first));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.set(0, first));
+
+        List<SpaceObject> current = system.getAllObjects();
+        assertEquals(copy.size() - 1 + 5000, current.size());
+        assertEquals("REPLACED", current.get(0).getSatelliteName());
+    }
+
+    @Test
+    void testConcurrentReaders_SeeConsistentVersionsDuringBulkLoad() throws Exception {
+        List<String> lines = Files.readAllLines(Paths.get("rso_metrics.csv"));
+        Path bulk = Files.createTempFile("rso_metrics_bulk", ".csv");
+        try (BufferedWriter out = Files.newBufferedWriter(bulk)) {
+            out.write(lines.get(0));
+            out.newLine();
+            for (int copy = 0; copy < 500; copy++) {
+                for (String line : lines.subList(1, lines.size())) {
+                    if (line.isEmpty()) continue;
+                    out.write(line);
+                    out.newLine();
+                }
+            }
+        }
+
+        TrackingSystem system = new TrackingSystem();
+        new CSVReader().loadObjects(bulk.toString(), system);
+        int initialSize = system.getAllObjects().size();
+        int initialDebris = system.filterByType("DEBRIS").size();
+        int noradId = system.getAllObjects().get(0).getNoradId();
+
+        AtomicBoolean loading = new AtomicBoolean();
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicLong readsDuringLoad = new AtomicLong();
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+
+        Thread[] readers = new Thread[3];
+        for (int t = 0; t < readers.length; t++) {
+            readers[t] = new Thread(() -> {
+                try {
+                    while (!stop.get()) {
+                        boolean duringLoad = loading.get();
+                        int size = system.getAllObjects().size();
+                        if (size != initialSize && size != 2 * initialSize) throw new AssertionError("Saw part of a load: " + size);
+                        List<SpaceObject> debris = system.filterByType("DEBRIS");
+                        if (debris.size() != initialDebris && debris.size() != 2 * initialDebris) {
+                            throw new AssertionError("Saw part of a load: " + debris.size() + " debris");
+                        }
+                        for (SpaceObject obj : debris) {
+                            if (!obj.getObjectType().equalsIgnoreCase("DEBRIS")) throw new AssertionError("Wrong type " + obj.getObjectType());
+                        }
+                        if (system.findByNoradId(noradId).getNoradId() != noradId) throw new AssertionError("Lost object " + noradId);
+                        if (duringLoad) readsDuringLoad.incrementAndGet();
+                    }
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            });
+            readers[t].start();
+        }
+
+        // Throughput is measured by PerformanceBenchmark's readers mode; this checks consistency
+        try {
+            loading.set(true);
+            new CSVReader().loadObjects(bulk.toString(), system);
+            stop.set(true);
+            for (Thread reader : readers) reader.join();
+
+            assertTrue(failures.isEmpty(), () -> "Reader failed: " + failures.peek());
+            assertEquals(2 * initialSize, system.getAllObjects().size());
+            assertTrue(readsDuringLoad.get() > 0, "Readers should not be blocked by the writer.");
+        } finally {
+            stop.set(true);
+            Files.delete(bulk);
+        }
+    }
+
+    @Test
+    void testTopRanked_MatchesFullSortAndFollowsUpserts() throws Exception {
+        TrackingSystem system = new TrackingSystem();
+        Random random = new Random(18);
+        system.beginUpdate();
+        try {
+            for (int i = 1; i <= 140000; i++) {
+                SpaceObject obj = SpaceObject.create(i, i, "OBJ" + i, "US", "LEO", "DEBRIS", 2000, "X",
+                        random.nextInt(360) - 180, random.nextInt(360) - 180, "0,0", 10, random.nextInt(50));
+                obj.setDeltaV90Day(random.nextInt(1000) / 10.0);
+                system.addObject(obj);
+            }
+        } finally {
+            system.endUpdate();
+        }
+
+        for (RankingMetric metric : RankingMetric.values()) {
+            assertEquals(sortedTop(system, metric, 100), system.topRanked(metric, 100), metric + " ranking");
+            assertEquals(sortedTop(system, metric, 10), system.topRanked(metric, 10), metric + " ranking prefix");
+        }
+
+        // Appends and upserts of unranked objects carry the rankings forward
+        SpaceObject leader = SpaceObject.create(200000, 200000, "LEADER", "US", "LEO", "DEBRIS", 2000, "X",
+                179.0, -179.0, "0,0", 10, 1000);
+        leader.setDeltaV90Day(5000.0);
+        system.addObject(leader);
+        SpaceObject unranked = system.getAllObjects().get(0);
+        SpaceObject bumped = SpaceObject.create(unranked.getRecordId(), unranked.getNoradId(), "BUMPED", "US", "LEO",
+                "DEBRIS", 2000, "X", 0.0, 0.0, "0,0", 10, 999);
+        system.upsertObject(bumped);
+        for (RankingMetric metric : RankingMetric.values()) {
+            assertEquals(sortedTop(system, metric, 100), system.topRanked(metric, 100), metric + " after upsert");
+        }
+        assertSame(leader, system.topRanked(RankingMetric.DELTA_V_90_DAY, 1).get(0));
+        assertSame(bumped, system.topRanked(RankingMetric.CONJUNCTION_COUNT, 2).get(1));
+
+        // Demoting a ranked object and removing one force a fresh ranking
+        system.upsertObject(SpaceObject.create(200000, 200000, "DEMOTED", "US", "LEO", "DEBRIS", 2000, "X",
+                0.0, 0.0, "0,0", 10, 0));
+        system.removeObject(TrackingSystem.catalogId(bumped));
+        for (RankingMetric metric : RankingMetric.values()) {
+            assertEquals(sortedTop(system, metric, 100), system.topRanked(metric, 100), metric + " after demotion");
+        }
+
+        TopKHeap heap = new TopKHeap(3);
+        for (int row : new int[] {5, 1, 4, 2, 3}) heap.offer(1.0, row);
+        assertArrayEquals(new int[] {1, 2, 3}, heap.rows(), "Equal scores should rank by row.");
+    }
+
+    @Test
+    void testCatalogVersion_CarriedIndexesMatchRebuiltOnes() {
+        Random random = new Random(17);
+        SegmentedObjectList slots = new SegmentedObjectList();
+        for (int i = 0; i < 9000; i++) slots.add(randomObject(random, i));
+        RollupCube rollup = new RollupCube();
+        CatalogVersion first = new CatalogVersion(slots.snapshot(), rollup.snapshot());
+        String firstAnswers = describe(first);
+
+        CatalogVersion version = first;
+        for (int round = 0; round < 5; round++) {
+            int[] changed = new int[300];
+            for (int i = 0; i < changed.length; i++) {
+                int slot = random.nextInt(slots.size() + 50);
+                if (slot >= slots.size()) {
+                    slot = slots.size();
+                    slots.add(randomObject(random, 9000 + slot));
+                } else if (random.nextInt(3) == 0) {
+                    slots.set(slot, null);
+                } else {
+                    // Record IDs repeat, so the ID indexes sometimes have to be rebuilt
+                    slots.set(slot, randomObject(random, random.nextInt(9000)));
+                }
+                changed[i] = slot;
+            }
+            CatalogVersion next = new CatalogVersion(slots.snapshot(), rollup.snapshot());
+            next.carry(version, changed, changed.length);
+            CatalogVersion rebuilt = new CatalogVersion(slots.snapshot(), rollup.snapshot());
+            assertEquals(describe(rebuilt), describe(next), "Round " + round);
+            version = next;
+        }
+        assertEquals(firstAnswers, describe(first), "Carrying must not change an earlier version.");
+    }
+
+    private static SpaceObject randomObject(Random random, int id) {
+        String[] types = {"DEBRIS", "PAYLOAD", "ROCKET BODY"};
+        String[] orbits = {"LEO", "MEO", "GEO"};
+        String geoHash = random.nextInt(10) == 0 ? "" : (random.nextInt(40) - 20) + "," + (random.nextInt(80) - 40);
+        return SpaceObject.create(id, id + 1, "OBJ" + id, "US", orbits[random.nextInt(3)], types[random.nextInt(3)],
+                2000, "X", random.nextInt(360) - 180, random.nextInt(360) - 180, geoHash, 10, random.nextInt(20));
+    }
+
+    /** The answers of every index of a version, building any not yet built. */
+    private static String describe(CatalogVersion version) {
+        StringBuilder out = new StringBuilder();
+        ColumnarCatalog columns = version.columns();
+        boolean[] leo = columns.orbitTypeCodes("LEO");
+        for (int row = 0; row < columns.size(); row++) {
+            out.append(columns.hasObject(row) ? columns.getLongitude(row) + "/" + columns.getConjunctionCount(row)
+                    + "/" + leo[columns.getOrbitTypeCode(row)] : "-").append(' ');
+        }
+        for (String type : new String[] {"debris", "payload", "rocket body"}) {
+            out.append('\n').append(Arrays.toString(version.typeIndex().rows(type)));
+        }
+        for (String orbit : new String[] {"leo", "meo", "geo"}) {
+            out.append('\n').append(Arrays.toString(version.orbitIndex().rows(orbit)));
+        }
+        out.append('\n');
+        for (int id = 0; id < 10000; id++) {
+            out.append(version.rowsByCatalogId().get(id)).append(',').append(version.rowsByRecordId().get(id)).append(' ');
+        }
+        out.append('\n').append(Arrays.toString(version.longitudeIndex().rows(-50, 50)));
+        out.append('\n').append(Arrays.toString(version.longitudeIndex().countBands(new double[] {-180, -90, 0, 90, 180})));
+        out.append('\n').append(Arrays.toString(version.geoIndex().withinRadius(0, 0, 1500)));
+        out.append('\n').append(Arrays.toString(version.geoIndex().nearest(5, 5, 20)));
+        for (RankingMetric metric : RankingMetric.values()) {
+            out.append('\n').append(Arrays.toString(version.top(metric, 50)));
+        }
+        return out.toString();
+    }
+
+    /** The top {@code k} objects by a full stable sort of the catalog. */
+    private static List<SpaceObject> sortedTop(TrackingSystem system, RankingMetric metric, int k) {
+        List<SpaceObject> all = new ArrayList<>(system.getAllObjects());
+        all.sort(Comparator.comparingDouble(metric::score).reversed());
+        return all.subList(0, k);
+    }
+
+    @Test
+    void testRollup_GroupByMatchesObjectScanAcrossWrites() throws Exception {
+        TrackingSystem system = new TrackingSystem();
+        new CSVReader().loadObjects("rso_metrics.csv", system);
+        // Enough new countries and years to grow every dimension of the cube
+        for (int i = 0; i < 300; i++) {
+            system.addObject(SpaceObject.create(900000 + i, 900000 + i, "GROW", "C" + (i % 40), i % 2 == 0 ? "LEO" : null,
+                    "DEBRIS", 1900 + i % 90, "X", 1.0, 1.0, "0,0", i, 1));
+        }
+        List<SpaceObject> first = system.getAllObjects();
+        system.upsertObject(SpaceObject.create(first.get(0).getRecordId(), first.get(0).getNoradId(), "MOVED", "ZZ",
+                "GEO", "PAYLOAD", 1957, "X", 1.0, 1.0, "0,0", 7, 1));
+        system.removeObject(TrackingSystem.catalogId(first.get(1)));
+        system.removeObject(900005);
+
+        RollupCube.Dimension[][] groupings = {
+                {},
+                {RollupCube.Dimension.ORBIT_TYPE},
+                {RollupCube.Dimension.LAUNCH_YEAR, RollupCube.Dimension.COUNTRY},
+                {RollupCube.Dimension.COUNTRY, RollupCube.Dimension.ORBIT_TYPE,
+                        RollupCube.Dimension.OBJECT_TYPE, RollupCube.Dimension.LAUNCH_YEAR}};
+        for (RollupCube.Dimension[] dimensions : groupings) {
+            Map<List<Object>, long[]> expected = new HashMap<>();
+            for (SpaceObject obj : system.getAllObjects()) {
+                List<Object> keys = new ArrayList<>();
+                for (RollupCube.Dimension dimension : dimensions) {
+                    switch (dimension) {
+                        case COUNTRY: keys.add(obj.getCountry()); break;
+                        case ORBIT_TYPE: keys.add(obj.getOrbitType()); break;
+                        case OBJECT_TYPE: keys.add(obj.getObjectType()); break;
+                        default: keys.add(obj.getLaunchYear());
+                    }
+                }
+                long[] totals = expected.computeIfAbsent(keys, k -> new long[2]);
+                totals[0]++;
+                totals[1] += obj.getDaysOld();
+            }
+            Map<List<Object>, long[]> actual = new HashMap<>();
+            for (RollupCube.Group group : system.rollup(dimensions)) {
+                assertNull(actual.put(group.getKeys(), new long[] {group.getCount(), group.getDaysOldSum()}),
+                        "Each group should appear once.");
+            }
+            assertEquals(expected.keySet(), actual.keySet(), Arrays.toString(dimensions));
+            for (List<Object> keys : expected.keySet()) {
+                assertArrayEquals(expected.get(keys), actual.get(keys), keys.toString());
+            }
+        }
+
+        // A published cube is read-only and does not see later writes
+        RollupCube published = RollupCube.build(system.getAllObjects());
+        RollupCube snapshot = published.snapshot();
+        published.add(first.get(2));
+        assertEquals(system.getAllObjects().size(), snapshot.count());
+        assertEquals(system.getAllObjects().size() + 1, published.count());
+        assertThrows(IllegalStateException.class, () -> snapshot.add(first.get(2)));
+    }
+
+    @Test
+    void testParallelScans_MatchSequentialOutputAndOrder() throws Exception {
+        TrackingSystem system = new TrackingSystem();
+        CSVReader reader = new CSVReader();
+        for (int copy = 0; copy < 20; copy++) {
+            reader.loadObjects("rso_metrics.csv", system);
+        }
+        Supplier<String> scans = () -> {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            PrintStream console = System.out;
+            System.setOut(new PrintStream(out, true));
+            try {
+                system.assessOrbitStatusAndExport();
+                system.generateDensityReport(-180, 180);
+                system.analyzeLongTermImpact();
+                new ImpactAnalysis().analyzeLongTermImpact(system.getAllObjects());
+                new DebrisDensityAnalysis().generateReport(system.getAllObjects());
+                System.out.println(system.filterByType("DEBRIS"));
+                System.out.println(system.query().country("US").list());
+                System.out.println(system.query().daysOld(0, 5000).count());
+                System.out.println(system.query().where(obj -> obj.getLaunchYear() > 1990)
+                        .orderBy(Comparator.comparingInt(SpaceObject::getDaysOld)).limit(25).list());
+                System.out.println(system.topRanked(RankingMetric.DRIFT, 30));
+                return out.toString() + new String(Files.readAllBytes(Paths.get("assessed_debris.csv")))
+                        + new String(Files.readAllBytes(Paths.get("exited_debris_report.txt")));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                System.setOut(console);
+            }
+        };
+
+        try {
+            for (ParallelScan.Scan scan : ParallelScan.Scan.values()) ParallelScan.setThreshold(scan, Integer.MAX_VALUE);
+            String sequential = scans.get();
+            // A fresh version, so rankings are not reused from the sequential run
+            system.upsertObject(system.getAllObjects().get(0));
+            for (ParallelScan.Scan scan : ParallelScan.Scan.values()) ParallelScan.setThreshold(scan, 7);
+            String parallel = scans.get();
+            assertEquals(sequential, parallel, "Parallel scans should give the sequential output, in order.");
+            assertTrue(sequential.contains("Total objects in range: " + system.getAllObjects().size()));
+        } finally {
+            for (ParallelScan.Scan scan : ParallelScan.Scan.values()) ParallelScan.setThreshold(scan, ParallelScan.DEFAULT_THRESHOLD);
+            new File("assessed_debris.csv").delete();
+            new File("exited_debris_report.txt").delete();
+        }
+    }
+
+    @Test
+    void testCSVWriter_FormatsLikeStringsAndReportReloads() throws Exception {
+        // Fields written from the byte buffer read back as the String forms the report used before
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        double[] doubles = {0.0, -0.0, 5.0, -73.8, 0.1 + 0.2, 1e-3, 9.99e-4, 1234567.125, 1e7, -2.5e-9, Double.NaN};
+        String[] strings = {"plain", "12.5,-45.25", "say \"hi\"", "line\nbreak", "Zürich \u2603 \ud83d\ude80", "", null};
+        try (CSVWriter writer = new CSVWriter(Channels.newChannel(bytes))) {
+            for (double value : doubles) writer.writeField(value);
+            writer.endRecord();
+            for (String value : strings) writer.writeField(value);
+            writer.endRecord();
+            writer.writeField(Integer.MIN_VALUE);
+            writer.writeField(Long.MAX_VALUE);
+            writer.writeField(0);
+            writer.endRecord();
+            // Longer than the buffer, so it is flushed partway through the field
+            writer.writeField("x,".repeat(700_000));
+            writer.endRecord();
+        }
+        String[] lines = bytes.toString("UTF-8").split("\n");
+        StringBuilder expected = new StringBuilder();
+        for (double value : doubles) expected.append(expected.length() == 0 ? "" : ",").append(value);
+        assertEquals(expected.toString(), lines[0]);
+        expected.setLength(0);
+        for (String value : strings) expected.append(expected.length() == 0 ? "" : ",").append(CSVTokenizer.escape(value));
+        assertEquals(expected.toString(), lines[1] + "\n" + lines[2]);
+        assertEquals(Integer.MIN_VALUE + "," + Long.MAX_VALUE + ",0", lines[3]);
+        assertEquals(CSVTokenizer.escape("x,".repeat(700_000)), lines[4]);
+
+        // The report reloads to the same objects
+        TrackingSystem system = new TrackingSystem();
+        new CSVReader().loadObjects("rso_metrics.csv", system);
+        File report = File.createTempFile("updated_debris_report", ".csv");
+        try {
+            ReportWriter.writeUpdatedReport(system.getAllObjects(), report.getPath());
+            TrackingSystem reloaded = new TrackingSystem();
+            new CSVReader().loadObjects(report.getPath(), reloaded);
+            assertEquals(system.getAllObjects().size(), reloaded.getAllObjects().size());
+            for (int i = 0; i < system.getAllObjects().size(); i++) {
+                SpaceObject before = system.getAllObjects().get(i);
+                SpaceObject after = reloaded.getAllObjects().get(i);
+                assertEquals(before.getSatelliteName(), after.getSatelliteName());
+                assertEquals(before.getGeoHash(), after.getGeoHash());
+                assertEquals(before.getLongitude(), after.getLongitude());
+                assertEquals(before.getDeltaV90Day(), after.getDeltaV90Day());
+                assertEquals(before.getConjunctionCount(), after.getConjunctionCount());
+            }
+        } finally {
+            report.delete();
+        }
+    }
+
+    @Test
+    void testRowFormatters_MatchPrintfOutput() throws Exception {
+        TrackingSystem system = new TrackingSystem();
+        new CSVReader().loadObjects("rso_metrics.csv", system);
+        try {
+            system.assessOrbitStatusAndExport();
+        } finally {
+            new File("assessed_debris.csv").delete();
+            new File("exited_debris_report.txt").delete();
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        StringBuilder expected = new StringBuilder();
+        try (CSVWriter writer = new CSVWriter(Channels.newChannel(bytes))) {
+            for (SpaceObject obj : system.getAllObjects()) {
+                TrackingSystem.ASSESSED_DEBRIS_ROW.write(writer, obj);
+                TrackingSystem.EXITED_DEBRIS_ROW.write(writer, obj);
+                expected.append(String.format("%d,%s,%s,%s,%s,%d,%s,%.2f,%.2f,%s,%d,%b,%s\n",
+                        obj.getRecordId(), CSVTokenizer.escape(obj.getSatelliteName()), obj.getCountry(),
+                        obj.getOrbitType(), obj.getObjectType(), obj.getLaunchYear(), obj.getLaunchSite(),
+                        obj.getLongitude(), obj.getAvgLongitude(), CSVTokenizer.escape(obj.getGeoHash()),
+                        obj.getDaysOld(), obj.isStillInOrbit(), obj.getRiskLevel()));
+                expected.append(String.format("Record ID: %d, Name: %s, Country: %s, Orbit Type: %s, Launch Year: %d, Launch Site: %s, Longitude: %.2f, Avg Longitude: %.2f, Geohash: %s, Days Old: %d\n",
+                        obj.getRecordId(), CSVTokenizer.escape(obj.getSatelliteName()), obj.getCountry(), obj.getOrbitType(),
+                        obj.getLaunchYear(), obj.getLaunchSite(), obj.getLongitude(), obj.getAvgLongitude(),
+                        CSVTokenizer.escape(obj.getGeoHash()), obj.getDaysOld()));
+            }
+        }
+        assertEquals(expected.toString(), bytes.toString("UTF-8"));
+        assertTrue(bytes.toString("UTF-8").contains(", Geohash: \""), "Geohashes keep the quotes the source gave them.");
+
+        // Fixed decimals round the shortest decimal half up and keep the sign of negative zeros
+        double[] values = {1.005, 0.125, 2.675, -0.001, -0.0, 0.0, 1e-9, -179.995, 179.99999999999997, 1e7, 123456789.125, Double.NaN, Double.NEGATIVE_INFINITY};
+        RowFormatter<double[]> fixed = RowFormatter.<double[]>builder()
+                .fixed(row -> row[0], 2).text(";").fixed(row -> row[0], 0).text(";").fixed(row -> row[0], 5).text("\n").build();
+        bytes.reset();
+        expected.setLength(0);
+        try (CSVWriter writer = new CSVWriter(Channels.newChannel(bytes))) {
+            for (double value : values) {
+                fixed.write(writer, new double[] {value});
+                expected.append(String.format("%.2f;%.0f;%.5f\n", value, value, value));
+            }
+        }
+        assertEquals(expected.toString(), bytes.toString("UTF-8"));
+    }
+
+    @Test
+    void testPartitionedExport_ManifestPartitionsMatchSingleFile() throws Exception {
+        TrackingSystem system = new TrackingSystem();
+        new CSVReader().loadObjects("rso_metrics.csv", system);
+        List<SpaceObject> objects = system.getAllObjects();
+        Path directory = Files.createTempDirectory("partitioned_export");
+        String single = directory.resolve("updated_debris_report.csv").toString();
+        ReportWriter.writeUpdatedReport(objects, single);
+        String expected = Files.readString(Paths.get(single));
+        String header = expected.substring(0, expected.indexOf('\n') + 1);
+
+        try {
+            List<String> earlier = new ArrayList<>();
+            for (int threshold : new int[] {7, 30, 30}) {
+                ParallelScan.setThreshold(ParallelScan.Scan.EXPORT, threshold);
+                ReportWriter.writeUpdatedReportPartitioned(objects, single);
+                String manifest = PartitionedExport.manifestName(single);
+
+                // Partitions, in manifest order and less their headers, make up the single file
+                List<String> partitions = PartitionedExport.partitions(manifest);
+                assertTrue(partitions.size() > 1);
+                for (String partition : partitions) {
+                    assertFalse(earlier.contains(partition), "A re-export should not write over listed partitions.");
+                }
+                earlier = partitions;
+                StringBuilder joined = new StringBuilder(header);
+                for (String partition : partitions) {
+                    String text = Files.readString(Paths.get(partition));
+                    assertTrue(text.startsWith(header), "Every partition should start with the header.");
+                    joined.append(text.substring(header.length()));
+                }
+                assertEquals(expected, joined.toString());
+
+                CSVTokenizer entries = new CSVTokenizer(new StringReader(Files.readString(Paths.get(manifest))));
+                entries.nextRecord();
+                int nextRow = 0;
+                while (entries.nextRecord()) {
+                    assertEquals(nextRow, Integer.parseInt(entries.getField(1)));
+                    nextRow += Integer.parseInt(entries.getField(2));
+                    assertEquals(Files.size(directory.resolve(entries.getField(0))), Long.parseLong(entries.getField(3)));
+                }
+                assertEquals(objects.size(), nextRow);
+            }
+            // Partitions of the earlier exports are gone
+            assertEquals(PartitionedExport.partitions(PartitionedExport.manifestName(single)).size() + 2,
+                    directory.toFile().list().length, "Only the single file, the manifest and its partitions should remain.");
+        } finally {
+            ParallelScan.setThreshold(ParallelScan.Scan.EXPORT, ParallelScan.DEFAULT_THRESHOLD);
+            for (File file : directory.toFile().listFiles()) file.delete();
+            directory.toFile().delete();
+        }
+    }
+
+    @Test
+    void testCompressedFiles_GzipReportRoundTripsAndIsDetectedByContent() throws Exception {
+        TrackingSystem system = new TrackingSystem();
+        CSVReader reader = new CSVReader();
+        // Enough rows to span several decompression blocks
+        for (int copy = 0; copy < 30; copy++) {
+            reader.loadObjects("rso_metrics.csv", system);
+        }
+        List<SpaceObject> objects = system.getAllObjects();
+        Path directory = Files.createTempDirectory("compressed_export");
+        Path plain = directory.resolve("updated_debris_report.csv");
+        Path compressed = directory.resolve("updated_debris_report.csv.gz");
+        Path unnamed = directory.resolve("updated_debris_report.dat");
+        Path truncated = directory.resolve("truncated.csv.gz");
+        try {
+            ReportWriter.writeUpdatedReport(objects, plain.toString());
+            ReportWriter.writeUpdatedReport(objects, compressed.toString());
+            assertTrue(CompressedFiles.isCompressed(compressed.toString()));
+            assertFalse(CompressedFiles.isCompressed(plain.toString()));
+            assertTrue(Files.size(compressed) < Files.size(plain));
+            try (InputStream in = CompressedFiles.openInput(compressed.toString())) {
+                assertArrayEquals(Files.readAllBytes(plain), in.readAllBytes());
+            }
+
+            // Detected by its magic bytes, not its name, by both loaders
+            Files.copy(compressed, unnamed);
+            TrackingSystem sequential = new TrackingSystem();
+            TrackingSystem parallel = new TrackingSystem();
+            reader.loadObjects(unnamed.toString(), sequential);
+            reader.loadObjectsParallel(compressed.toString(), parallel);
+            assertEquals(objects.size(), sequential.getAllObjects().size());
+            assertEquals(objects.size(), parallel.getAllObjects().size());
+            for (int i = 0; i < objects.size(); i += 97) {
+                assertEquals(objects.get(i).getRecordId(), sequential.getAllObjects().get(i).getRecordId());
+                assertEquals(objects.get(i).getGeoHash(), parallel.getAllObjects().get(i).getGeoHash());
+            }
+
+            // A failure on the decompression thread surfaces to the loader
+            byte[] bytes = Files.readAllBytes(compressed);
+            Files.write(truncated, Arrays.copyOf(bytes, bytes.length / 2));
+            assertThrows(IOException.class, () -> reader.loadObjects(truncated.toString(), new TrackingSystem()));
+        } finally {
+            for (File file : directory.toFile().listFiles()) file.delete();
+            directory.toFile().delete();
+        }
+    }
+
+    @Test
+    void testReportChangeLog_WritesOnlyChangedRowsAcrossSessions() throws Exception {
+        Path directory = Files.createTempDirectory("report_change_log");
+        String source = directory.resolve("rso_metrics.csv").toString();
+        String report = directory.resolve("updated_debris_report.csv").toString();
+        Files.copy(Paths.get("rso_metrics.csv"), Paths.get(source));
+        CSVReader reader = new CSVReader();
+        // The report with its log applied, as sorted rows, against the rows of a full export
+        Function<List<SpaceObject>, List<String>> rows = objects -> {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (CSVWriter writer = new CSVWriter(Channels.newChannel(bytes))) {
+                for (SpaceObject obj : objects) ReportWriter.writeRow(writer, obj);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            List<String> lines = new ArrayList<>(List.of(bytes.toString().split("\n")));
+            Collections.sort(lines);
+            return lines;
+        };
+        Function<TrackingSystem, List<String>> reportRows = expected -> {
+            try {
+                TrackingSystem loaded = new TrackingSystem();
+                ReportChangeLog.load(report, reader, loaded);
+                return rows.apply(loaded.getAllObjects());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+
+        try {
+            // First session: no report yet, so it is written whole; then only changes
+            TrackingSystem first = new TrackingSystem();
+            reader.loadObjects(source, first);
+            first.markClean();
+            ReportChangeLog firstLog = new ReportChangeLog(report, source);
+            int size = first.getAllObjects().size();
+            assertEquals(size, firstLog.write(first));
+            assertEquals(0, firstLog.write(first), "Nothing changed, so nothing should be written.");
+            PrintStream console = System.out;
+            System.setOut(new PrintStream(new ByteArrayOutputStream()));
+            try {
+                first.assessOrbitStatusAndExport();
+            } finally {
+                System.setOut(console);
+            }
+            assertEquals(0, firstLog.write(first), "The assessment sets no report column.");
+
+            List<SpaceObject> objects = first.getAllObjects();
+            objects.get(0).setConjunctionCount(objects.get(0).getConjunctionCount() + 5);
+            objects.get(1).setHRRCategory("Red");
+            objects.get(2).setJustification(objects.get(2).getJustification());
+            assertFalse(objects.get(2).isDirty(), "Setting the same value is not a change.");
+            first.removeObject(TrackingSystem.catalogId(objects.get(3)));
+            assertEquals(3, firstLog.write(first));
+            assertTrue(new File(ReportChangeLog.changeLogName(report)).exists());
+            assertEquals(rows.apply(first.getAllObjects()), reportRows.apply(first));
+
+            // Second session reloads the source: the first session's rows are reverted too
+            TrackingSystem second = new TrackingSystem();
+            reader.loadObjects(source, second);
+            second.markClean();
+            ReportChangeLog secondLog = new ReportChangeLog(report, source);
+            second.getAllObjects().get(10).setDaysSinceOb(12345);
+            assertEquals(4, secondLog.write(second));
+            assertEquals(rows.apply(second.getAllObjects()), reportRows.apply(second));
+            second.getAllObjects().get(11).setAllManeuvers(99);
+            assertEquals(1, secondLog.write(second), "Later writes of a session append only new changes.");
+            assertEquals(rows.apply(second.getAllObjects()), reportRows.apply(second));
+
+            // Changing a quarter of the catalog folds the log back into the report
+            for (int i = 0; i < size / 3; i++) second.getAllObjects().get(i).setRecentManeuvers(-1);
+            assertEquals(size, secondLog.write(second));
+            assertFalse(new File(ReportChangeLog.changeLogName(report)).exists());
+            assertEquals(rows.apply(second.getAllObjects()), reportRows.apply(second));
+
+            // A report rewritten by something else is written whole again
+            ReportWriter.writeUpdatedReport(first.getAllObjects(), report);
+            second.getAllObjects().get(12).setAllManeuvers(7);
+            assertEquals(second.getAllObjects().size(), secondLog.write(second));
+            assertEquals(rows.apply(second.getAllObjects()), reportRows.apply(second));
+        } finally {
+            for (File file : directory.toFile().listFiles()) file.delete();
+            directory.toFile().delete();
+        }
+    }
 }
@@ -0,0 +1,153 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The {@code LongitudeIndex} class is a sorted index over the longitudes of the catalog's
+ * objects, answering longitude range queries by binary search.
+ *
+ * <p>Ranges are inclusive at both ends. A range whose minimum is greater than its maximum
+ * wraps across the antimeridian, so {@code (170, -170)} covers 170..180 and -180..-170.
+ * The entries are kept in a {@link SortedEntryList}, keyed by longitude, so
+ * {@link #copy()} shares them and a catalog version can derive its index from the previous
+ * version's by adding and removing just the changed rows.</p>
+ */
+public class LongitudeIndex {
+    /** Rows keyed by {@link #key(double)}; rows with equal longitudes stay in row order. */
+    private final SortedEntryList entries;
+
+    private LongitudeIndex(SortedEntryList entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Builds the index over a list of objects; the position of each object is its row.
+     * {@code null} entries are skipped.
+     *
+     * @param objects the objects to index
+     * @return the index
+     */
+    public static LongitudeIndex build(List<SpaceObject> objects) {
+        int n = objects.size();
+        long[] keys = new long[n];
+        int[] rows = new int[n];
+        int count = 0;
+        for (int row = 0; row < n; row++) {
+            SpaceObject obj = objects.get(row);
+            if (obj == null) continue;
+            keys[count] = key(obj.getLongitude());
+            rows[count++] = row;
+        }
+        return new LongitudeIndex(SortedEntryList.build(keys, rows, count));
+    }
+
+    /**
+     * Returns a copy that shares this index's entries until either index next changes them.
+     * Costs O(rows / 1024).
+     *
+     * @return the copy
+     */
+    public LongitudeIndex copy() {
+        return new LongitudeIndex(entries.copy());
+    }
+
+    /**
+     * Adds a row.
+     *
+     * @param longitude the row's longitude
+     * @param row       the row number
+     */
+    public void add(double longitude, int row) {
+        entries.insert(key(longitude), row);
+    }
+
+    /**
+     * Removes a row.
+     *
+     * @param longitude the longitude the row was added with
+     * @param row       the row number
+     */
+    public void remove(double longitude, int row) {
+        entries.remove(key(longitude), row);
+    }
+
+    /** @return the number of indexed rows */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Counts the rows in a longitude range without collecting them.
+     *
+     * @param minLongitude lower bound, inclusive
+     * @param maxLongitude upper bound, inclusive; below {@code minLongitude} to wrap
+     * @return the number of rows in the range
+     */
+    public int count(double minLongitude, double maxLongitude) {
+        if (minLongitude <= maxLongitude) {
+            return upperBound(maxLongitude) - lowerBound(minLongitude);
+        }
+        return (size() - lowerBound(minLongitude)) + upperBound(maxLongitude);
+    }
+
+    /**
+     * Returns the rows in a longitude range.
+     *
+     * @param minLongitude lower bound, inclusive
+     * @param maxLongitude upper bound, inclusive; below {@code minLongitude} to wrap
+     * @return the matching rows in ascending row order
+     */
+    public int[] rows(double minLongitude, double maxLongitude) {
+        int[] result;
+        if (minLongitude <= maxLongitude) {
+            result = entries.rows(lowerBound(minLongitude), upperBound(maxLongitude));
+        } else {
+            int[] high = entries.rows(lowerBound(minLongitude), size());
+            int[] low = entries.rows(0, upperBound(maxLongitude));
+            result = Arrays.copyOf(high, high.length + low.length);
+            System.arraycopy(low, 0, result, high.length, low.length);
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Counts the rows in each of a series of adjacent bands. Band {@code i} covers
+     * {@code [edges[i], edges[i + 1])}; the last band also includes its upper edge, so a sweep
+     * of bands counts each row at most once. Each edge costs one binary search, so a sweep
+     * of any number of bands never touches the rows themselves.
+     *
+     * @param edges band edges in ascending order; at least two
+     * @return the count of each of the {@code edges.length - 1} bands
+     */
+    public int[] countBands(double[] edges) {
+        if (edges.length < 2) throw new IllegalArgumentException("At least two band edges are needed");
+        int[] counts = new int[edges.length - 1];
+        int from = lowerBound(edges[0]);
+        for (int band = 0; band < counts.length; band++) {
+            boolean last = band == counts.length - 1;
+            int to = last ? upperBound(edges[band + 1]) : lowerBound(edges[band + 1]);
+            counts[band] = to - from;
+            from = to;
+        }
+        return counts;
+    }
+
+    /** Position of the first entry at or above {@code value}; -0.0 and 0.0 compare equal. */
+    private int lowerBound(double value) {
+        return entries.lowerBound(key(value == 0 ? -0.0 : value));
+    }
+
+    /** Position of the first entry above {@code value}. */
+    private int upperBound(double value) {
+        return entries.upperBound(key(value == 0 ? 0.0 : value));
+    }
+
+    /**
+     * Maps a longitude to a {@code long} that sorts the way {@link Double#compare} orders
+     * longitudes, with {@code NaN} above every number.
+     */
+    private static long key(double longitude) {
+        long bits = Double.doubleToLongBits(longitude);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+}
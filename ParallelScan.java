@@ -0,0 +1,165 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.BinaryOperator;
+import java.util.function.IntPredicate;
+
+/**
+ * The {@code ParallelScan} class runs a scan over catalog rows {@code [0, size)} on the
+ * common fork-join pool, splitting the rows into balanced ranges by repeated halving and
+ * merging the per-range results left to right, so the result is the same as a sequential
+ * scan's, in the same order.
+ *
+ * <p>Each kind of scan has its own threshold: catalogs with fewer rows are scanned on the
+ * calling thread, and ranges no bigger than it are not split further, so small catalogs
+ * never pay for forking.
+ * Setting a threshold to {@link Integer#MAX_VALUE} makes that scan always sequential.</p>
+ */
+public class ParallelScan {
+    /** The scans that can run in parallel, each with its own threshold. */
+    public enum Scan {
+        /** {@link TrackingSystem#assessOrbitStatusAndExport()} */
+        ASSESSMENT,
+        /** {@link TrackingSystem#generateDensityReport(double, double)} */
+        DENSITY_REPORT,
+        /** {@link TrackingSystem.Query} when no index narrows the candidates */
+        QUERY,
+        /** {@link ImpactAnalysis#analyzeLongTermImpact} over a list */
+        IMPACT_ANALYSIS,
+        /** {@link DebrisDensityAnalysis#generateReport(Iterable)} over a list */
+        DENSITY_ANALYSIS,
+        /** {@link TrackingSystem#topRanked} */
+        RANKING,
+        /** {@link PartitionedExport}; its ranges are the partitions */
+        EXPORT
+    }
+
+    /** Threshold every scan starts with, in rows. */
+    public static final int DEFAULT_THRESHOLD = 1 << 16;
+
+    private static final AtomicIntegerArray thresholds = new AtomicIntegerArray(Scan.values().length);
+
+    static {
+        for (int i = 0; i < thresholds.length(); i++) thresholds.set(i, DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Sets the fewest rows a scan runs in parallel for; also the smallest range it is split into.
+     *
+     * @param scan the scan
+     * @param rows the threshold, at least 1
+     */
+    public static void setThreshold(Scan scan, int rows) {
+        if (rows < 1) throw new IllegalArgumentException("threshold must be positive");
+        thresholds.set(scan.ordinal(), rows);
+    }
+
+    /**
+     * @param scan the scan
+     * @return the fewest rows the scan runs in parallel for
+     */
+    public static int getThreshold(Scan scan) {
+        return thresholds.get(scan.ordinal());
+    }
+
+    /**
+     * Applies a function to ranges covering rows {@code [0, size)} and merges the results.
+     * {@code merge} is always given the result of the lower range first.
+     *
+     * @param scan     the scan, whose threshold applies
+     * @param size     the number of rows
+     * @param function computes the result for rows {@code [from, to)}
+     * @param merge    combines the results of two adjacent ranges
+     * @param <R>      the result type
+     * @return the merged result
+     */
+    public static <R> R reduce(Scan scan, int size, RangeFunction<R> function, BinaryOperator<R> merge) {
+        int threshold = getThreshold(scan);
+        if (size < threshold) return function.apply(0, size);
+        // A few ranges per worker, so one slow range does not hold up the rest
+        long leafSize = Math.max(threshold, (long) size / (ForkJoinPool.getCommonPoolParallelism() * 4L));
+        return ForkJoinPool.commonPool().invoke(new RangeTask<>(0, size, (int) Math.min(leafSize, Integer.MAX_VALUE), function, merge));
+    }
+
+    /**
+     * Finds the rows in {@code [0, size)} that satisfy a predicate.
+     *
+     * @param scan      the scan, whose threshold applies
+     * @param size      the number of rows
+     * @param predicate the row test; called from several threads at once
+     * @return the matching rows in ascending order
+     */
+    public static int[] filter(Scan scan, int size, IntPredicate predicate) {
+        return reduce(scan, size, (from, to) -> {
+            int[] rows = new int[16];
+            int count = 0;
+            for (int row = from; row < to; row++) {
+                if (!predicate.test(row)) continue;
+                if (count == rows.length) rows = Arrays.copyOf(rows, count * 2);
+                rows[count++] = row;
+            }
+            return Arrays.copyOf(rows, count);
+        }, ParallelScan::concat);
+    }
+
+    /**
+     * Concatenates two arrays.
+     *
+     * @param first  the leading elements
+     * @param second the trailing elements
+     * @return {@code first} followed by {@code second}
+     */
+    public static int[] concat(int[] first, int[] second) {
+        if (second.length == 0) return first;
+        if (first.length == 0) return second;
+        int[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+
+    /**
+     * The work a scan does on one range of rows.
+     *
+     * @param <R> the result type
+     */
+    public interface RangeFunction<R> {
+        /**
+         * @param from first row, inclusive
+         * @param to   last row, exclusive
+         * @return the result for the range
+         */
+        R apply(int from, int to);
+    }
+
+    /**
+     * Halves its range until it is no bigger than the leaf size, then applies the function.
+     */
+    private static final class RangeTask<R> extends RecursiveTask<R> {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final int leafSize;
+        private final RangeFunction<R> function;
+        private final BinaryOperator<R> merge;
+
+        RangeTask(int from, int to, int leafSize, RangeFunction<R> function, BinaryOperator<R> merge) {
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+            this.function = function;
+            this.merge = merge;
+        }
+
+        @Override
+        protected R compute() {
+            if (to - from <= leafSize) return function.apply(from, to);
+            int middle = (from + to) >>> 1;
+            RangeTask<R> right = new RangeTask<>(middle, to, leafSize, function, merge);
+            right.fork();
+            R left = new RangeTask<>(from, middle, leafSize, function, merge).compute();
+            return merge.apply(left, right.join());
+        }
+    }
+}
@@ -0,0 +1,188 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@code PartitionedExport} class writes an export as several partition files, formatted
+ * and written in parallel, plus a manifest that lists them in row order.
+ *
+ * <p>The rows are split into ranges by {@link ParallelScan} under
+ * {@link ParallelScan.Scan#EXPORT}, and each range is written by its own {@link CSVWriter} to
+ * its own file, so partitions share nothing and the export scales with cores. A catalog
+ * smaller than the threshold is written as a single partition. Each partition starts with
+ * the export's header, so it can be read on its own.</p>
+ *
+ * <p>For an export named {@code assessed_debris.csv}, partitions are named
+ * {@code assessed_debris.g<generation>.part-<first row>.csv} and the manifest is
+ * {@code assessed_debris.manifest.csv}, with one record per partition:
+ * {@code file,first_row,rows,bytes}. Each export takes the generation after the one its
+ * previous manifest lists, so it never writes over a file that manifest still lists. The
+ * manifest is replaced in one atomic move after every partition is written, so a reader
+ * following it never sees a partial export; the previous generation's partitions are then
+ * deleted.</p>
+ */
+public class PartitionedExport {
+    /** Columns of the manifest. */
+    static final String[] MANIFEST_HEADER = {"file", "first_row", "rows", "bytes"};
+
+    /**
+     * Writes one row of an export.
+     *
+     * @param <T> the type of the rows
+     */
+    public interface RowWriter<T> {
+        /**
+         * @param out the writer of the row's partition
+         * @param row the row
+         * @throws IOException if the writer cannot write
+         */
+        void write(CSVWriter out, T row) throws IOException;
+    }
+
+    /**
+     * Writes rows as partition files and a manifest.
+     *
+     * @param fileName  the name the export would have as a single file
+     * @param header    text written at the start of every partition, such as a header line
+     *                  and its line break; may be empty
+     * @param rows      the rows; read from several threads at once
+     * @param rowWriter writes one row
+     * @param <T>       the type of the rows
+     * @return the path of the manifest
+     * @throws IOException if a partition or the manifest cannot be written
+     */
+    public static <T> String write(String fileName, String header, List<T> rows, RowWriter<T> rowWriter) throws IOException {
+        String manifest = manifestName(fileName);
+        List<String> previous = readManifest(manifest);
+        long generation = 0;
+        for (String file : previous) {
+            generation = Math.max(generation, generation(fileName, file) + 1);
+        }
+        long exportGeneration = generation;
+
+        List<String[]> partitions;
+        try {
+            partitions = ParallelScan.reduce(ParallelScan.Scan.EXPORT, rows.size(), (from, to) -> {
+                try {
+                    return writePartition(fileName, exportGeneration, from, to, header, rows, rowWriter);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, (first, second) -> {
+                first.addAll(second);
+                return first;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        Path temporary = Paths.get(manifest + ".tmp");
+        try (CSVWriter writer = CSVWriter.open(temporary.toString())) {
+            writer.writeRecord(MANIFEST_HEADER);
+            for (String[] partition : partitions) {
+                writer.writeRecord(partition);
+            }
+        }
+        Files.move(temporary, Paths.get(manifest), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        for (String file : previous) {
+            Files.deleteIfExists(resolve(manifest, file));
+        }
+        return manifest;
+    }
+
+    /**
+     * Reads the partition files listed by a manifest, in row order.
+     *
+     * @param manifest path of the manifest
+     * @return paths of the partitions; empty if there is no manifest
+     * @throws IOException if the manifest cannot be read
+     */
+    public static List<String> partitions(String manifest) throws IOException {
+        List<String> paths = new ArrayList<>();
+        for (String file : readManifest(manifest)) {
+            paths.add(resolve(manifest, file).toString());
+        }
+        return paths;
+    }
+
+    /**
+     * @param fileName the name the export would have as a single file
+     * @return the name of its manifest
+     */
+    public static String manifestName(String fileName) {
+        // A CSV file whatever the export's own format
+        return baseName(fileName) + ".manifest.csv";
+    }
+
+    private static <T> List<String[]> writePartition(String fileName, long generation, int from, int to, String header,
+                                                     List<T> rows, RowWriter<T> rowWriter) throws IOException {
+        String partition = String.format("%s.g%d.part-%010d%s", baseName(fileName), generation, from, extension(fileName));
+        long bytes;
+        try (CSVWriter writer = CSVWriter.open(partition)) {
+            writer.append(header);
+            for (int row = from; row < to; row++) {
+                rowWriter.write(writer, rows.get(row));
+            }
+            bytes = writer.getBytesWritten();
+        }
+        List<String[]> entry = new ArrayList<>();
+        // Listed by name only, so the export can be moved as a whole
+        entry.add(new String[] {new File(partition).getName(), String.valueOf(from), String.valueOf(to - from), String.valueOf(bytes)});
+        return entry;
+    }
+
+    /** The generation in the name of a partition of the export, or -1 if it has none. */
+    private static long generation(String fileName, String file) {
+        String prefix = new File(baseName(fileName)).getName() + ".g";
+        int end = file.indexOf(".part-", prefix.length());
+        if (!file.startsWith(prefix) || end < 0) return -1;
+        try {
+            return Long.parseLong(file.substring(prefix.length(), end));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /** Reads the file names in a manifest; empty if there is none. */
+    private static List<String> readManifest(String manifest) throws IOException {
+        List<String> files = new ArrayList<>();
+        if (!Files.exists(Paths.get(manifest))) return files;
+        try (Reader in = Files.newBufferedReader(Paths.get(manifest), StandardCharsets.UTF_8)) {
+            CSVTokenizer tokenizer = new CSVTokenizer(in);
+            tokenizer.nextRecord();
+            while (tokenizer.nextRecord()) {
+                files.add(tokenizer.getField(0));
+            }
+        }
+        return files;
+    }
+
+    private static Path resolve(String manifest, String file) {
+        Path parent = Paths.get(manifest).toAbsolutePath().getParent();
+        return parent.resolve(file);
+    }
+
+    private static String baseName(String fileName) {
+        int dot = extensionStart(fileName);
+        return dot < 0 ? fileName : fileName.substring(0, dot);
+    }
+
+    private static String extension(String fileName) {
+        int dot = extensionStart(fileName);
+        return dot < 0 ? "" : fileName.substring(dot);
+    }
+
+    private static int extensionStart(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return dot > fileName.lastIndexOf(File.separatorChar) ? dot : -1;
+    }
+}
@@ -0,0 +1,373 @@
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@code PerformanceBenchmark} class is a small command-line harness for measuring
+ * the throughput and allocation rate of the ingest and export paths.
+ *
+ * <p>Usage: {@code java PerformanceBenchmark <mode> [csvFile] [rows]}. When no file is given,
+ * a synthetic catalog of {@code rows} records (default 1,000,000) is generated from
+ * {@code rso_metrics.csv} in a temporary file. Each measurement runs a few warm-up rounds
+ * before the reported round. Allocation is read from the JVM's per-thread allocation counter.</p>
+ *
+ * <p>Modes:</p>
+ * <ul>
+ *   <li>{@code numeric} - parses {@code longitude}, {@code days_old} and {@code conjunction_count}
+ *       from every row, once through Strings and once straight from the tokenizer buffer</li>
+ *   <li>{@code ingest} - full {@link CSVReader#loadObjects} into a fresh {@link TrackingSystem}</li>
+ *   <li>{@code ingest-gzip} - the same load from a gzip-compressed copy of the file</li>
+ *   <li>{@code memory} - heap retained per tracked object after a full load, measured as the
+ *       growth of used heap across a forced garbage collection</li>
+ *   <li>{@code export} - {@link ReportWriter#writeUpdatedReport} of the loaded catalog to a
+ *       temporary file</li>
+ *   <li>{@code partitioned} - {@link ReportWriter#writeUpdatedReportPartitioned} of the loaded
+ *       catalog to a temporary directory</li>
+ *   <li>{@code rows} - the {@code assessed_debris.csv} rows of the loaded catalog, once through
+ *       {@code PrintWriter.printf} and once through {@link TrackingSystem#ASSESSED_DEBRIS_ROW}</li>
+ *   <li>{@code readers} - lookups per second by reader threads on a loaded catalog, alone and
+ *       while the same file is bulk-loaded into it again, over windows of equal length</li>
+ * </ul>
+ */
+public class PerformanceBenchmark {
+    private static final int WARMUP_ROUNDS = 3;
+
+    /**
+     * Runs the benchmark selected on the command line.
+     *
+     * @param args the mode, optionally followed by a CSV file and a synthetic row count
+     * @throws IOException if the input cannot be read or generated
+     */
+    public static void main(String[] args) throws IOException {
+        String mode = args.length > 0 ? args[0] : "numeric";
+        int rows = args.length > 2 ? Integer.parseInt(args[2]) : 1_000_000;
+        String file = args.length > 1 && !args[1].equals("-") ? args[1] : generateCatalog(rows);
+
+        switch (mode) {
+            case "numeric":
+                run("numeric fields via String", file, PerformanceBenchmark::parseNumericViaStrings);
+                run("numeric fields from buffer", file, PerformanceBenchmark::parseNumericFromBuffer);
+                break;
+            case "ingest":
+                run("loadObjects", file, PerformanceBenchmark::ingest);
+                break;
+            case "ingest-gzip":
+                run("loadObjects gzip", compress(file), PerformanceBenchmark::ingest);
+                break;
+            case "memory":
+                measureRetainedHeap(file);
+                break;
+            case "export":
+                List<SpaceObject> objects = load(file);
+                run("writeUpdatedReport", file, f -> export(objects));
+                break;
+            case "partitioned":
+                List<SpaceObject> catalog = load(file);
+                run("writeUpdatedReportPartitioned", file, f -> exportPartitioned(catalog));
+                break;
+            case "rows":
+                List<SpaceObject> assessed = load(file);
+                run("assessed rows via printf", file, f -> formatRowsViaPrintf(assessed));
+                run("assessed rows via formatter", file, f -> formatRows(assessed));
+                break;
+            case "readers":
+                measureReadersDuringLoad(file);
+                break;
+            default:
+                System.err.println("Unknown mode: " + mode);
+        }
+    }
+
+    /**
+     * Runs one measurement and prints rows per second and bytes allocated per row.
+     */
+    private static void run(String label, String file, Workload workload) throws IOException {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            workload.run(file);
+        }
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        long rows = workload.run(file);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long allocated = allocatedBytes() - allocatedBefore;
+
+        System.out.printf("%-30s %,12d rows %8.2f s %,14.0f rows/s %10.1f B/row%n",
+                label, rows, seconds, rows / seconds, (double) allocated / Math.max(1, rows));
+    }
+
+    /**
+     * Loads the file once and prints the heap it retains per tracked object.
+     */
+    private static void measureRetainedHeap(String file) throws IOException {
+        long before = usedHeapAfterGc();
+        TrackingSystem system = new TrackingSystem();
+        new CSVReader().loadObjects(file, system);
+        long after = usedHeapAfterGc();
+        int objects = system.getAllObjects().size();
+
+        System.out.printf("%-30s %,12d objects %,14d bytes %10.1f B/object%n",
+                "retained heap", objects, after - before, (double) (after - before) / Math.max(1, objects));
+    }
+
+    /**
+     * Measures reader throughput on a loaded catalog, first alone and then while a second
+     * copy of the file is bulk-loaded into it. The first window lasts as long as a warm-up
+     * load of the file, so both windows are about the same length.
+     */
+    private static void measureReadersDuringLoad(String file) throws IOException {
+        TrackingSystem system = new TrackingSystem();
+        new CSVReader().loadObjects(file, system);
+        int noradId = system.getAllObjects().get(0).getNoradId();
+
+        long start = System.nanoTime();
+        ingest(file);
+        long windowNanos = System.nanoTime() - start;
+
+        AtomicLong reads = new AtomicLong();
+        AtomicBoolean stop = new AtomicBoolean();
+        Thread[] readers = new Thread[Math.max(1, Runtime.getRuntime().availableProcessors() - 1)];
+        for (int t = 0; t < readers.length; t++) {
+            readers[t] = new Thread(() -> {
+                while (!stop.get()) {
+                    system.getAllObjects().size();
+                    system.filterByType("DEBRIS");
+                    system.findByNoradId(noradId);
+                    reads.incrementAndGet();
+                }
+            });
+            readers[t].start();
+        }
+        try {
+            // The readers warm up before either window starts
+            sleepNanos(windowNanos);
+
+            long before = reads.get();
+            start = System.nanoTime();
+            sleepNanos(windowNanos);
+            double aloneSeconds = (System.nanoTime() - start) / 1e9;
+            long alone = reads.get() - before;
+
+            before = reads.get();
+            start = System.nanoTime();
+            new CSVReader().loadObjects(file, system);
+            double loadSeconds = (System.nanoTime() - start) / 1e9;
+            long duringLoad = reads.get() - before;
+
+            System.out.printf("%-30s %,12d reads %8.2f s %,14.0f reads/s%n", "readers alone", alone, aloneSeconds, alone / aloneSeconds);
+            System.out.printf("%-30s %,12d reads %8.2f s %,14.0f reads/s%n", "readers during bulk load", duringLoad, loadSeconds, duringLoad / loadSeconds);
+        } finally {
+            stop.set(true);
+            for (Thread reader : readers) {
+                try {
+                    reader.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private static void sleepNanos(long nanos) {
+        try {
+            Thread.sleep(nanos / 1_000_000, (int) (nanos % 1_000_000));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long ingest(String file) throws IOException {
+        TrackingSystem system = new TrackingSystem();
+        new CSVReader().loadObjects(file, system);
+        return system.getAllObjects().size();
+    }
+
+    private static List<SpaceObject> load(String file) throws IOException {
+        TrackingSystem system = new TrackingSystem();
+        new CSVReader().loadObjects(file, system);
+        return system.getAllObjects();
+    }
+
+    private static long export(List<SpaceObject> objects) throws IOException {
+        File out = File.createTempFile("updated_debris_report", ".csv");
+        try {
+            ReportWriter.writeUpdatedReport(objects, out.getPath());
+            return objects.size();
+        } finally {
+            out.delete();
+        }
+    }
+
+    private static long exportPartitioned(List<SpaceObject> objects) throws IOException {
+        File directory = Files.createTempDirectory("updated_debris_report").toFile();
+        try {
+            ReportWriter.writeUpdatedReportPartitioned(objects, new File(directory, "updated_debris_report.csv").getPath());
+            return objects.size();
+        } finally {
+            for (File part : directory.listFiles()) part.delete();
+            directory.delete();
+        }
+    }
+
+    private static long formatRowsViaPrintf(List<SpaceObject> objects) throws IOException {
+        File out = File.createTempFile("assessed_debris", ".csv");
+        try (PrintWriter writer = new PrintWriter(out)) {
+            for (SpaceObject obj : objects) {
+                writer.printf("%d,%s,%s,%s,%s,%d,%s,%.2f,%.2f,%s,%d,%b,%s\n",
+                        obj.getRecordId(), CSVTokenizer.escape(obj.getSatelliteName()), obj.getCountry(),
+                        obj.getOrbitType(), obj.getObjectType(), obj.getLaunchYear(), obj.getLaunchSite(),
+                        obj.getLongitude(), obj.getAvgLongitude(), CSVTokenizer.escape(obj.getGeoHash()),
+                        obj.getDaysOld(), obj.isStillInOrbit(), obj.getRiskLevel());
+            }
+            return objects.size();
+        } finally {
+            out.delete();
+        }
+    }
+
+    private static long formatRows(List<SpaceObject> objects) throws IOException {
+        File out = File.createTempFile("assessed_debris", ".csv");
+        try (CSVWriter writer = CSVWriter.open(out.getPath())) {
+            for (SpaceObject obj : objects) {
+                TrackingSystem.ASSESSED_DEBRIS_ROW.write(writer, obj);
+            }
+            return objects.size();
+        } finally {
+            out.delete();
+        }
+    }
+
+    private static long parseNumericViaStrings(String file) throws IOException {
+        long rows = 0;
+        double checksum = 0;
+        try (Reader in = open(file)) {
+            CSVTokenizer tokenizer = new CSVTokenizer(in);
+            tokenizer.nextRecord();
+            String[] header = tokenizer.getFields();
+            int longitude = indexOf(header, "longitude");
+            int daysOld = indexOf(header, "days_old");
+            int conjunctions = indexOf(header, "conjunction_count");
+            while (tokenizer.nextRecord()) {
+                checksum += parseDouble(tokenizer.getField(longitude).trim());
+                checksum += parseInt(tokenizer.getField(daysOld).trim());
+                checksum += parseInt(tokenizer.getField(conjunctions).trim());
+                rows++;
+            }
+        }
+        return checksum == Double.MIN_VALUE ? -1 : rows;
+    }
+
+    private static long parseNumericFromBuffer(String file) throws IOException {
+        long rows = 0;
+        double checksum = 0;
+        try (Reader in = open(file)) {
+            CSVTokenizer tokenizer = new CSVTokenizer(in);
+            tokenizer.nextRecord();
+            String[] header = tokenizer.getFields();
+            int longitude = indexOf(header, "longitude");
+            int daysOld = indexOf(header, "days_old");
+            int conjunctions = indexOf(header, "conjunction_count");
+            while (tokenizer.nextRecord()) {
+                checksum += tokenizer.parseDouble(longitude);
+                checksum += tokenizer.parseInt(daysOld);
+                checksum += tokenizer.parseInt(conjunctions);
+                rows++;
+            }
+        }
+        return checksum == Double.MIN_VALUE ? -1 : rows;
+    }
+
+    private static double parseDouble(String value) {
+        try {
+            return value.isEmpty() ? 0.0 : Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return 0.0;
+        }
+    }
+
+    private static int parseInt(String value) {
+        try {
+            return value.isEmpty() ? 0 : Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static int indexOf(String[] header, String column) {
+        for (int i = 0; i < header.length; i++) {
+            if (header[i].trim().equalsIgnoreCase(column)) return i;
+        }
+        throw new IllegalArgumentException("Missing column: " + column);
+    }
+
+    private static Reader open(String file) throws IOException {
+        return new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes a gzip-compressed copy of a file.
+     */
+    private static String compress(String file) throws IOException {
+        File compressed = File.createTempFile("rso_metrics", ".csv" + CompressedFiles.GZIP_SUFFIX);
+        compressed.deleteOnExit();
+        try (InputStream in = new FileInputStream(file);
+             OutputStream out = Channels.newOutputStream(CompressedFiles.openOutput(compressed.getPath()))) {
+            in.transferTo(out);
+        }
+        return compressed.getPath();
+    }
+
+    /**
+     * Writes a synthetic catalog by repeating the rows of {@code rso_metrics.csv}.
+     */
+    private static String generateCatalog(int rows) throws IOException {
+        List<String> sample = new ArrayList<>();
+        String header;
+        try (BufferedReader in = new BufferedReader(open("rso_metrics.csv"))) {
+            header = in.readLine();
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (!line.isEmpty()) sample.add(line);
+            }
+        }
+
+        File file = File.createTempFile("rso_metrics_synthetic", ".csv");
+        file.deleteOnExit();
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), 1 << 16)) {
+            out.write(header);
+            out.write('\n');
+            for (int i = 0; i < rows; i++) {
+                out.write(sample.get(i % sample.size()));
+                out.write('\n');
+            }
+        }
+        return file.getPath();
+    }
+
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * A benchmarked operation over a CSV file.
+     */
+    private interface Workload {
+        /**
+         * @return the number of rows processed
+         */
+        long run(String file) throws IOException;
+    }
+}
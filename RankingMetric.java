@@ -0,0 +1,29 @@
+/**
+ * The {@code RankingMetric} enum lists the scores by which
+ * {@link TrackingSystem#topRanked} ranks tracked objects, highest score first.
+ */
+public enum RankingMetric {
+    /** Drift between longitude and average longitude, {@code |longitude - avgLongitude|}. */
+    DRIFT,
+    /** Number of conjunctions. */
+    CONJUNCTION_COUNT,
+    /** Delta-V over the last 90 days. */
+    DELTA_V_90_DAY;
+
+    /**
+     * Scores an object by this metric.
+     *
+     * @param obj the object
+     * @return the object's score; higher ranks first
+     */
+    public double score(SpaceObject obj) {
+        switch (this) {
+            case DRIFT:
+                return Math.abs(obj.getLongitude() - obj.getAvgLongitude());
+            case CONJUNCTION_COUNT:
+                return obj.getConjunctionCount();
+            default:
+                return obj.getDeltaV90Day();
+        }
+    }
+}
@@ -0,0 +1,254 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The {@code ReportChangeLog} class keeps {@code updated_debris_report.csv} up to date by
+ * writing only the rows that changed. The report is the full export, as written by
+ * {@link ReportWriter}. Changed rows are appended to a change log next to it, in the delta
+ * format {@link CSVReader#applyDelta} reads: the report's columns plus {@code change_type},
+ * {@code UPSERT} or {@code DELETE}, keyed by the {@code norad_cat_id} column. The report
+ * with its log applied is what a full export would contain; {@link #load} reads it so.
+ *
+ * <p>The catalog is reloaded from its source file each session, so a session starts from
+ * the source, not from the report. A state file next to the report records the source file
+ * the report was based on and the record IDs whose rows in the report and log differ from
+ * the source. The first write of a session appends those rows again, as the session has them
+ * now, along with the session's own changes; later writes append only the changes since the
+ * write before. The system must be marked clean, see {@link TrackingSystem#markClean()},
+ * once the source is loaded. If the state is missing, was written for another source file,
+ * or the report or log were changed by something else, the whole report is written instead.</p>
+ *
+ * <p>When the log grows past {@link #COMPACTION_RATIO} of the report's size, it is folded
+ * back: the whole report is written again and the log deleted. Use one instance per
+ * session.</p>
+ */
+public class ReportChangeLog {
+    /** Log size, as a fraction of the report's size, beyond which the log is compacted. */
+    public static final double COMPACTION_RATIO = 0.25;
+
+    /** Column added to the report's columns in the log. */
+    static final String CHANGE_TYPE = "change_type";
+
+    private static final int MAGIC = 0x52534F4C;
+    private static final int VERSION = 1;
+
+    private final String reportFile;
+    private final String logFile;
+    private final String stateFile;
+    private final String sourceFile;
+
+    /** Record IDs changed during this session, whose rows differ from the source. */
+    private final IntHashIndex sessionIds = new IntHashIndex();
+    private int[] sessionIdList = new int[16];
+    private int sessionIdCount;
+    private boolean written;
+
+    /**
+     * Creates the change log of a report.
+     *
+     * @param reportFile path of the report
+     * @param sourceFile path of the catalog file the session was loaded from
+     */
+    public ReportChangeLog(String reportFile, String sourceFile) {
+        this.reportFile = reportFile;
+        this.logFile = siblingName(reportFile, ".changes.csv");
+        this.stateFile = siblingName(reportFile, ".state");
+        this.sourceFile = sourceFile;
+    }
+
+    /**
+     * @param reportFile path of a report
+     * @return path of its change log
+     */
+    public static String changeLogName(String reportFile) {
+        return siblingName(reportFile, ".changes.csv");
+    }
+
+    /**
+     * Brings the report up to date with the tracking system, appending only the rows that
+     * changed to the log when it can, and writing the whole report when it cannot.
+     *
+     * @param system the tracking system
+     * @return the number of rows written
+     * @throws IOException if the report, log or state cannot be written
+     */
+    public int write(TrackingSystem system) throws IOException {
+        int[] previousIds = readState();
+        int firstNewId = takeChanges(system);
+
+        // Written again on failure, so a half-written log is never trusted
+        Files.deleteIfExists(Paths.get(stateFile));
+        int rows;
+        if (previousIds == null) {
+            rows = writeReport(system);
+        } else {
+            // The session's changes, and on its first write the rows an earlier session changed
+            int[] ids = Arrays.copyOfRange(sessionIdList, firstNewId, sessionIdCount);
+            if (!written) ids = union(ids, previousIds);
+            rows = appendRows(system, ids);
+            if (new File(logFile).length() > COMPACTION_RATIO * new File(reportFile).length()) {
+                rows = writeReport(system);
+            }
+        }
+        written = true;
+        writeState();
+        return rows;
+    }
+
+    /**
+     * Folds the log back into the report: writes the whole report and deletes the log.
+     *
+     * @param system the tracking system
+     * @throws IOException if the report or state cannot be written
+     */
+    public void compact(TrackingSystem system) throws IOException {
+        takeChanges(system);
+        Files.deleteIfExists(Paths.get(stateFile));
+        writeReport(system);
+        written = true;
+        writeState();
+    }
+
+    /**
+     * Loads a report and applies its change log, if it has one.
+     *
+     * @param reportFile path of the report
+     * @param reader     the reader to load with
+     * @param system     the tracking system to populate
+     * @throws IOException if the report or log cannot be read
+     */
+    public static void load(String reportFile, CSVReader reader, TrackingSystem system) throws IOException {
+        reader.loadObjects(reportFile, system);
+        String log = changeLogName(reportFile);
+        if (new File(log).exists()) reader.applyDelta(log, system);
+    }
+
+    /**
+     * Adds the record IDs changed since the last call to this session's.
+     *
+     * @return the index of the first new one in {@code sessionIdList}
+     */
+    private int takeChanges(TrackingSystem system) {
+        TrackingSystem.ChangeSet changes = system.takeChanges();
+        int firstNewId = sessionIdCount;
+        for (SpaceObject obj : changes.getChanged()) addSessionId(obj.getRecordId());
+        for (int recordId : changes.getRemovedRecordIds()) addSessionId(recordId);
+        return firstNewId;
+    }
+
+    /** Writes the whole report and deletes the log. */
+    private int writeReport(TrackingSystem system) throws IOException {
+        List<SpaceObject> objects = system.getAllObjects();
+        ReportWriter.writeReport(objects, reportFile);
+        Files.deleteIfExists(Paths.get(logFile));
+        return objects.size();
+    }
+
+    /** Appends the current row of each record ID to the log, or a deletion if it is no longer tracked. */
+    private int appendRows(TrackingSystem system, int[] recordIds) throws IOException {
+        if (recordIds.length == 0) return 0;
+        boolean newLog = !new File(logFile).exists();
+        try (CSVWriter writer = new CSVWriter(FileChannel.open(Paths.get(logFile),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND))) {
+            if (newLog) {
+                for (String column : ReportWriter.HEADER) writer.writeField(column);
+                writer.writeField(CHANGE_TYPE);
+                writer.endRecord();
+            }
+            for (int recordId : recordIds) {
+                SpaceObject obj = system.findByRecordId(recordId);
+                if (obj != null) {
+                    ReportWriter.writeFields(writer, obj);
+                    writer.writeField("UPSERT");
+                } else {
+                    // Only the key matters to a deletion
+                    for (String column : ReportWriter.HEADER) {
+                        if (column.equals("record_id") || column.equals("norad_cat_id")) writer.writeField(recordId);
+                        else writer.writeField("");
+                    }
+                    writer.writeField("DELETE");
+                }
+                writer.endRecord();
+            }
+        }
+        return recordIds.length;
+    }
+
+    private void addSessionId(int recordId) {
+        if (sessionIds.put(recordId, 0) != IntHashIndex.MISSING) return;
+        if (sessionIdCount == sessionIdList.length) sessionIdList = Arrays.copyOf(sessionIdList, sessionIdCount * 2);
+        sessionIdList[sessionIdCount++] = recordId;
+    }
+
+    /** @return {@code ids} followed by the members of {@code others} not among them */
+    private static int[] union(int[] ids, int[] others) {
+        IntHashIndex seen = new IntHashIndex();
+        for (int id : ids) seen.put(id, 0);
+        int[] result = Arrays.copyOf(ids, ids.length + others.length);
+        int count = ids.length;
+        for (int id : others) {
+            if (seen.put(id, 0) == IntHashIndex.MISSING) result[count++] = id;
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Reads the record IDs whose rows differ from the source, if the state matches the
+     * source, report and log as they are now.
+     *
+     * @return the record IDs, or {@code null} if the whole report must be written
+     */
+    private int[] readState() throws IOException {
+        if (!new File(stateFile).exists() || !new File(reportFile).exists()) return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(stateFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return null;
+            if (!in.readUTF().equals(fingerprint(sourceFile))) return null;
+            if (!in.readUTF().equals(fingerprint(reportFile))) return null;
+            if (!in.readUTF().equals(fingerprint(logFile))) return null;
+            int[] ids = new int[in.readInt()];
+            for (int i = 0; i < ids.length; i++) ids[i] = in.readInt();
+            return ids;
+        } catch (IOException e) {
+            // A damaged state only costs a full write
+            return null;
+        }
+    }
+
+    private void writeState() throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(stateFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(fingerprint(sourceFile));
+            out.writeUTF(fingerprint(reportFile));
+            out.writeUTF(fingerprint(logFile));
+            out.writeInt(sessionIdCount);
+            for (int i = 0; i < sessionIdCount; i++) out.writeInt(sessionIdList[i]);
+        }
+    }
+
+    /** Identifies a file's contents by its path, size and modification time; empty if it does not exist. */
+    static String fingerprint(String filename) {
+        File file = new File(filename);
+        if (!file.exists()) return "";
+        return file.getAbsolutePath() + "|" + file.length() + "|" + file.lastModified();
+    }
+
+    /** Replaces a file name's extension with a suffix. */
+    private static String siblingName(String filename, String suffix) {
+        int dot = filename.lastIndexOf('.');
+        boolean hasExtension = dot > filename.lastIndexOf(File.separatorChar);
+        return (hasExtension ? filename.substring(0, dot) : filename) + suffix;
+    }
+}
@@ -1,90 +1,115 @@
-import java.io.FileWriter;
 import java.io.IOException;
 import java.util.List;
 
 public class ReportWriter {
+    static final String[] HEADER = ("country,satellite_name,approximate_orbit_type,record_id,object_type,launch_year,launch_site,longitude,avg_longitude,geohash,HRR_Category,is_nominated,nominated_at,norad_cat_id,has_dossier,last_updated_at,justification,focused_analysis,days_old,conjunction_count,is_unk_object,all_maneuvers,days_since_ob,recent_maneuvers,deltaV_90day,has_sister_debris").split(",");
+
+    private static final String DEFAULT_TIMESTAMP = "2023-01-01T00:00:00.000Z";
+
     // Returns the updated report to user whenever he exits the program
     public static void writeUpdatedReport(List<SpaceObject> objects, String filePath) {
-        try (FileWriter writer = new FileWriter(filePath)) {
-            // Write CSV header
-            writer.append("country,satellite_name,approximate_orbit_type,record_id,object_type,launch_year,launch_site,longitude,avg_longitude,geohash,HRR_Category,is_nominated,nominated_at,norad_cat_id,has_dossier,last_updated_at,justification,focused_analysis,days_old,conjunction_count,is_unk_object,all_maneuvers,days_since_ob,recent_maneuvers,deltaV_90day,has_sister_debris\n");
+        // Rows are formatted straight into the writer's byte buffer, so a multi-GB report
+        // allocates nothing per row and reaches the disk in 1 MB writes
+        try {
+            writeReport(objects, filePath);
+            System.out.println("Updated debris tracking report written to: " + filePath);
+        } catch (IOException e) {
+            System.err.println("Error writing updated report: " + e.getMessage());
+        }
+    }
+
+    // Writes the whole report, leaving errors to the caller
+    static void writeReport(List<SpaceObject> objects, String filePath) throws IOException {
+        try (CSVWriter writer = CSVWriter.open(filePath)) {
+            writer.writeRecord(HEADER);
 
             // Write each object's data row
             for (SpaceObject obj : objects) {
-                writer.append(safe(obj.getCountry())).append(",")
-                      .append(safe(obj.getSatelliteName())).append(",")
-                      .append(safe(obj.getOrbitType())).append(",")
-                      .append(String.valueOf(obj.getRecordId())).append(",")
-                      .append(safe(obj.getObjectType())).append(",")
-                      .append(String.valueOf(obj.getLaunchYear())).append(",")
-                      .append(safe(obj.getLaunchSite())).append(",")
-                      .append(String.valueOf(obj.getLongitude())).append(",")
-                      .append(String.valueOf(obj.getAvgLongitude())).append(",")
-                      .append(safe(obj.getGeoHash())).append(",")
+                writeRow(writer, obj);
+            }
+        }
+    }
 
-                      // HRR_Category: only default to "Blue" if null or empty
-                      
-                      .append(safeOrDefault(obj.getHRRCategory(), "Blue")).append(",")
+    // Writes the report as partitions formatted in parallel, plus a manifest listing them
+    public static void writeUpdatedReportPartitioned(List<SpaceObject> objects, String filePath) {
+        try {
+            String manifest = PartitionedExport.write(filePath, String.join(",", HEADER) + "\n", objects, ReportWriter::writeRow);
+            System.out.println("Updated debris tracking report written to: " + manifest);
+        } catch (IOException e) {
+            System.err.println("Error writing updated report: " + e.getMessage());
+        }
+    }
 
-                      // is_nominated
-                      .append(obj.isNominated() ? "TRUE" : "FALSE").append(",")
+    // Writes one object as a report row, in HEADER order
+    static void writeRow(CSVWriter writer, SpaceObject obj) throws IOException {
+        writeFields(writer, obj);
+        writer.endRecord();
+    }
 
-                      // nominated_at
-                      .append(safeOrDefault(obj.getNominatedAt(), "2023-01-01T00:00:00.000Z")).append(",")
+    // Writes the fields of a report row, leaving the record open for more
+    static void writeFields(CSVWriter writer, SpaceObject obj) throws IOException {
+        writer.writeField(obj.getCountry());
+        writer.writeField(obj.getSatelliteName());
+        writer.writeField(obj.getOrbitType());
+        writer.writeField(obj.getRecordId());
+        writer.writeField(obj.getObjectType());
+        writer.writeField(obj.getLaunchYear());
+        writer.writeField(obj.getLaunchSite());
+        writer.writeField(obj.getLongitude());
+        writer.writeField(obj.getAvgLongitude());
+        writer.writeField(obj.getGeoHash());
 
-                      // norad_cat_id (same as recordId)
-                      .append(String.valueOf(obj.getRecordId())).append(",")
+        // HRR_Category: only default to "Blue" if null or empty
+        writer.writeField(orDefault(obj.getHRRCategory(), "Blue"));
 
-                      // has_dossier
-                      .append(obj.hasDossier() ? "TRUE" : "FALSE").append(",")
+        // is_nominated
+        writer.writeField(obj.isNominated() ? "TRUE" : "FALSE");
 
-                      // last_updated_at
-                      .append(safeOrDefault(obj.getLastUpdatedAt(), "2023-01-01T00:00:00.000Z")).append(",")
+        // nominated_at
+        writer.writeField(orDefault(obj.getNominatedAt(), DEFAULT_TIMESTAMP));
 
-                      // justification
-                      .append(safeOrDefault(obj.getJustification(), "-")).append(",")
+        // norad_cat_id (same as recordId)
+        writer.writeField(obj.getRecordId());
 
-                      // focused_analysis
-                      .append(safeOrDefault(obj.getFocusedAnalysis(), "-")).append(",")
+        // has_dossier
+        writer.writeField(obj.hasDossier() ? "TRUE" : "FALSE");
 
-                      // days_old
-                      .append(String.valueOf(obj.getDaysOld())).append(",")
+        // last_updated_at
+        writer.writeField(orDefault(obj.getLastUpdatedAt(), DEFAULT_TIMESTAMP));
 
-                      // conjunction_count
-                      .append(String.valueOf(obj.getConjunctionCount())).append(",")
+        // justification
+        writer.writeField(orDefault(obj.getJustification(), "-"));
 
-                      // is_unk_object
-                      .append(obj.isUnknownObject() ? "TRUE" : "FALSE").append(",")
+        // focused_analysis
+        writer.writeField(orDefault(obj.getFocusedAnalysis(), "-"));
 
-                      // all_maneuvers
-                      .append(String.valueOf(obj.getAllManeuvers())).append(",")
+        // days_old
+        writer.writeField(obj.getDaysOld());
 
-                      // days_since_ob
-                      .append(String.valueOf(obj.getDaysSinceOb())).append(",")
+        // conjunction_count
+        writer.writeField(obj.getConjunctionCount());
 
-                      // recent_maneuvers
-                      .append(String.valueOf(obj.getRecentManeuvers())).append(",")
+        // is_unk_object
+        writer.writeField(obj.isUnknownObject() ? "TRUE" : "FALSE");
 
-                      // deltaV_90day
-                      .append(String.valueOf(obj.getDeltaV90Day())).append(",")
+        // all_maneuvers
+        writer.writeField(obj.getAllManeuvers());
 
-                      // has_sister_debris
-                      .append(obj.hasSisterDebris() ? "TRUE" : "FALSE").append("\n");
-            }
+        // days_since_ob
+        writer.writeField(obj.getDaysSinceOb());
 
-            System.out.println("Updated debris tracking report written to: " + filePath);
-        } catch (IOException e) {
-            System.err.println("Error writing updated report: " + e.getMessage());
-        }
-    }
+        // recent_maneuvers
+        writer.writeField(obj.getRecentManeuvers());
+
+        // deltaV_90day
+        writer.writeField(obj.getDeltaV90Day());
 
-    // Helper method to handle nulls safely
-    private static String safe(String value) {
-        return value != null ? value : "";
+        // has_sister_debris
+        writer.writeField(obj.hasSisterDebris() ? "TRUE" : "FALSE");
     }
 
-    // Helper method with default fallback
-    private static String safeOrDefault(String value, String defaultValue) {
+    // Helper method with default fallback; the writer quotes values such as the "lat,lon" geohash
+    private static String orDefault(String value, String defaultValue) {
         return (value == null || value.isEmpty()) ? defaultValue : value;
     }
 }
@@ -21,12 +21,14 @@ public class RocketBody extends SpaceObject {
      * @param avgLongitude the average longitude of the rocket body
      * @param geoHash the geohash representing the location of the rocket body
      * @param daysOld the number of days since the rocket body was launched
+     * @param conjunctionCount the number of recorded conjunctions
      */
     public RocketBody(int recordId, int noradId, String satelliteName, String country, String orbitType,
                       String objectType, int launchYear, String launchSite, double longitude,
                       double avgLongitude, String geoHash, int daysOld, int conjunctionCount) {
         super(recordId, noradId, satelliteName, country, orbitType, objectType,
               launchYear, launchSite, longitude, avgLongitude, geoHash, daysOld);
+        this.conjunctionCount = conjunctionCount;
     }
 
     public int getConjunctionCount() {
@@ -34,6 +36,7 @@ public class RocketBody extends SpaceObject {
     }
     
     public void setConjunctionCount(int conjunctionCount) {
+        if (this.conjunctionCount != conjunctionCount) markDirty();
         this.conjunctionCount = conjunctionCount;
     }
 
@@ -0,0 +1,375 @@
+import java.util.*;
+
+/**
+ * The {@code RollupCube} class keeps pre-aggregated totals of the catalog by country, orbit
+ * type, object type and launch year, so any group-by over those dimensions is answered
+ * without reading a single {@link SpaceObject}.
+ *
+ * <p>Each distinct value of a dimension gets a dense code, as in a {@link StringDictionary}.
+ * The totals are primitive {@code long}s addressed by the codes of all four dimensions like
+ * a row-major multi-dimensional array. Adding or removing an object updates one cell. A
+ * group-by walks the cells, not the objects, so its cost depends on the number of distinct
+ * value combinations, not on the size of the catalog.</p>
+ *
+ * <p>The cells are stored in fixed-size chunks. {@link #snapshot()} returns a read-only cube
+ * that shares the chunks, and the first later change to a chunk copies it, the way
+ * {@link SegmentedObjectList} shares segments, so the tracking system can publish the cube
+ * with every catalog version without copying the totals. A snapshot still copies the distinct
+ * values and the chunk directory: one reference per 1024 cells, where the
+ * cell count is the product of the four dimensions' capacities, each the number of distinct
+ * values rounded up to a power of two. 256 countries, 8 orbit types, 8 object types and 128
+ * launch years make 2M cells and a directory of 2048 references.</p>
+ *
+ * <p>String values are grouped exactly as written; {@code null} is a value of its own.
+ * The object type is {@link SpaceObject#getObjectType()}.</p>
+ */
+public class RollupCube {
+    /** The dimensions of the cube. */
+    public enum Dimension { COUNTRY, ORBIT_TYPE, OBJECT_TYPE, LAUNCH_YEAR }
+
+    private static final int DIMENSIONS = 4;
+    private static final int INITIAL_CAPACITY = 4;
+
+    /**
+     * Measures stored per cell: object count and days-old total. Both come from fields
+     * without setters, so an object's contribution cannot change after it is added.
+     */
+    private static final int MEASURES = 2;
+    private static final int COUNT = 0;
+    private static final int DAYS_OLD = 1;
+
+    private static final int CHUNK_SHIFT = 10;
+    private static final int CHUNK_CELLS = 1 << CHUNK_SHIFT;
+
+    /** Codes of the string dimensions; cube code 0 is {@code null}, code {@code c + 1} is dictionary code {@code c}. */
+    private final StringDictionary[] dictionaries;
+    /** Cube code of each launch year. */
+    private final IntHashIndex yearCodes;
+
+    /** Value of each code of each dimension, and the number of codes in use. */
+    private final Object[][] values;
+    private final int[] sizes;
+
+    /** Number of codes each dimension has room for. */
+    private final int[] capacities;
+
+    /** Cell totals, {@link #MEASURES} longs per cell, {@link #CHUNK_CELLS} cells per chunk. */
+    private long[][] chunks;
+    /** Epoch each chunk was copied in; a chunk from an older epoch may be shared with a snapshot. */
+    private int[] chunkEpochs;
+    private int epoch;
+    private final boolean readOnly;
+
+    /** Creates an empty cube. */
+    public RollupCube() {
+        dictionaries = new StringDictionary[3];
+        for (int d = 0; d < dictionaries.length; d++) dictionaries[d] = new StringDictionary();
+        yearCodes = new IntHashIndex();
+        values = new Object[DIMENSIONS][INITIAL_CAPACITY];
+        sizes = new int[DIMENSIONS];
+        // Cube code 0 of each string dimension is null
+        for (int d = 0; d < 3; d++) sizes[d] = 1;
+        capacities = new int[DIMENSIONS];
+        Arrays.fill(capacities, INITIAL_CAPACITY);
+        chunks = new long[chunkCount(capacities)][];
+        chunkEpochs = new int[chunks.length];
+        readOnly = false;
+    }
+
+    private RollupCube(RollupCube other) {
+        dictionaries = null;
+        yearCodes = null;
+        values = new Object[DIMENSIONS][];
+        for (int d = 0; d < DIMENSIONS; d++) values[d] = Arrays.copyOf(other.values[d], other.sizes[d]);
+        sizes = other.sizes.clone();
+        capacities = other.capacities.clone();
+        chunks = other.chunks.clone();
+        readOnly = true;
+    }
+
+    /**
+     * Builds a cube over a sequence of objects.
+     *
+     * @param objects the objects to total; {@code null}s are skipped
+     * @return the cube
+     */
+    public static RollupCube build(Iterable<? extends SpaceObject> objects) {
+        RollupCube cube = new RollupCube();
+        for (SpaceObject obj : objects) {
+            if (obj != null) cube.add(obj);
+        }
+        return cube;
+    }
+
+    /**
+     * Returns a read-only copy of the cube as it is now. Copies the distinct values and the
+     * chunk directory, so costs O(distinct values + cells / 1024), where the
+     * cells are the product of the dimension capacities; the cells themselves are shared until
+     * this cube next changes them.
+     *
+     * @return the snapshot
+     */
+    public RollupCube snapshot() {
+        RollupCube snapshot = new RollupCube(this);
+        epoch++;
+        return snapshot;
+    }
+
+    /**
+     * Adds an object to the totals.
+     *
+     * @param obj the object
+     * @throws IllegalStateException if this cube is a snapshot
+     */
+    public void add(SpaceObject obj) {
+        update(obj, 1);
+    }
+
+    /**
+     * Removes an object previously added from the totals.
+     *
+     * @param obj the object, with the field values it was added with
+     * @throws IllegalStateException if this cube is a snapshot
+     */
+    public void remove(SpaceObject obj) {
+        update(obj, -1);
+    }
+
+    private void update(SpaceObject obj, int sign) {
+        if (readOnly) throw new IllegalStateException("A rollup cube snapshot is read-only");
+        int country = stringCode(0, obj.getCountry());
+        int orbitType = stringCode(1, obj.getOrbitType());
+        int objectType = stringCode(2, obj.getObjectType());
+        int launchYear = yearCode(obj.getLaunchYear());
+        if (country >= capacities[0] || orbitType >= capacities[1]
+                || objectType >= capacities[2] || launchYear >= capacities[3]) {
+            grow();
+        }
+        int cell = cell(capacities, country, orbitType, objectType, launchYear);
+        long[] chunk = writableChunk(cell >>> CHUNK_SHIFT);
+        int offset = (cell & (CHUNK_CELLS - 1)) * MEASURES;
+        chunk[offset + COUNT] += sign;
+        chunk[offset + DAYS_OLD] += sign * (long) obj.getDaysOld();
+    }
+
+    /**
+     * Adds the totals of another cube to this one. Values new to this cube get codes in the
+     * order the other cube first saw them, so merging cubes built over consecutive runs of
+     * objects gives the same cube, in the same order, as building one cube over all of them.
+     *
+     * @param other the cube to add
+     * @return this cube
+     * @throws IllegalStateException if this cube is a snapshot
+     */
+    public RollupCube merge(RollupCube other) {
+        if (readOnly) throw new IllegalStateException("A rollup cube snapshot is read-only");
+        int[][] codes = new int[DIMENSIONS][];
+        for (int d = 0; d < DIMENSIONS; d++) {
+            codes[d] = new int[other.sizes[d]];
+            for (int code = 0; code < codes[d].length; code++) {
+                Object value = other.values[d][code];
+                codes[d][code] = d < 3 ? stringCode(d, (String) value) : yearCode((Integer) value);
+            }
+        }
+        grow();
+        for (int c = 0; c < other.sizes[0]; c++) {
+            for (int o = 0; o < other.sizes[1]; o++) {
+                for (int t = 0; t < other.sizes[2]; t++) {
+                    for (int y = 0; y < other.sizes[3]; y++) {
+                        int from = cell(other.capacities, c, o, t, y);
+                        long[] otherChunk = other.chunks[from >>> CHUNK_SHIFT];
+                        if (otherChunk == null) continue;
+                        int fromOffset = (from & (CHUNK_CELLS - 1)) * MEASURES;
+                        if (otherChunk[fromOffset + COUNT] == 0) continue;
+                        int to = cell(capacities, codes[0][c], codes[1][o], codes[2][t], codes[3][y]);
+                        long[] chunk = writableChunk(to >>> CHUNK_SHIFT);
+                        int offset = (to & (CHUNK_CELLS - 1)) * MEASURES;
+                        for (int m = 0; m < MEASURES; m++) chunk[offset + m] += otherChunk[fromOffset + m];
+                    }
+                }
+            }
+        }
+        return this;
+    }
+
+    /** @return the number of objects in the cube */
+    public long count() {
+        long total = 0;
+        for (long[] chunk : chunks) {
+            if (chunk == null) continue;
+            for (int offset = COUNT; offset < chunk.length; offset += MEASURES) total += chunk[offset];
+        }
+        return total;
+    }
+
+    /**
+     * Totals the cube by some of its dimensions, like {@code GROUP BY} in SQL. With no
+     * dimensions, the result is the one grand total.
+     *
+     * @param dimensions the dimensions to group by, in the order of {@link Group#getKeys()}
+     * @return the non-empty groups, ordered by their values' first appearance in the cube
+     */
+    public List<Group> groupBy(Dimension... dimensions) {
+        // Stride of each cube dimension in the grouped totals, 0 for dimensions summed over
+        int[] strides = new int[DIMENSIONS];
+        boolean[] grouped = new boolean[DIMENSIONS];
+        int groups = 1;
+        for (int i = dimensions.length - 1; i >= 0; i--) {
+            int d = dimensions[i].ordinal();
+            if (grouped[d]) throw new IllegalArgumentException("Dimension " + dimensions[i] + " given twice");
+            grouped[d] = true;
+            strides[d] = groups;
+            groups *= sizes[d];
+        }
+
+        long[] totals = new long[groups * MEASURES];
+        for (int c = 0; c < sizes[0]; c++) {
+            for (int o = 0; o < sizes[1]; o++) {
+                for (int t = 0; t < sizes[2]; t++) {
+                    int base = cell(capacities, c, o, t, 0);
+                    int groupBase = c * strides[0] + o * strides[1] + t * strides[2];
+                    for (int y = 0; y < sizes[3]; y++) {
+                        long[] chunk = chunks[(base + y) >>> CHUNK_SHIFT];
+                        if (chunk == null) continue;
+                        int offset = ((base + y) & (CHUNK_CELLS - 1)) * MEASURES;
+                        if (chunk[offset + COUNT] == 0) continue;
+                        int group = (groupBase + y * strides[3]) * MEASURES;
+                        for (int m = 0; m < MEASURES; m++) totals[group + m] += chunk[offset + m];
+                    }
+                }
+            }
+        }
+
+        List<Group> result = new ArrayList<>();
+        for (int group = 0; group < groups; group++) {
+            int offset = group * MEASURES;
+            if (totals[offset + COUNT] == 0) continue;
+            Object[] keys = new Object[dimensions.length];
+            int rest = group;
+            for (int i = dimensions.length - 1; i >= 0; i--) {
+                int d = dimensions[i].ordinal();
+                keys[i] = values[d][rest % sizes[d]];
+                rest /= sizes[d];
+            }
+            result.add(new Group(keys, totals[offset + COUNT], totals[offset + DAYS_OLD]));
+        }
+        return result;
+    }
+
+    private int stringCode(int dimension, String value) {
+        int code = dictionaries[dimension].encode(value) + 1;
+        if (code == sizes[dimension]) addValue(dimension, value);
+        return code;
+    }
+
+    private int yearCode(int year) {
+        int code = yearCodes.get(year);
+        if (code == IntHashIndex.MISSING) {
+            code = sizes[3];
+            yearCodes.put(year, code);
+            addValue(3, year);
+        }
+        return code;
+    }
+
+    private void addValue(int dimension, Object value) {
+        int code = sizes[dimension]++;
+        if (code == values[dimension].length) values[dimension] = Arrays.copyOf(values[dimension], code * 2);
+        values[dimension][code] = value;
+    }
+
+    /**
+     * Returns a chunk this cube may change, copying it if a snapshot may share it.
+     */
+    private long[] writableChunk(int index) {
+        long[] chunk = chunks[index];
+        if (chunk == null) {
+            chunk = new long[CHUNK_CELLS * MEASURES];
+        } else if (chunkEpochs[index] != epoch) {
+            chunk = chunk.clone();
+        } else {
+            return chunk;
+        }
+        chunks[index] = chunk;
+        chunkEpochs[index] = epoch;
+        return chunk;
+    }
+
+    private static int cell(int[] capacities, int country, int orbitType, int objectType, int launchYear) {
+        return ((country * capacities[1] + orbitType) * capacities[2] + objectType) * capacities[3] + launchYear;
+    }
+
+    private static int chunkCount(int[] capacities) {
+        long cells = 1;
+        for (int capacity : capacities) cells *= capacity;
+        if (cells > Integer.MAX_VALUE) throw new IllegalStateException("Rollup cube has too many value combinations");
+        return (int) ((cells + CHUNK_CELLS - 1) >>> CHUNK_SHIFT);
+    }
+
+    /**
+     * Doubles the capacity of every dimension whose codes no longer fit, if any, moving the
+     * totals into new chunks.
+     */
+    private void grow() {
+        int[] newCapacities = capacities.clone();
+        for (int d = 0; d < DIMENSIONS; d++) {
+            while (sizes[d] > newCapacities[d]) newCapacities[d] *= 2;
+        }
+        if (Arrays.equals(newCapacities, capacities)) return;
+        long[][] newChunks = new long[chunkCount(newCapacities)][];
+        for (int c = 0; c < capacities[0]; c++) {
+            for (int o = 0; o < capacities[1]; o++) {
+                for (int t = 0; t < capacities[2]; t++) {
+                    for (int y = 0; y < capacities[3]; y++) {
+                        int from = cell(capacities, c, o, t, y);
+                        long[] chunk = chunks[from >>> CHUNK_SHIFT];
+                        if (chunk == null) continue;
+                        int fromOffset = (from & (CHUNK_CELLS - 1)) * MEASURES;
+                        if (chunk[fromOffset + COUNT] == 0) continue;
+                        int to = cell(newCapacities, c, o, t, y);
+                        long[] newChunk = newChunks[to >>> CHUNK_SHIFT];
+                        if (newChunk == null) newChunks[to >>> CHUNK_SHIFT] = newChunk = new long[CHUNK_CELLS * MEASURES];
+                        System.arraycopy(chunk, fromOffset, newChunk, (to & (CHUNK_CELLS - 1)) * MEASURES, MEASURES);
+                    }
+                }
+            }
+        }
+        System.arraycopy(newCapacities, 0, capacities, 0, DIMENSIONS);
+        chunks = newChunks;
+        // The new chunks belong to this cube alone
+        chunkEpochs = new int[newChunks.length];
+        Arrays.fill(chunkEpochs, epoch);
+    }
+
+    /**
+     * The totals of one group of a {@link #groupBy}.
+     */
+    public static final class Group {
+        private final List<Object> keys;
+        private final long count;
+        private final long daysOldSum;
+
+        private Group(Object[] keys, long count, long daysOldSum) {
+            this.keys = Collections.unmodifiableList(Arrays.asList(keys));
+            this.count = count;
+            this.daysOldSum = daysOldSum;
+        }
+
+        /** @return the group's value of each grouped dimension: a {@code String}, or an {@code Integer} launch year */
+        public List<Object> getKeys() { return keys; }
+
+        /** @return the number of objects in the group */
+        public long getCount() { return count; }
+
+        /** @return the total days since launch of the group */
+        public long getDaysOldSum() { return daysOldSum; }
+
+        /** @return the mean days since launch of the group */
+        public double getAverageDaysOld() { return (double) daysOldSum / count; }
+
+        @Override
+        public String toString() {
+            return keys + ": " + count + " objects";
+        }
+    }
+}
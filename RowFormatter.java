@@ -0,0 +1,145 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * The {@code RowFormatter} class is a row layout compiled once and applied to many rows: a
+ * fixed sequence of literal text and typed fields, each read from the row by an accessor.
+ *
+ * <p>It stands in for a {@code printf} call per row. The layout is not parsed again for each
+ * row, and primitive fields go from their accessors to a {@link CSVWriter} without boxing.
+ * Each field writes what the matching {@code printf} conversion would, as noted on the
+ * builder methods.</p>
+ *
+ * @param <T> the type of the rows
+ */
+public final class RowFormatter<T> {
+    private final Segment<T>[] segments;
+
+    private RowFormatter(Segment<T>[] segments) {
+        this.segments = segments;
+    }
+
+    /**
+     * Starts a layout.
+     *
+     * @param <T> the type of the rows
+     * @return a builder for the layout
+     */
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * Writes one row.
+     *
+     * @param out the writer
+     * @param row the row
+     * @throws IOException if the writer cannot write
+     */
+    public void write(CSVWriter out, T row) throws IOException {
+        for (Segment<T> segment : segments) {
+            segment.write(out, row);
+        }
+    }
+
+    /**
+     * Builds a {@link RowFormatter} one segment at a time, left to right.
+     *
+     * @param <T> the type of the rows
+     */
+    public static final class Builder<T> {
+        private final List<Segment<T>> segments = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Adds literal text.
+         *
+         * @param text the text
+         * @return this builder
+         */
+        public Builder<T> text(String text) {
+            segments.add((out, row) -> out.append(text));
+            return this;
+        }
+
+        /**
+         * Adds a string as {@code %s} writes it: as it is, and {@code "null"} for null.
+         *
+         * @param field the accessor
+         * @return this builder
+         */
+        public Builder<T> string(Function<T, String> field) {
+            segments.add((out, row) -> out.append(String.valueOf(field.apply(row))));
+            return this;
+        }
+
+        /**
+         * Adds a string escaped as {@link CSVTokenizer#escape} escapes it: quoted if needed,
+         * and empty for null.
+         *
+         * @param field the accessor
+         * @return this builder
+         */
+        public Builder<T> escaped(Function<T, String> field) {
+            segments.add((out, row) -> out.appendEscaped(field.apply(row)));
+            return this;
+        }
+
+        /**
+         * Adds an int as {@code %d} writes it.
+         *
+         * @param field the accessor
+         * @return this builder
+         */
+        public Builder<T> integer(ToIntFunction<T> field) {
+            segments.add((out, row) -> out.append(field.applyAsInt(row)));
+            return this;
+        }
+
+        /**
+         * Adds a double with fixed decimals, as {@code %.2f} writes it for two.
+         *
+         * @param field    the accessor
+         * @param decimals the number of decimals, at most eight
+         * @return this builder
+         */
+        public Builder<T> fixed(ToDoubleFunction<T> field, int decimals) {
+            segments.add((out, row) -> out.appendFixed(field.applyAsDouble(row), decimals));
+            return this;
+        }
+
+        /**
+         * Adds a boolean as {@code %b} writes it: {@code true} or {@code false}.
+         *
+         * @param field the accessor
+         * @return this builder
+         */
+        public Builder<T> bool(Predicate<T> field) {
+            segments.add((out, row) -> out.append(field.test(row) ? "true" : "false"));
+            return this;
+        }
+
+        /**
+         * Compiles the layout.
+         *
+         * @return the formatter
+         */
+        public RowFormatter<T> build() {
+            @SuppressWarnings("unchecked")
+            Segment<T>[] compiled = (Segment<T>[]) segments.toArray(new Segment<?>[0]);
+            return new RowFormatter<>(compiled);
+        }
+    }
+
+    /** One piece of a row. */
+    private interface Segment<T> {
+        void write(CSVWriter out, T row) throws IOException;
+    }
+}
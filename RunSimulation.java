@@ -9,9 +9,13 @@ import java.io.*;
  * <p>The system loads data from a CSV file and utilizes the {@link TrackingSystem} to provide tracking features.</p>
  */
 public class RunSimulation {
+    private static final String CATALOG_FILE = "rso_metrics_columns_jumbled.csv";
+    private static final String SNAPSHOT_FILE = "rso_catalog.snapshot";
+    private static final String REPORT_FILE = "updated_debris_report.csv";
     private static final Scanner scanner = new Scanner(System.in);
     private static final TrackingSystem trackingSystem = new TrackingSystem();
     private static final ImpactAnalysis ImpactAnalysis = new ImpactAnalysis();
+    private static final ReportChangeLog reportChangeLog = new ReportChangeLog(REPORT_FILE, CATALOG_FILE);
     private static Map<String, Boolean> loginStatus = new HashMap<>();
     /**
      * The main method launches the application, loads data from a CSV file,
@@ -21,6 +25,7 @@ public class RunSimulation {
      */
     public static void main(String[] args) {
         loadDataFromCSV(); // <-- Updated to read from CSV
+        trackingSystem.markClean(); // Exiting writes only what this session changed
 
         while (true) {
             System.out.println("\nSelect user type:");
@@ -49,7 +54,7 @@ public class RunSimulation {
                     break;
                 case "4":
                     LoggerUtility.log("Session ended by user.");
-                    ReportWriter.writeUpdatedReport(trackingSystem.getAllObjects(), "updated_debris_report.csv");
+                    writeUpdatedReport();
                     System.out.println("Exiting...");
                     return;
                 default:
@@ -59,6 +64,16 @@ public class RunSimulation {
         }
     }
 
+    // Appends this session's changes to the report's change log, or rewrites the report if it must
+    private static void writeUpdatedReport() {
+        try {
+            int rows = reportChangeLog.write(trackingSystem);
+            System.out.println("Updated debris tracking report written to: " + REPORT_FILE + " (" + rows + " rows written)");
+        } catch (IOException e) {
+            System.err.println("Error writing updated report: " + e.getMessage());
+        }
+    }
+
     private static boolean login(String userType) {
         // Check if already logged in
         if (loginStatus.getOrDefault(userType.toLowerCase(), false)) {
@@ -243,17 +258,47 @@ public class RunSimulation {
 
     /**
      * Loads space object data from a CSV file using {@link CSVReader}.
+     * If a binary snapshot of the same CSV, saved by the same loader version, exists, the
+     * catalog is loaded from it instead, which avoids a full text parse; otherwise the CSV
+     * is parsed and a fresh snapshot saved.
      * If successful, logs the event and informs the user; otherwise logs the error.
      */
     private static void loadDataFromCSV() {
+        loadDataFromCSV(trackingSystem, CATALOG_FILE, SNAPSHOT_FILE);
+    }
+
+    private static void loadDataFromCSV(TrackingSystem system, String catalogFile, String snapshotFile) {
+        // The snapshot must come from this very file, as the report change log checks it
+        String source = ReportChangeLog.fingerprint(catalogFile) + "|loader " + CSVReader.LOADER_VERSION;
+        if (new File(snapshotFile).isFile()) {
+            try {
+                system.loadSnapshot(snapshotFile, source);
+                LoggerUtility.log("System loaded data from snapshot " + snapshotFile + ".");
+                System.out.println("Data loaded successfully from rso_metrics.csv.");
+                return;
+            } catch (IOException e) {
+                LoggerUtility.log("Ignoring snapshot " + snapshotFile + ": " + e.getMessage());
+            }
+        }
+
         CSVReader reader = new CSVReader();
         try {
-            reader.loadObjects("rso_metrics_columns_jumbled.csv", trackingSystem);
-            LoggerUtility.log("System successfully loaded data from rso_metrics.csv.");
+            IngestSummary summary = reader.loadObjects(catalogFile, system);
+            LoggerUtility.log("System successfully loaded data from rso_metrics.csv. " + summary);
             System.out.println("Data loaded successfully from rso_metrics.csv.");
+            if (summary.getRowsSkipped() > 0 || summary.getFieldErrors().getTotal() > 0) {
+                System.out.println(summary);
+            }
         } catch (IOException e) {
             LoggerUtility.log("Error loading data from rso_metrics.csv: " + e.getMessage());
             System.out.println("Error loading CSV: " + e.getMessage() + ". Please restart the program.");
+            return;
+        }
+
+        try {
+            system.saveSnapshot(snapshotFile, source);
+        } catch (IOException e) {
+            LoggerUtility.log("Could not save snapshot " + snapshotFile + ": " + e.getMessage());
         }
     }
 
@@ -261,5 +306,10 @@ public class RunSimulation {
     public static void testableLoadDataFromCSV() {
         loadDataFromCSV();
     }
+
+    // Same, loading into the given system from the given files.
+    public static void testableLoadDataFromCSV(TrackingSystem system, String catalogFile, String snapshotFile) {
+        loadDataFromCSV(system, catalogFile, snapshotFile);
+    }
     
 }
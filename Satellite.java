@@ -37,6 +37,7 @@ public class Satellite extends SpaceObject implements Analyzable {
     }
 
     public void setConjunctionCount(int conjunctionCount) {
+        if (this.conjunctionCount != conjunctionCount) markDirty();
         this.conjunctionCount = conjunctionCount;
     }
 
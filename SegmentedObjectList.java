@@ -0,0 +1,220 @@
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The {@code SegmentedObjectList} class is the tracking system's object store: a growable
+ * list of {@link SpaceObject}s kept in fixed-size segments, able to hand out read-only
+ * snapshots in O(1).
+ *
+ * <p>A {@link #snapshot()} shares the current segments and remembers the current size.
+ * Appends only write past that size, so they never disturb an existing snapshot. Replacing
+ * an element copies its segment first if a snapshot may still be reading it
+ * (copy-on-write), so a snapshot keeps seeing exactly the objects it was taken with while
+ * the list keeps changing. The copy costs one segment, not the whole list.</p>
+ *
+ * <p>Elements may be set to {@code null}; snapshots show them as {@code null}, and
+ * {@link Snapshot#withoutNulls()} views a snapshot without them.</p>
+ */
+public class SegmentedObjectList extends AbstractList<SpaceObject> implements RandomAccess {
+    private static final int SEGMENT_SHIFT = 12;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    private SpaceObject[][] segments = new SpaceObject[16][];
+    private int size;
+
+    /** Incremented by every snapshot; a segment may be shared unless it was copied in this epoch. */
+    private int epoch;
+    /** Epoch in which each segment was created or last copied; never shared. */
+    private int[] segmentEpochs = new int[16];
+    /** Whether a snapshot holds the current {@code segments} array. */
+    private boolean segmentsShared;
+
+    /** Number of {@code null} elements in each segment. */
+    private int[] nullCounts = new int[16];
+    /** Number of {@code null} elements in the list. */
+    private int nullCount;
+    /** Whether a snapshot holds the current {@code nullCounts} array. */
+    private boolean nullCountsShared;
+
+    @Override
+    public SpaceObject get(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        return segments[index >>> SEGMENT_SHIFT][index & SEGMENT_MASK];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean add(SpaceObject obj) {
+        int segment = size >>> SEGMENT_SHIFT;
+        if (segment == segments.length) {
+            segments = Arrays.copyOf(segments, segments.length * 2);
+            segmentEpochs = Arrays.copyOf(segmentEpochs, segments.length);
+            nullCounts = Arrays.copyOf(nullCounts, segments.length);
+            segmentsShared = false;
+            nullCountsShared = false;
+        }
+        if (segments[segment] == null) {
+            // The new segment lies past every snapshot's size, so the shared array may take it
+            segments[segment] = new SpaceObject[SEGMENT_SIZE];
+            segmentEpochs[segment] = epoch;
+        }
+        segments[segment][size & SEGMENT_MASK] = obj;
+        if (obj == null) countNull(segment, 1);
+        size++;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public SpaceObject set(int index, SpaceObject obj) {
+        SpaceObject previous = get(index);
+        int segment = index >>> SEGMENT_SHIFT;
+        if (segmentEpochs[segment] != epoch) {
+            if (segmentsShared) {
+                segments = segments.clone();
+                segmentsShared = false;
+            }
+            segments[segment] = segments[segment].clone();
+            segmentEpochs[segment] = epoch;
+        }
+        segments[segment][index & SEGMENT_MASK] = obj;
+        if (previous == null && obj != null) countNull(segment, -1);
+        else if (previous != null && obj == null) countNull(segment, 1);
+        return previous;
+    }
+
+    /** Adjusts the {@code null} count of a segment, copying the counts if a snapshot holds them. */
+    private void countNull(int segment, int delta) {
+        if (nullCountsShared) {
+            nullCounts = nullCounts.clone();
+            nullCountsShared = false;
+        }
+        nullCounts[segment] += delta;
+        nullCount += delta;
+    }
+
+    /**
+     * Returns a read-only view of the list as it is now, in O(1). Later changes to this
+     * list do not show in the view.
+     *
+     * @return the snapshot
+     */
+    public Snapshot snapshot() {
+        epoch++;
+        segmentsShared = true;
+        nullCountsShared = true;
+        return new Snapshot(segments, size, nullCounts, nullCount);
+    }
+
+    /**
+     * An immutable view of a {@link SegmentedObjectList} at one point in time.
+     */
+    public static final class Snapshot extends AbstractList<SpaceObject> implements RandomAccess {
+        private final SpaceObject[][] segments;
+        private final int size;
+        private final int[] nullCounts;
+        private final int nullCount;
+        private volatile List<SpaceObject> withoutNulls;
+
+        private Snapshot(SpaceObject[][] segments, int size, int[] nullCounts, int nullCount) {
+            this.segments = segments;
+            this.size = size;
+            this.nullCounts = nullCounts;
+            this.nullCount = nullCount;
+        }
+
+        /** @return the number of {@code null} elements */
+        public int nullCount() {
+            return nullCount;
+        }
+
+        /**
+         * Returns a read-only view of the non-{@code null} elements, in order. The view
+         * costs O(segments) to create; its first access to each segment finds that
+         * segment's elements once, and later accesses cost O(log segments).
+         *
+         * @return this snapshot if it holds no {@code null}s, else the view
+         */
+        public List<SpaceObject> withoutNulls() {
+            if (nullCount == 0) return this;
+            List<SpaceObject> result = withoutNulls;
+            if (result == null) withoutNulls = result = new NonNullView(this);
+            return result;
+        }
+
+        @Override
+        public SpaceObject get(int index) {
+            if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            return segments[index >>> SEGMENT_SHIFT][index & SEGMENT_MASK];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * The non-{@code null} elements of a {@link Snapshot}.
+     */
+    private static final class NonNullView extends AbstractList<SpaceObject> implements RandomAccess {
+        private final Snapshot snapshot;
+        /** Number of non-{@code null} elements before each segment; the last entry is the size. */
+        private final int[] starts;
+        /** Index within the segment of each of its elements, found on first access. */
+        private final AtomicReferenceArray<short[]> positions;
+
+        NonNullView(Snapshot snapshot) {
+            this.snapshot = snapshot;
+            int segmentCount = (snapshot.size + SEGMENT_MASK) >>> SEGMENT_SHIFT;
+            starts = new int[segmentCount + 1];
+            for (int segment = 0; segment < segmentCount; segment++) {
+                int length = Math.min(SEGMENT_SIZE, snapshot.size - (segment << SEGMENT_SHIFT));
+                starts[segment + 1] = starts[segment] + length - snapshot.nullCounts[segment];
+            }
+            positions = new AtomicReferenceArray<>(segmentCount);
+        }
+
+        @Override
+        public SpaceObject get(int index) {
+            if (index < 0 || index >= size()) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+            int segment = Arrays.binarySearch(starts, index);
+            // Skip segments with no elements, which share their start with the next one
+            if (segment >= 0) {
+                while (starts[segment + 1] == index) segment++;
+            } else {
+                segment = -segment - 2;
+            }
+            return snapshot.segments[segment][positions(segment)[index - starts[segment]]];
+        }
+
+        @Override
+        public int size() {
+            return starts[starts.length - 1];
+        }
+
+        private short[] positions(int segment) {
+            short[] result = positions.get(segment);
+            if (result == null) {
+                SpaceObject[] elements = snapshot.segments[segment];
+                result = new short[starts[segment + 1] - starts[segment]];
+                int count = 0;
+                int length = Math.min(SEGMENT_SIZE, snapshot.size - (segment << SEGMENT_SHIFT));
+                for (int i = 0; i < length; i++) {
+                    if (elements[i] != null) result[count++] = (short) i;
+                }
+                // Two readers may both find them; either array is correct
+                positions.set(segment, result);
+            }
+            return result;
+        }
+    }
+}
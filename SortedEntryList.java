@@ -0,0 +1,387 @@
+import java.util.Arrays;
+
+/**
+ * The {@code SortedEntryList} class is a sorted list of {@code (long key, int row)} entries,
+ * kept in chunks of up to 1024 entries so it can be updated in place and
+ * copied cheaply. The catalog's category, longitude and geohash indexes are built on it.
+ *
+ * <p>Entries are ordered by key, then by row, and each entry is held at most once. Inserting
+ * or removing an entry moves entries within one chunk only; a full chunk is split in two.
+ * {@link #copy()} copies the chunk directory and shares the chunks themselves, and the first
+ * later change to a shared chunk copies it, the way {@link SegmentedObjectList} shares
+ * segments. A catalog version can therefore derive its index from the previous version's by
+ * applying just the changed rows, at a cost of one chunk per change plus the directory.</p>
+ *
+ * <p>Entries are found by position, 0 to {@link #size()} - 1, as in a sorted array.</p>
+ */
+public class SortedEntryList {
+    static final int MAX_CHUNK = 1024;
+    /** Entries per chunk when building, leaving room for inserts. */
+    private static final int BUILD_CHUNK = MAX_CHUNK * 3 / 4;
+
+    private long[][] keys = new long[4][];
+    private int[][] rows = new int[4][];
+    private int[] chunkSizes = new int[4];
+    /** Position of each chunk's first entry; {@code chunkStarts[chunkCount]} is the size. */
+    private int[] chunkStarts = new int[5];
+    private int chunkCount;
+
+    /** Incremented by every copy; a chunk may be shared unless it was copied in this epoch. */
+    private int epoch;
+    /** Epoch in which each chunk was created or last copied. */
+    private int[] chunkEpochs = new int[4];
+
+    /** Creates an empty list. */
+    public SortedEntryList() {
+    }
+
+    private SortedEntryList(SortedEntryList other) {
+        keys = other.keys.clone();
+        rows = other.rows.clone();
+        chunkSizes = other.chunkSizes.clone();
+        chunkStarts = other.chunkStarts.clone();
+        chunkCount = other.chunkCount;
+        // Every chunk starts out shared with the original
+        chunkEpochs = new int[other.chunkEpochs.length];
+        epoch = 1;
+    }
+
+    /**
+     * Builds a list from entries in any order. Duplicate entries are kept once.
+     *
+     * @param keys  the key of each entry
+     * @param rows  the row of each entry; must not be negative
+     * @param count the number of entries in use
+     * @return the list
+     */
+    public static SortedEntryList build(long[] keys, int[] rows, int count) {
+        int[] order = new int[count];
+        boolean sorted = true;
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+            if (i > 0 && compare(keys[i - 1], rows[i - 1], keys[i], rows[i]) > 0) sorted = false;
+        }
+        if (!sorted) order = sort(order, keys, rows);
+
+        SortedEntryList list = new SortedEntryList();
+        for (int i = 0; i < count; i++) {
+            int entry = order[i];
+            if (i > 0 && compare(keys[order[i - 1]], rows[order[i - 1]], keys[entry], rows[entry]) == 0) continue;
+            int chunk = list.chunkCount - 1;
+            if (chunk < 0 || list.chunkSizes[chunk] == BUILD_CHUNK) {
+                chunk = list.chunkCount;
+                list.insertChunk(chunk, new long[MAX_CHUNK], new int[MAX_CHUNK], 0);
+            }
+            int at = list.chunkSizes[chunk]++;
+            list.keys[chunk][at] = keys[entry];
+            list.rows[chunk][at] = rows[entry];
+            list.chunkStarts[chunk + 1]++;
+        }
+        return list;
+    }
+
+    /**
+     * Returns a copy that shares this list's chunks until either list next changes them.
+     * Costs O(size / 1024).
+     *
+     * @return the copy
+     */
+    public SortedEntryList copy() {
+        SortedEntryList copy = new SortedEntryList(this);
+        epoch++;
+        return copy;
+    }
+
+    /** @return the number of entries */
+    public int size() {
+        return chunkStarts[chunkCount];
+    }
+
+    /**
+     * Adds an entry.
+     *
+     * @param key the entry's key
+     * @param row the entry's row; must not be negative
+     * @return {@code true} if the entry was added, {@code false} if it was already present
+     */
+    public boolean insert(long key, int row) {
+        if (row < 0) throw new IllegalArgumentException("Row must not be negative: " + row);
+        if (chunkCount == 0) insertChunk(0, new long[MAX_CHUNK], new int[MAX_CHUNK], 0);
+        int chunk = Math.max(0, chunkAtOrBefore(key, row));
+        int at = search(chunk, key, row);
+        if (at >= 0) return false;
+        at = -at - 1;
+
+        if (chunkSizes[chunk] == MAX_CHUNK) {
+            // Move the upper half to a new chunk after this one
+            int half = MAX_CHUNK / 2;
+            long[] upperKeys = new long[MAX_CHUNK];
+            int[] upperRows = new int[MAX_CHUNK];
+            System.arraycopy(keys[chunk], half, upperKeys, 0, MAX_CHUNK - half);
+            System.arraycopy(rows[chunk], half, upperRows, 0, MAX_CHUNK - half);
+            writable(chunk);
+            chunkSizes[chunk] = half;
+            insertChunk(chunk + 1, upperKeys, upperRows, MAX_CHUNK - half);
+            chunkStarts[chunk + 1] = chunkStarts[chunk] + half;
+            if (at > half) {
+                chunk++;
+                at -= half;
+            }
+        }
+
+        writable(chunk);
+        int size = chunkSizes[chunk];
+        System.arraycopy(keys[chunk], at, keys[chunk], at + 1, size - at);
+        System.arraycopy(rows[chunk], at, rows[chunk], at + 1, size - at);
+        keys[chunk][at] = key;
+        rows[chunk][at] = row;
+        chunkSizes[chunk]++;
+        for (int c = chunk + 1; c <= chunkCount; c++) chunkStarts[c]++;
+        return true;
+    }
+
+    /**
+     * Removes an entry.
+     *
+     * @param key the entry's key
+     * @param row the entry's row
+     * @return {@code true} if the entry was removed, {@code false} if it was not present
+     */
+    public boolean remove(long key, int row) {
+        int chunk = chunkAtOrBefore(key, row);
+        if (chunk < 0) return false;
+        int at = search(chunk, key, row);
+        if (at < 0) return false;
+
+        int size = chunkSizes[chunk];
+        if (size == 1) {
+            removeChunk(chunk);
+        } else {
+            writable(chunk);
+            System.arraycopy(keys[chunk], at + 1, keys[chunk], at, size - at - 1);
+            System.arraycopy(rows[chunk], at + 1, rows[chunk], at, size - at - 1);
+            chunkSizes[chunk]--;
+        }
+        for (int c = chunk + 1; c <= chunkCount; c++) chunkStarts[c]--;
+        return true;
+    }
+
+    /**
+     * Counts the entries below {@code (key, row)}, which is the position that entry has or
+     * would have.
+     *
+     * @param key the key
+     * @param row the row
+     * @return the number of entries ordered before the given one
+     */
+    public int position(long key, int row) {
+        int chunk = chunkAtOrBefore(key, row);
+        if (chunk < 0) return 0;
+        int at = search(chunk, key, row);
+        return chunkStarts[chunk] + (at >= 0 ? at : -at - 1);
+    }
+
+    /**
+     * @param key the key
+     * @return the position of the first entry whose key is at least {@code key}
+     */
+    public int lowerBound(long key) {
+        return position(key, Integer.MIN_VALUE);
+    }
+
+    /**
+     * @param key the key
+     * @return the position of the first entry whose key is above {@code key}
+     */
+    public int upperBound(long key) {
+        // Rows are never negative, so no entry sorts between (key, MAX_VALUE) and the next key
+        return key == Long.MAX_VALUE ? size() : position(key + 1, Integer.MIN_VALUE);
+    }
+
+    /**
+     * @param position the entry's position
+     * @return the key of the entry
+     */
+    public long key(int position) {
+        int chunk = chunkOf(position);
+        return keys[chunk][position - chunkStarts[chunk]];
+    }
+
+    /**
+     * Copies the rows of the entries in positions {@code [from, to)}, in entry order.
+     *
+     * @param from first position, inclusive
+     * @param to   last position, exclusive
+     * @return the rows
+     */
+    public int[] rows(int from, int to) {
+        int[] result = new int[Math.max(0, to - from)];
+        forEach(from, to, new Visitor() {
+            private int next;
+
+            @Override
+            public void visit(long key, int row) {
+                result[next++] = row;
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Visits the entries in positions {@code [from, to)}, in entry order.
+     *
+     * @param from    first position, inclusive
+     * @param to      last position, exclusive
+     * @param visitor receives each entry
+     */
+    public void forEach(int from, int to, Visitor visitor) {
+        if (from >= to) return;
+        int chunk = chunkOf(from);
+        int at = from - chunkStarts[chunk];
+        for (int position = from; position < to; chunk++, at = 0) {
+            long[] chunkKeys = keys[chunk];
+            int[] chunkRows = rows[chunk];
+            int end = Math.min(chunkSizes[chunk], at + to - position);
+            for (int i = at; i < end; i++) {
+                visitor.visit(chunkKeys[i], chunkRows[i]);
+            }
+            position += end - at;
+        }
+    }
+
+    /**
+     * Receives entries from {@link #forEach}.
+     */
+    public interface Visitor {
+        /**
+         * @param key the entry's key
+         * @param row the entry's row
+         */
+        void visit(long key, int row);
+    }
+
+    /** Orders entries by key, then row. */
+    private static int compare(long keyA, int rowA, long keyB, int rowB) {
+        int byKey = Long.compare(keyA, keyB);
+        return byKey != 0 ? byKey : Integer.compare(rowA, rowB);
+    }
+
+    /** The last chunk whose first entry is at or before the given one; -1 if there is none. */
+    private int chunkAtOrBefore(long key, int row) {
+        int low = 0;
+        int high = chunkCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(keys[mid][0], rows[mid][0], key, row) <= 0) low = mid + 1;
+            else high = mid;
+        }
+        return low - 1;
+    }
+
+    /** The chunk holding a position. */
+    private int chunkOf(int position) {
+        int low = 0;
+        int high = chunkCount - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (chunkStarts[mid] <= position) low = mid;
+            else high = mid - 1;
+        }
+        return low;
+    }
+
+    /** Binary search within a chunk, returning the index or {@code -(insertion point) - 1}. */
+    private int search(int chunk, long key, int row) {
+        long[] chunkKeys = keys[chunk];
+        int[] chunkRows = rows[chunk];
+        int low = 0;
+        int high = chunkSizes[chunk] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int order = compare(chunkKeys[mid], chunkRows[mid], key, row);
+            if (order < 0) low = mid + 1;
+            else if (order > 0) high = mid - 1;
+            else return mid;
+        }
+        return -low - 1;
+    }
+
+    /** Makes a chunk safe to change, copying it if a copy of this list may share it. */
+    private void writable(int chunk) {
+        if (chunkEpochs[chunk] == epoch) return;
+        keys[chunk] = keys[chunk].clone();
+        rows[chunk] = rows[chunk].clone();
+        chunkEpochs[chunk] = epoch;
+    }
+
+    /**
+     * Inserts a chunk into the directory, starting where the chunk it displaces started.
+     * The starts of the later chunks are left to the caller.
+     */
+    private void insertChunk(int chunk, long[] chunkKeys, int[] chunkRows, int size) {
+        if (chunkCount == keys.length) {
+            int capacity = keys.length * 2;
+            keys = Arrays.copyOf(keys, capacity);
+            rows = Arrays.copyOf(rows, capacity);
+            chunkSizes = Arrays.copyOf(chunkSizes, capacity);
+            chunkEpochs = Arrays.copyOf(chunkEpochs, capacity);
+            chunkStarts = Arrays.copyOf(chunkStarts, capacity + 1);
+        }
+        int moved = chunkCount - chunk;
+        System.arraycopy(keys, chunk, keys, chunk + 1, moved);
+        System.arraycopy(rows, chunk, rows, chunk + 1, moved);
+        System.arraycopy(chunkSizes, chunk, chunkSizes, chunk + 1, moved);
+        System.arraycopy(chunkEpochs, chunk, chunkEpochs, chunk + 1, moved);
+        System.arraycopy(chunkStarts, chunk, chunkStarts, chunk + 1, moved + 1);
+        keys[chunk] = chunkKeys;
+        rows[chunk] = chunkRows;
+        chunkSizes[chunk] = size;
+        // A new chunk belongs to this list alone
+        chunkEpochs[chunk] = epoch;
+        chunkCount++;
+    }
+
+    /**
+     * Drops a chunk holding a single entry from the directory. The starts of the later
+     * chunks still count that entry; the caller moves them back by one.
+     */
+    private void removeChunk(int chunk) {
+        int moved = chunkCount - chunk - 1;
+        System.arraycopy(keys, chunk + 1, keys, chunk, moved);
+        System.arraycopy(rows, chunk + 1, rows, chunk, moved);
+        System.arraycopy(chunkSizes, chunk + 1, chunkSizes, chunk, moved);
+        System.arraycopy(chunkEpochs, chunk + 1, chunkEpochs, chunk, moved);
+        System.arraycopy(chunkStarts, chunk + 2, chunkStarts, chunk + 1, moved);
+        chunkCount--;
+        keys[chunkCount] = null;
+        rows[chunkCount] = null;
+    }
+
+    /**
+     * Stable bottom-up merge sort of entry numbers by key and row, on primitive arrays.
+     */
+    private static int[] sort(int[] order, long[] keys, int[] rows) {
+        int n = order.length;
+        int[] buffer = new int[n];
+        for (int width = 1; width < n; width *= 2) {
+            for (int low = 0; low < n; low += 2 * width) {
+                int mid = Math.min(low + width, n);
+                int high = Math.min(low + 2 * width, n);
+                int left = low;
+                int right = mid;
+                for (int out = low; out < high; out++) {
+                    if (left < mid && (right >= high
+                            || compare(keys[order[left]], rows[order[left]], keys[order[right]], rows[order[right]]) <= 0)) {
+                        buffer[out] = order[left++];
+                    } else {
+                        buffer[out] = order[right++];
+                    }
+                }
+            }
+            int[] swap = order;
+            order = buffer;
+            buffer = swap;
+        }
+        return order;
+    }
+}
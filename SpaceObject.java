@@ -1,3 +1,5 @@
+import java.util.Objects;
+
 /**
  * The {@code SpaceObject} class serves as an abstract representation of a tracked object in space.
  * It stores shared attributes for objects such as satellites, debris, payloads, or rocket bodies.
@@ -35,6 +37,9 @@ public abstract class SpaceObject {
     private double deltaV90Day;
     private boolean hasSisterDebris;
 
+    /** Set when a setter changes a report column; new objects start out changed. */
+    private boolean dirty = true;
+
     /**
      * Constructs a new {@code SpaceObject} with the given parameters.
      *
@@ -68,6 +73,45 @@ public abstract class SpaceObject {
         this.daysOld = daysOld;
     }
 
+    /**
+     * Creates the subclass of {@code SpaceObject} matching a catalog object type.
+     * "DEBRIS", "PAYLOAD" and "ROCKET BODY" are matched case-insensitively; any other
+     * type yields an {@link UnknownObject}.
+     *
+     * @param recordId          Unique record ID
+     * @param noradId           NORAD catalog ID
+     * @param name              Name of the object
+     * @param country           Launching country
+     * @param orbitType         Orbit type (LEO, GEO, etc.)
+     * @param objectType        Type of object as written in the catalog
+     * @param launchYear        Launch year
+     * @param launchSite        Launch site location
+     * @param longitude         Current longitude
+     * @param avgLongitude      Average longitude
+     * @param geoHash           Geohash location
+     * @param daysOld           Number of days since launch
+     * @param conjunctionCount  Number of recorded conjunctions
+     * @return the new space object
+     */
+    public static SpaceObject create(int recordId, int noradId, String name, String country, String orbitType,
+                                     String objectType, int launchYear, String launchSite, double longitude,
+                                     double avgLongitude, String geoHash, int daysOld, int conjunctionCount) {
+        switch (objectType == null ? "" : objectType.toUpperCase()) {
+            case "DEBRIS":
+                return new Debris(recordId, noradId, name, country, orbitType, objectType,
+                        launchYear, launchSite, longitude, avgLongitude, geoHash, daysOld, conjunctionCount);
+            case "PAYLOAD":
+                return new Satellite(recordId, noradId, name, country, orbitType, objectType,
+                        launchYear, launchSite, longitude, avgLongitude, geoHash, daysOld, conjunctionCount);
+            case "ROCKET BODY":
+                return new RocketBody(recordId, noradId, name, country, orbitType, objectType,
+                        launchYear, launchSite, longitude, avgLongitude, geoHash, daysOld, conjunctionCount);
+            default:
+                return new UnknownObject(recordId, noradId, name, country, orbitType, objectType,
+                        launchYear, launchSite, longitude, avgLongitude, geoHash, daysOld, conjunctionCount);
+        }
+    }
+
     /**
      * Returns the specific type of space object (e.g., Debris, Payload).
      * This method must be implemented by subclasses.
@@ -79,6 +123,9 @@ public abstract class SpaceObject {
     /** @return Record ID of the space object */
     public int getRecordId() { return recordId; }
 
+    /** @return NORAD catalog ID of the space object */
+    public int getNoradId() { return noradId; }
+
     /** @return Name of the satellite or object */
     public String getSatelliteName() { return name; }
 
@@ -107,46 +154,88 @@ public abstract class SpaceObject {
     public int getDaysOld() { return daysOld; }
 
     public String getHRRCategory() { return hrrCategory; }
-    public void setHRRCategory(String hrrCategory) { this.hrrCategory = hrrCategory; }
+    public void setHRRCategory(String hrrCategory) {
+        if (!Objects.equals(this.hrrCategory, hrrCategory)) dirty = true;
+        this.hrrCategory = hrrCategory;
+    }
 
     public boolean isNominated() { return nominated; }
-    public void setNominated(boolean nominated) { this.nominated = nominated; }
+    public void setNominated(boolean nominated) {
+        if (this.nominated != nominated) dirty = true;
+        this.nominated = nominated;
+    }
 
     public String getNominatedAt() { return nominatedAt; }
-    public void setNominatedAt(String nominatedAt) { this.nominatedAt = nominatedAt; }
+    public void setNominatedAt(String nominatedAt) {
+        if (!Objects.equals(this.nominatedAt, nominatedAt)) dirty = true;
+        this.nominatedAt = nominatedAt;
+    }
 
     public boolean hasDossier() { return hasDossier; }
-    public void setHasDossier(boolean hasDossier) { this.hasDossier = hasDossier; }
+    public void setHasDossier(boolean hasDossier) {
+        if (this.hasDossier != hasDossier) dirty = true;
+        this.hasDossier = hasDossier;
+    }
 
     public String getLastUpdatedAt() { return lastUpdatedAt; }
-    public void setLastUpdatedAt(String lastUpdatedAt) { this.lastUpdatedAt = lastUpdatedAt; }
+    public void setLastUpdatedAt(String lastUpdatedAt) {
+        if (!Objects.equals(this.lastUpdatedAt, lastUpdatedAt)) dirty = true;
+        this.lastUpdatedAt = lastUpdatedAt;
+    }
 
     public String getJustification() { return justification; }
-    public void setJustification(String justification) { this.justification = justification; }
+    public void setJustification(String justification) {
+        if (!Objects.equals(this.justification, justification)) dirty = true;
+        this.justification = justification;
+    }
 
     public String getFocusedAnalysis() { return focusedAnalysis; }
-    public void setFocusedAnalysis(String focusedAnalysis) { this.focusedAnalysis = focusedAnalysis; }
+    public void setFocusedAnalysis(String focusedAnalysis) {
+        if (!Objects.equals(this.focusedAnalysis, focusedAnalysis)) dirty = true;
+        this.focusedAnalysis = focusedAnalysis;
+    }
 
     public int getConjunctionCount() { return conjunctionCount; }
-    public void setConjunctionCount(int conjunctionCount) { this.conjunctionCount = conjunctionCount; }
+    public void setConjunctionCount(int conjunctionCount) {
+        if (this.conjunctionCount != conjunctionCount) dirty = true;
+        this.conjunctionCount = conjunctionCount;
+    }
 
     public boolean isUnknownObject() { return unknownObject; }
-    public void setUnknownObject(boolean unknownObject) { this.unknownObject = unknownObject; }
+    public void setUnknownObject(boolean unknownObject) {
+        if (this.unknownObject != unknownObject) dirty = true;
+        this.unknownObject = unknownObject;
+    }
 
     public int getAllManeuvers() { return allManeuvers; }
-    public void setAllManeuvers(int allManeuvers) { this.allManeuvers = allManeuvers; }
+    public void setAllManeuvers(int allManeuvers) {
+        if (this.allManeuvers != allManeuvers) dirty = true;
+        this.allManeuvers = allManeuvers;
+    }
 
     public int getDaysSinceOb() { return daysSinceOb; }
-    public void setDaysSinceOb(int daysSinceOb) { this.daysSinceOb = daysSinceOb; }
+    public void setDaysSinceOb(int daysSinceOb) {
+        if (this.daysSinceOb != daysSinceOb) dirty = true;
+        this.daysSinceOb = daysSinceOb;
+    }
 
     public int getRecentManeuvers() { return recentManeuvers; }
-    public void setRecentManeuvers(int recentManeuvers) { this.recentManeuvers = recentManeuvers; }
+    public void setRecentManeuvers(int recentManeuvers) {
+        if (this.recentManeuvers != recentManeuvers) dirty = true;
+        this.recentManeuvers = recentManeuvers;
+    }
 
     public double getDeltaV90Day() { return deltaV90Day; }
-    public void setDeltaV90Day(double deltaV90Day) { this.deltaV90Day = deltaV90Day; }
+    public void setDeltaV90Day(double deltaV90Day) {
+        if (this.deltaV90Day != deltaV90Day) dirty = true;
+        this.deltaV90Day = deltaV90Day;
+    }
 
     public boolean hasSisterDebris() { return hasSisterDebris; }
-    public void setHasSisterDebris(boolean hasSisterDebris) { this.hasSisterDebris = hasSisterDebris; }
+    public void setHasSisterDebris(boolean hasSisterDebris) {
+        if (this.hasSisterDebris != hasSisterDebris) dirty = true;
+        this.hasSisterDebris = hasSisterDebris;
+    }
 
 
     /**
@@ -195,4 +284,30 @@ public abstract class SpaceObject {
     public void setRiskLevel(String riskLevel) {
         this.riskLevel = riskLevel;
     }
+
+    /**
+     * Tells whether a setter has changed one of the object's {@link ReportWriter} columns
+     * since it was created or last marked clean. Setting a value it already has does not
+     * count as a change, and neither does the assessed orbit status or risk level, which
+     * the report does not hold.
+     *
+     * @return true if the object has changed
+     */
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * Records a change made by a subclass setter.
+     */
+    protected void markDirty() {
+        dirty = true;
+    }
+
+    /**
+     * Forgets the changes made so far, once they have been written out.
+     */
+    public void markClean() {
+        dirty = false;
+    }
 }
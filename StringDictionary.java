@@ -0,0 +1,78 @@
+import java.util.*;
+
+/**
+ * The {@code StringDictionary} class assigns a dense integer code to each distinct string
+ * it sees. Codes start at 0 in order of first appearance; {@code null} is always code -1.
+ *
+ * <p>Catalog columns such as country, launch site and orbit type hold only a few dozen
+ * distinct values, so storing a code per object instead of a string is much smaller and
+ * lets values be compared as integers.</p>
+ */
+public class StringDictionary {
+    /** Code used for {@code null}. */
+    public static final int NULL_CODE = -1;
+
+    private final Map<String, Integer> codes;
+    private final List<String> values;
+
+    /** Creates an empty dictionary. */
+    public StringDictionary() {
+        codes = new HashMap<>();
+        values = new ArrayList<>();
+    }
+
+    /**
+     * Creates a dictionary holding the same codes as another, which later codes added to
+     * either dictionary do not affect.
+     *
+     * @param other the dictionary to copy
+     */
+    public StringDictionary(StringDictionary other) {
+        codes = new HashMap<>(other.codes);
+        values = new ArrayList<>(other.values);
+    }
+
+    /**
+     * Returns the code for a value, adding the value if it is new.
+     *
+     * @param value the value to encode, may be {@code null}
+     * @return the value's code
+     */
+    public int encode(String value) {
+        if (value == null) return NULL_CODE;
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = values.size();
+            codes.put(value, code);
+            values.add(value);
+        }
+        return code;
+    }
+
+    /**
+     * Returns the code for a value without adding it.
+     *
+     * @param value the value to look up, may be {@code null}
+     * @return the value's code, or {@link #NULL_CODE} if it is {@code null} or unknown
+     */
+    public int lookup(String value) {
+        if (value == null) return NULL_CODE;
+        Integer code = codes.get(value);
+        return code == null ? NULL_CODE : code;
+    }
+
+    /**
+     * Returns the value for a code.
+     *
+     * @param code a code returned by {@link #encode}
+     * @return the value, or {@code null} for {@link #NULL_CODE}
+     */
+    public String decode(int code) {
+        return code == NULL_CODE ? null : values.get(code);
+    }
+
+    /** @return the number of distinct non-null values */
+    public int size() {
+        return values.size();
+    }
+}
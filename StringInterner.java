@@ -0,0 +1,95 @@
+/**
+ * The {@code StringInterner} class returns one canonical {@code String} instance for each
+ * distinct character sequence it is given, looking sequences up straight from a
+ * {@code char[]} range so that a value already seen costs no allocation.
+ *
+ * <p>Fields like country, orbit type, object type, launch site and geohash repeat across
+ * most of a catalog. Interning them while ingesting means each distinct value is stored
+ * once, and objects built from the same interner can compare these fields by identity.
+ * Unlike {@link String#intern()}, the table belongs to the caller and is dropped with it.</p>
+ *
+ * <p>An interner is not thread-safe; give each parsing thread its own.</p>
+ */
+public class StringInterner {
+    /** Largest value worth interning; longer values are copied as-is. */
+    private static final int MAX_LENGTH = 64;
+
+    private String[] table = new String[256];
+    private int[] hashes = new int[256];
+    private int size;
+
+    /**
+     * Returns the canonical string for {@code chars[start, end)}.
+     *
+     * @param chars buffer holding the characters
+     * @param start index of the first character
+     * @param end   index after the last character
+     * @return the interned string
+     */
+    public String intern(char[] chars, int start, int end) {
+        int length = end - start;
+        if (length == 0) return "";
+        if (length > MAX_LENGTH) return new String(chars, start, length);
+
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + chars[i];
+        }
+
+        int mask = table.length - 1;
+        int slot = spread(hash) & mask;
+        String value;
+        while ((value = table[slot]) != null) {
+            if (hashes[slot] == hash && matches(value, chars, start, length)) return value;
+            slot = (slot + 1) & mask;
+        }
+
+        value = new String(chars, start, length);
+        table[slot] = value;
+        hashes[slot] = hash;
+        if (++size * 2 > table.length) rehash();
+        return value;
+    }
+
+    /**
+     * Returns the canonical instance of a string.
+     *
+     * @param value the string, may be {@code null}
+     * @return the interned string, or {@code null}
+     */
+    public String intern(String value) {
+        return value == null ? null : intern(value.toCharArray(), 0, value.length());
+    }
+
+    /** @return the number of distinct values interned */
+    public int size() {
+        return size;
+    }
+
+    private static boolean matches(String value, char[] chars, int start, int length) {
+        if (value.length() != length) return false;
+        for (int i = 0; i < length; i++) {
+            if (value.charAt(i) != chars[start + i]) return false;
+        }
+        return true;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private void rehash() {
+        String[] oldTable = table;
+        int[] oldHashes = hashes;
+        table = new String[oldTable.length * 2];
+        hashes = new int[oldTable.length * 2];
+        int mask = table.length - 1;
+        for (int i = 0; i < oldTable.length; i++) {
+            if (oldTable[i] == null) continue;
+            int slot = spread(oldHashes[i]) & mask;
+            while (table[slot] != null) slot = (slot + 1) & mask;
+            table[slot] = oldTable[i];
+            hashes[slot] = oldHashes[i];
+        }
+    }
+}
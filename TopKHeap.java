@@ -0,0 +1,173 @@
+import java.util.Arrays;
+
+/**
+ * The {@code TopKHeap} class keeps the {@code k} highest-scoring rows offered to it in a
+ * bounded binary min-heap over parallel primitive arrays, so ranking {@code n} rows costs
+ * O(n log k) time and O(k) space instead of sorting all {@code n}.
+ *
+ * <p>Rows with equal scores rank by row number, lowest first, so the result does not depend
+ * on the order rows were offered in. That makes it safe to fill one heap per thread over
+ * separate row ranges and {@link #merge} them afterwards. Scores compare as by
+ * {@link Double#compare}.</p>
+ */
+public class TopKHeap {
+    private final int capacity;
+    /** Heap of entries; the root is the lowest-ranked entry kept. */
+    private double[] scores;
+    private int[] rows;
+    private int size;
+
+    /**
+     * Creates an empty heap.
+     *
+     * @param k the number of rows to keep
+     */
+    public TopKHeap(int k) {
+        if (k < 0) throw new IllegalArgumentException("k must not be negative");
+        capacity = k;
+        // Grown on demand, so a large k over a small catalog stays small
+        scores = new double[Math.min(k, 16)];
+        rows = new int[scores.length];
+    }
+
+    private TopKHeap(TopKHeap other) {
+        capacity = other.capacity;
+        scores = other.scores.clone();
+        rows = other.rows.clone();
+        size = other.size;
+    }
+
+    /** @return a copy of this heap that can be offered more rows independently */
+    public TopKHeap copy() {
+        return new TopKHeap(this);
+    }
+
+    /** @return the number of rows this heap keeps at most */
+    public int capacity() {
+        return capacity;
+    }
+
+    /** @return the number of rows kept so far */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Offers a row. It is kept if the heap is not yet full or it outranks the lowest row kept.
+     *
+     * @param score the row's score
+     * @param row   the row number
+     */
+    public void offer(double score, int row) {
+        if (size < capacity) {
+            if (size == scores.length) grow();
+            scores[size] = score;
+            rows[size] = row;
+            siftUp(size++);
+        } else if (size > 0 && ranksBelow(scores[0], rows[0], score, row)) {
+            scores[0] = score;
+            rows[0] = row;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Offers every row kept by another heap, which must have been filled from different rows.
+     *
+     * @param other the heap to merge into this one
+     */
+    public void merge(TopKHeap other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.scores[i], other.rows[i]);
+        }
+    }
+
+    /**
+     * Returns the rows kept, highest score first.
+     *
+     * @return the ranked row numbers
+     */
+    public int[] rows() {
+        return ranked(size);
+    }
+
+    /**
+     * Returns the first {@code k} rows kept, highest score first.
+     *
+     * @param k the number of rows wanted; at most {@link #capacity()}
+     * @return the ranked row numbers
+     */
+    public int[] rows(int k) {
+        return ranked(Math.min(k, size));
+    }
+
+    /**
+     * Tells whether a row is kept. Costs O(k).
+     *
+     * @param row the row number
+     * @return whether the row is among the kept rows
+     */
+    public boolean contains(int row) {
+        for (int i = 0; i < size; i++) {
+            if (rows[i] == row) return true;
+        }
+        return false;
+    }
+
+    private int[] ranked(int k) {
+        TopKHeap heap = copy();
+        int[] result = new int[heap.size];
+        // Polling the root yields the kept rows from lowest to highest rank
+        for (int i = heap.size - 1; i >= 0; i--) {
+            result[i] = heap.rows[0];
+            heap.size--;
+            heap.scores[0] = heap.scores[heap.size];
+            heap.rows[0] = heap.rows[heap.size];
+            heap.siftDown(0);
+        }
+        return k == result.length ? result : Arrays.copyOf(result, k);
+    }
+
+    /** Tells whether entry {@code (scoreA, rowA)} ranks below entry {@code (scoreB, rowB)}. */
+    private static boolean ranksBelow(double scoreA, int rowA, double scoreB, int rowB) {
+        int c = Double.compare(scoreA, scoreB);
+        return c < 0 || (c == 0 && rowA > rowB);
+    }
+
+    private void siftUp(int i) {
+        double score = scores[i];
+        int row = rows[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!ranksBelow(score, row, scores[parent], rows[parent])) break;
+            scores[i] = scores[parent];
+            rows[i] = rows[parent];
+            i = parent;
+        }
+        scores[i] = score;
+        rows[i] = row;
+    }
+
+    private void siftDown(int i) {
+        double score = scores[i];
+        int row = rows[i];
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < size && ranksBelow(scores[right], rows[right], scores[child], rows[child])) child = right;
+            if (!ranksBelow(scores[child], rows[child], score, row)) break;
+            scores[i] = scores[child];
+            rows[i] = rows[child];
+            i = child;
+        }
+        scores[i] = score;
+        rows[i] = row;
+    }
+
+    private void grow() {
+        int length = (int) Math.min(capacity, scores.length * 2L);
+        scores = Arrays.copyOf(scores, length);
+        rows = Arrays.copyOf(rows, length);
+    }
+}
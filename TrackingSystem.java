@@ -1,36 +1,461 @@
 import java.util.*;
-import java.io.PrintWriter;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.io.IOException;
 
 /**
  * The {@code TrackingSystem} class manages a list of tracked space objects.
  * It allows filtering, displaying, and assessing the orbital status of these objects,
  * and can export relevant data to CSV and text files.
+ *
+ * <p>A tracking system may be read by any number of threads while one thread writes to it.
+ * Writes ({@link #addObject}, {@link #upsertObject}, {@link #removeObject}, loads and
+ * assessments) take a writer lock, so writers run one at a time. Every read works on the
+ * latest published {@link CatalogVersion}, fetched with one volatile read and no lock, so
+ * reads never wait for a writer and always see a consistent catalog. A write publishes a
+ * new version when it completes; between {@link #beginUpdate()} and {@link #endUpdate()}
+ * the version is published once, at the end, so readers see a bulk load all at once.</p>
+ *
+ * <p>The scan columns and indexes of a version are built from the objects the first time
+ * they are read, and each later version carries them forward by applying just the objects
+ * changed since. The conjunction count and 90-day delta-V are the only indexed values with
+ * setters; the {@link Query} column predicates and {@link #topRanked} may see them as they
+ * were when the object was last added or upserted, while assessment, impact analysis and
+ * {@link Query#where} predicates read the objects themselves.
+ * Assessment sets each object's status and risk in place, so readers may see those two
+ * fields change while an assessment runs.</p>
  */
 public class TrackingSystem {
-    private List<SpaceObject> spaceObjects = new ArrayList<>();
     private ImpactAnalysis impactAnalysis = new ImpactAnalysis();
 
+    /** Serializes writers; readers never take it. */
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    /** The writer's slots; removed objects leave {@code null}s until compaction. */
+    private SegmentedObjectList spaceObjects = new SegmentedObjectList();
+
+    /** Slot in {@code spaceObjects} of each object, keyed by catalog ID. Writer only. */
+    private final IntHashIndex slotsById = new IntHashIndex();
+
+    /** Number of {@code null} slots left behind by {@link #removeObject}. */
+    private int removedCount;
+
+    /** Totals by country, orbit type, object type and launch year, updated on every write. */
+    private final RollupCube rollup = new RollupCube();
+
+    /** Set once the catalog has been assessed, so later upserts are assessed as they arrive. */
+    private boolean assessed;
+
+    /** Nesting depth of {@link #beginUpdate()}; a version is published when it returns to 0. */
+    private int updateDepth;
+
+    /** Most changes tracked between publications; beyond that, rankings are rebuilt instead. */
+    private static final int MAX_TRACKED_CHANGES = 1 << 14;
+
     /**
-     * Adds a space object to the tracking system.
+     * Slots appended, replaced or removed since the last publication, so the new version can
+     * carry the previous version's indexes forward. {@code changedCount} is -1 after a
+     * compaction or too many changes.
+     */
+    private int[] changedSlots = new int[16];
+    private int changedCount;
+
+    /** Record IDs of the objects removed or replaced since the last {@link #takeChanges()}. */
+    private int[] removedRecordIds = new int[16];
+    private int removedRecordCount;
+
+    /** Whether assessment exports are written as partitions plus a manifest. */
+    private volatile boolean partitionedExport;
+
+    /** The version readers see. */
+    private volatile CatalogVersion current = new CatalogVersion(spaceObjects.snapshot(), rollup.snapshot());
+
+    /**
+     * Starts a batch of writes. Until the matching {@link #endUpdate()}, readers keep seeing
+     * the catalog as it was before the batch, and other writers wait. Batches may nest.
+     * Always pair with {@code endUpdate()} in a {@code finally} block.
+     */
+    public void beginUpdate() {
+        writeLock.lock();
+        updateDepth++;
+    }
+
+    /**
+     * Ends a batch of writes started by {@link #beginUpdate()}, publishing the changes
+     * when the outermost batch ends.
+     */
+    public void endUpdate() {
+        try {
+            if (--updateDepth == 0) publish();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Makes the writer's current state the version readers see. Called with the writer lock held.
+     */
+    private void publish() {
+        if (removedCount > spaceObjects.size() / 2) compact();
+        CatalogVersion next = new CatalogVersion(spaceObjects.snapshot(), rollup.snapshot());
+        if (changedCount >= 0) next.carry(current, changedSlots, changedCount);
+        changedCount = 0;
+        current = next;
+    }
+
+    /**
+     * Records a slot appended, replaced or removed since the last publication.
+     */
+    private void recordChange(int slot) {
+        if (changedCount < 0) return;
+        if (changedCount == MAX_TRACKED_CHANGES) {
+            changedCount = -1;
+            return;
+        }
+        if (changedCount == changedSlots.length) changedSlots = Arrays.copyOf(changedSlots, changedCount * 2);
+        changedSlots[changedCount++] = slot;
+    }
+
+    /**
+     * Adds a space object to the tracking system. The object is appended even if an
+     * object with the same catalog ID is already tracked; use {@link #upsertObject}
+     * to replace it instead.
      *
      * @param obj the {@link SpaceObject} to add
      */
     public void addObject(SpaceObject obj) {
-        spaceObjects.add(obj);
+        beginUpdate();
+        try {
+            slotsById.put(catalogId(obj), spaceObjects.size());
+            recordChange(spaceObjects.size());
+            spaceObjects.add(obj);
+            rollup.add(obj);
+        } finally {
+            endUpdate();
+        }
+    }
+
+    /**
+     * Adds a space object, or replaces the tracked object with the same catalog ID in place,
+     * keeping its position. If the catalog has already been assessed, only this object is
+     * assessed again.
+     *
+     * @param obj the new version of the object
+     * @return {@code true} if an existing object was replaced, {@code false} if it was added
+     */
+    public boolean upsertObject(SpaceObject obj) {
+        beginUpdate();
+        try {
+            if (assessed) assess(obj);
+            int slot = slotsById.get(catalogId(obj));
+            if (slot == IntHashIndex.MISSING) {
+                addObject(obj);
+                return false;
+            }
+            SpaceObject replaced = spaceObjects.set(slot, obj);
+            rollup.remove(replaced);
+            rollup.add(obj);
+            recordChange(slot);
+            if (replaced.getRecordId() != obj.getRecordId()) recordRemoval(replaced);
+            return true;
+        } finally {
+            endUpdate();
+        }
+    }
+
+    /**
+     * Stops tracking the object with the given catalog ID. The slot is cleared now and
+     * reclaimed once half the slots are empty, so a removal costs O(1).
+     *
+     * @param catalogId the object's catalog ID, see {@link #catalogId(SpaceObject)}
+     * @return {@code true} if an object was removed
+     */
+    public boolean removeObject(int catalogId) {
+        beginUpdate();
+        try {
+            int slot = slotsById.remove(catalogId);
+            if (slot == IntHashIndex.MISSING) return false;
+            SpaceObject removed = spaceObjects.set(slot, null);
+            rollup.remove(removed);
+            recordRemoval(removed);
+            removedCount++;
+            recordChange(slot);
+            return true;
+        } finally {
+            endUpdate();
+        }
+    }
+
+    /**
+     * Records an object that is no longer tracked under its record ID, for {@link #takeChanges()}.
+     */
+    private void recordRemoval(SpaceObject obj) {
+        if (removedRecordCount == removedRecordIds.length) removedRecordIds = Arrays.copyOf(removedRecordIds, removedRecordCount * 2);
+        removedRecordIds[removedRecordCount++] = obj.getRecordId();
+    }
+
+    /**
+     * Collects what changed since the last call: the tracked objects whose values changed or
+     * that were added, see {@link SpaceObject#isDirty()}, and the record IDs of the objects
+     * removed or replaced by one with another record ID. The changed objects are marked clean,
+     * so the next call returns only later changes. Finding them checks a flag on every tracked
+     * object, which is much cheaper than writing them all.
+     *
+     * @return the changes
+     */
+    public ChangeSet takeChanges() {
+        writeLock.lock();
+        try {
+            List<SpaceObject> changed = new ArrayList<>();
+            for (SpaceObject obj : spaceObjects) {
+                if (obj == null || !obj.isDirty()) continue;
+                obj.markClean();
+                changed.add(obj);
+            }
+            ChangeSet changes = new ChangeSet(changed, Arrays.copyOf(removedRecordIds, removedRecordCount));
+            removedRecordIds = new int[16];
+            removedRecordCount = 0;
+            return changes;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Forgets every change made so far, such as after loading a catalog that has already
+     * been exported.
+     */
+    public void markClean() {
+        takeChanges();
+    }
+
+    /**
+     * The changes collected by {@link #takeChanges()}.
+     */
+    public static final class ChangeSet {
+        private final List<SpaceObject> changed;
+        private final int[] removedRecordIds;
+
+        private ChangeSet(List<SpaceObject> changed, int[] removedRecordIds) {
+            this.changed = Collections.unmodifiableList(changed);
+            this.removedRecordIds = removedRecordIds;
+        }
+
+        /** @return the objects added or changed, in catalog order */
+        public List<SpaceObject> getChanged() {
+            return changed;
+        }
+
+        /** @return the record IDs of the objects removed, in the order they were removed */
+        public int[] getRemovedRecordIds() {
+            return removedRecordIds.clone();
+        }
+
+        /** @return whether nothing changed */
+        public boolean isEmpty() {
+            return changed.isEmpty() && removedRecordIds.length == 0;
+        }
+    }
+
+    /**
+     * Drops the slots cleared by {@link #removeObject}, keeping the order of the rest.
+     * Published versions keep the slots they were created with.
+     */
+    private void compact() {
+        SegmentedObjectList remaining = new SegmentedObjectList();
+        slotsById.clear();
+        for (SpaceObject obj : spaceObjects) {
+            if (obj == null) continue;
+            slotsById.put(catalogId(obj), remaining.size());
+            remaining.add(obj);
+        }
+        spaceObjects = remaining;
+        removedCount = 0;
+        // Every slot moved, so the next version builds its indexes afresh
+        changedCount = -1;
     }
 
     /**
-     * Filters the tracked space objects by their type.
+     * Returns the tracked object with a NORAD catalog ID.
+     *
+     * @param noradId the NORAD catalog ID; IDs below 1 never match
+     * @return the object, or {@code null} if none is tracked
+     */
+    public SpaceObject findByNoradId(int noradId) {
+        return findByNoradId(current, noradId);
+    }
+
+    private static SpaceObject findByNoradId(CatalogVersion version, int noradId) {
+        if (noradId <= 0) return null;
+        int row = version.rowsByCatalogId().get(noradId);
+        return row == IntHashIndex.MISSING ? null : version.slots().get(row);
+    }
+
+    /**
+     * Returns the tracked object with a record ID. If several objects share the ID,
+     * the one added last is returned.
+     *
+     * @param recordId the record ID
+     * @return the object, or {@code null} if none is tracked
+     */
+    public SpaceObject findByRecordId(int recordId) {
+        return findByRecordId(current, recordId);
+    }
+
+    private static SpaceObject findByRecordId(CatalogVersion version, int recordId) {
+        int row = version.rowsByRecordId().get(recordId);
+        return row == IntHashIndex.MISSING ? null : version.slots().get(row);
+    }
+
+    /**
+     * Looks up a batch of NORAD catalog IDs, all in the same catalog version.
+     *
+     * @param noradIds the IDs to look up
+     * @return the objects, position for position, with {@code null} for IDs not tracked
+     */
+    public List<SpaceObject> findByNoradIds(int[] noradIds) {
+        CatalogVersion version = current;
+        List<SpaceObject> result = new ArrayList<>(noradIds.length);
+        for (int noradId : noradIds) {
+            result.add(findByNoradId(version, noradId));
+        }
+        return result;
+    }
+
+    /**
+     * Looks up a batch of record IDs, all in the same catalog version.
+     *
+     * @param recordIds the IDs to look up
+     * @return the objects, position for position, with {@code null} for IDs not tracked
+     */
+    public List<SpaceObject> findByRecordIds(int[] recordIds) {
+        CatalogVersion version = current;
+        List<SpaceObject> result = new ArrayList<>(recordIds.length);
+        for (int recordId : recordIds) {
+            result.add(findByRecordId(version, recordId));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the key used to match objects across loads: the NORAD catalog ID, or for
+     * objects without one, the negated record ID. NORAD IDs are positive and record IDs are
+     * not negative, so an object without a NORAD ID never shares a key with one whose
+     * NORAD ID equals its record ID.
+     *
+     * @param obj the object
+     * @return the object's catalog ID
+     */
+    public static int catalogId(SpaceObject obj) {
+        return obj.getNoradId() > 0 ? obj.getNoradId() : -obj.getRecordId();
+    }
+
+    /**
+     * Finds the tracked objects whose geohash coordinates lie within a distance of a point.
+     * Objects without a {@code "lat,lon"} geohash are never matched.
+     *
+     * @param latitude  the point's latitude in degrees
+     * @param longitude the point's longitude in degrees
+     * @param radiusKm  the search radius in kilometres
+     * @return the matching objects, in catalog order
+     */
+    public List<SpaceObject> findWithinRadius(double latitude, double longitude, double radiusKm) {
+        CatalogVersion version = current;
+        return objectsAt(version.slots(), version.geoIndex().withinRadius(latitude, longitude, radiusKm));
+    }
+
+    /**
+     * Finds the {@code k} tracked objects whose geohash coordinates are nearest a point.
+     *
+     * @param latitude  the point's latitude in degrees
+     * @param longitude the point's longitude in degrees
+     * @param k         the number of objects wanted
+     * @return up to {@code k} objects, nearest first
+     */
+    public List<SpaceObject> findNearest(double latitude, double longitude, int k) {
+        CatalogVersion version = current;
+        return objectsAt(version.slots(), version.geoIndex().nearest(latitude, longitude, k));
+    }
+
+    /**
+     * Counts the tracked objects in a longitude range without collecting them.
+     * If {@code minLongitude} is greater than {@code maxLongitude}, the range wraps
+     * across the antimeridian.
+     *
+     * @param minLongitude the minimum longitude, inclusive
+     * @param maxLongitude the maximum longitude, inclusive
+     * @return the number of objects in the range
+     */
+    public int countInLongitudeRange(double minLongitude, double maxLongitude) {
+        return current.longitudeIndex().count(minLongitude, maxLongitude);
+    }
+
+    /**
+     * Counts the tracked objects in each of a sweep of adjacent longitude bands with one
+     * binary search per band edge, however many objects fall in the bands. Band {@code i} covers
+     * {@code [edges[i], edges[i + 1])}, and the last band includes its upper edge.
+     *
+     * @param edges band edges in ascending order; at least two
+     * @return the object count of each band
+     */
+    public int[] countByLongitudeBands(double[] edges) {
+        return current.longitudeIndex().countBands(edges);
+    }
+
+    /**
+     * Returns the {@code k} tracked objects that score highest by a ranking metric, for
+     * example the 100 objects with the most longitude drift. The ranking scans the columns
+     * once with a bounded heap, in O(n log k), in parallel over large catalogs. It is kept
+     * with the catalog version, and carried forward to the next version unless one of the
+     * ranked objects was replaced or removed, so repeated rankings cost O(k). Scores may be
+     * computed from the values objects had when last added or upserted; pass an object to
+     * {@link #upsertObject} after changing its conjunction count or delta-V.
+     *
+     * @param metric the score to rank by
+     * @param k      the number of objects wanted
+     * @return up to {@code k} objects, highest score first; objects with equal scores
+     *         in catalog order
+     */
+    public List<SpaceObject> topRanked(RankingMetric metric, int k) {
+        CatalogVersion version = current;
+        return objectsAt(version.slots(), version.top(metric, k));
+    }
+
+    /**
+     * Totals the tracked objects by some of country, orbit type, object type and launch
+     * year. The totals are kept up to date on every write, so this reads no objects and
+     * costs time proportional to the number of distinct value combinations.
+     *
+     * @param dimensions the dimensions to group by
+     * @return the non-empty groups
+     * @see RollupCube#groupBy
+     */
+    public List<RollupCube.Group> rollup(RollupCube.Dimension... dimensions) {
+        return current.rollup().groupBy(dimensions);
+    }
+
+    /**
+     * Filters the tracked space objects by their type. The lookup goes through the type
+     * index and, once the current version's index is built, costs time proportional to
+     * the number of matches.
      *
      * @param type the object type to filter by (e.g., "Satellite", "Debris")
      * @return a list of space objects matching the specified type
      */
     public List<SpaceObject> filterByType(String type) {
-        List<SpaceObject> result = new ArrayList<>();
-        for (SpaceObject obj : spaceObjects) {
-            if (obj.getObjectType().equalsIgnoreCase(type)) {
-                result.add(obj);
-            }
+        CatalogVersion version = current;
+        return objectsAt(version.slots(), version.typeIndex().rows(type));
+    }
+
+    /**
+     * Returns the objects in the given rows of one version's slots.
+     */
+    private static List<SpaceObject> objectsAt(List<SpaceObject> objects, int[] rows) {
+        List<SpaceObject> result = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            result.add(objects.get(row));
         }
         return result;
     }
@@ -53,15 +478,12 @@ public class TrackingSystem {
 
     /**
      * Displays all objects currently in Low Earth Orbit (LEO).
-     * Prints their full data in a formatted structure.
+     * Prints their full data in a formatted structure. The objects are found through
+     * the orbit index, without scanning or copying the catalog.
      */
     public void displayObjectsInLEO() {
-        List<SpaceObject> leoObjects = new ArrayList<>();
-        for (SpaceObject obj : getAllObjects()) {
-            if (obj.getOrbitType().equalsIgnoreCase("LEO")) {
-                leoObjects.add(obj);
-            }
-        }
+        CatalogVersion version = current;
+        List<SpaceObject> leoObjects = objectsAt(version.slots(), version.orbitIndex().rows("LEO"));
 
         if (leoObjects.isEmpty()) {
             System.out.println("No objects found in LEO.");
@@ -83,12 +505,80 @@ public class TrackingSystem {
     }
 
     /**
-     * Returns a copy of all tracked space objects.
+     * Returns a read-only snapshot of all tracked space objects without copying the catalog
+     * or taking a lock: in O(1), or in O(n / 4096) while removed slots are pending. The
+     * snapshot does not change when objects are later added, upserted or removed.
      *
      * @return a list of all {@link SpaceObject} instances
      */
     public List<SpaceObject> getAllObjects() {
-        return new ArrayList<>(spaceObjects); // return a copy to avoid external modification
+        return current.objects();
+    }
+
+    /**
+     * Saves every tracked object to a binary snapshot file for a fast warm start.
+     *
+     * @param fileName the snapshot file to write
+     * @throws IOException if the file cannot be written
+     * @see CatalogSnapshotFile
+     */
+    public void saveSnapshot(String fileName) throws IOException {
+        saveSnapshot(fileName, "");
+    }
+
+    /**
+     * Saves every tracked object to a binary snapshot file, recording the source the
+     * catalog was loaded from.
+     *
+     * @param fileName the snapshot file to write
+     * @param source   fingerprint of the catalog's source, checked by {@link #loadSnapshot(String, String)}
+     * @throws IOException if the file cannot be written
+     */
+    public void saveSnapshot(String fileName, String source) throws IOException {
+        CatalogSnapshotFile.write(current.objects(), fileName, source);
+    }
+
+    /**
+     * Adds every object from a snapshot file written by {@link #saveSnapshot}, whatever
+     * its source.
+     *
+     * @param fileName the snapshot file to read
+     * @throws IOException if the file cannot be read or is not a valid snapshot
+     */
+    public void loadSnapshot(String fileName) throws IOException {
+        loadSnapshot(fileName, null);
+    }
+
+    /**
+     * Adds every object from a snapshot file written by {@link #saveSnapshot} from a given
+     * source. Nothing is added if the snapshot is rejected.
+     *
+     * @param fileName the snapshot file to read
+     * @param source   the source fingerprint the snapshot must have, or {@code null} to accept any
+     * @throws IOException if the file cannot be read, is not a valid snapshot, or was
+     *                     written from another source
+     */
+    public void loadSnapshot(String fileName, String source) throws IOException {
+        List<SpaceObject> objects = CatalogSnapshotFile.read(fileName, source);
+        beginUpdate();
+        try {
+            for (SpaceObject obj : objects) {
+                addObject(obj);
+            }
+        } finally {
+            endUpdate();
+        }
+    }
+
+    /**
+     * Chooses how {@link #assessOrbitStatusAndExport()} writes its files. When partitioned,
+     * each file is written by {@link PartitionedExport} as partitions formatted in parallel,
+     * plus a manifest, instead of as one file.
+     *
+     * @param partitioned whether to write partitions
+     */
+    public void setPartitionedExport(boolean partitioned) {
+        partitionedExport = partitioned;
     }
 
     /**
@@ -98,65 +588,126 @@ public class TrackingSystem {
      * known orbit type, valid longitude, and not being too old.
      */
     public void assessOrbitStatusAndExport() {
-        int inOrbitCount = 0;
-        int exitedCount = 0;
-        List<SpaceObject> exitedDebris = new ArrayList<>();
+        beginUpdate();
+        try {
+            // The live objects are assessed, so values set on them since the last load count;
+            // inside an outer batch, the writer's slots also hold the batch's unpublished writes
+            SegmentedObjectList.Snapshot slots = spaceObjects.snapshot();
 
-        for (SpaceObject obj : spaceObjects) {
-            boolean hasOrbitType = obj.getOrbitType() != null && !obj.getOrbitType().equalsIgnoreCase("unknown");
-            boolean hasLongitude = obj.getLongitude() != 0.0;
-            boolean hasConjunction = true;
+            // Each range is assessed and updated on its own; the exited rows come back in catalog order
+            int[] exitedRows = ParallelScan.reduce(ParallelScan.Scan.ASSESSMENT, slots.size(), (from, to) -> {
+                int[] exited = new int[16];
+                int count = 0;
+                for (int row = from; row < to; row++) {
+                    SpaceObject obj = slots.get(row);
+                    if (obj == null || assess(obj)) continue;
+                    if (count == exited.length) exited = Arrays.copyOf(exited, count * 2);
+                    exited[count++] = row;
+                }
+                return Arrays.copyOf(exited, count);
+            }, ParallelScan::concat);
+            List<SpaceObject> objects = slots.withoutNulls();
+            int exitedCount = exitedRows.length;
+            int inOrbitCount = objects.size() - exitedCount;
+            List<SpaceObject> exitedDebris = objectsAt(slots, exitedRows);
 
-            if (obj instanceof Debris) {
-                hasConjunction = ((Debris) obj).getConjunctionCount() >= 1;
-            }
+            assessed = true;
 
-            boolean stillInOrbit = hasOrbitType && hasLongitude && obj.getDaysOld() < 15000 && hasConjunction;
-            obj.setStillInOrbit(stillInOrbit);
+            exportToCSV(objects, "assessed_debris.csv");
+            writeExitedDebrisReport("exited_debris_report.txt", inOrbitCount, exitedCount, exitedDebris);
+        } finally {
+            endUpdate();
+        }
+    }
 
-            double drift = Math.abs(obj.getLongitude() - obj.getAvgLongitude());
-            String risk;
-            if (drift > 50) risk = "High";
-            else if (drift > 10) risk = "Moderate";
-            else risk = "Low";
-            obj.setRiskLevel(risk);
+    /**
+     * Sets one object's orbit status and risk level. An object is in orbit if it has a known
+     * orbit type, a non-zero longitude, is under 15000 days old and, for debris, has at least
+     * one conjunction. Its risk is High for a drift of more than 50 degrees between longitude
+     * and average longitude, Moderate for more than 10, else Low.
+     *
+     * @param obj the object to assess
+     * @return {@code true} if the object is still in orbit
+     */
+    private static boolean assess(SpaceObject obj) {
+        boolean hasOrbitType = obj.getOrbitType() != null && !obj.getOrbitType().equalsIgnoreCase("unknown");
+        boolean hasLongitude = obj.getLongitude() != 0.0;
+        boolean hasConjunction = true;
 
-            if (stillInOrbit) inOrbitCount++;
-            else {
-                exitedCount++;
-                exitedDebris.add(obj);
-            }
+        if (obj instanceof Debris) {
+            hasConjunction = ((Debris) obj).getConjunctionCount() >= 1;
         }
 
-        exportToCSV("assessed_debris.csv");
-        writeExitedDebrisReport("exited_debris_report.txt", inOrbitCount, exitedCount, exitedDebris);
+        boolean stillInOrbit = hasOrbitType && hasLongitude && obj.getDaysOld() < 15000 && hasConjunction;
+        obj.setStillInOrbit(stillInOrbit);
+
+        double drift = Math.abs(obj.getLongitude() - obj.getAvgLongitude());
+        String risk;
+        if (drift > 50) risk = "High";
+        else if (drift > 10) risk = "Moderate";
+        else risk = "Low";
+        obj.setRiskLevel(risk);
+
+        return stillInOrbit;
     }
 
+    /** Row of {@code assessed_debris.csv}; writes what {@code printf("%d,%s,%s,%s,%s,%d,%s,%.2f,%.2f,%s,%d,%b,%s\n")} did. */
+    static final RowFormatter<SpaceObject> ASSESSED_DEBRIS_ROW = RowFormatter.<SpaceObject>builder()
+            .integer(SpaceObject::getRecordId).text(",")
+            .escaped(SpaceObject::getSatelliteName).text(",")
+            .string(SpaceObject::getCountry).text(",")
+            .string(SpaceObject::getOrbitType).text(",")
+            .string(SpaceObject::getObjectType).text(",")
+            .integer(SpaceObject::getLaunchYear).text(",")
+            .string(SpaceObject::getLaunchSite).text(",")
+            .fixed(SpaceObject::getLongitude, 2).text(",")
+            .fixed(SpaceObject::getAvgLongitude, 2).text(",")
+            .escaped(SpaceObject::getGeoHash).text(",")
+            .integer(SpaceObject::getDaysOld).text(",")
+            .bool(SpaceObject::isStillInOrbit).text(",")
+            .string(SpaceObject::getRiskLevel).text("\n")
+            .build();
+
+    /**
+     * Line of {@code exited_debris_report.txt} for one exited object. Names and geohashes
+     * are quoted as in the source CSV, as they were when lines were split with their quotes.
+     */
+    static final RowFormatter<SpaceObject> EXITED_DEBRIS_ROW = RowFormatter.<SpaceObject>builder()
+            .text("Record ID: ").integer(SpaceObject::getRecordId)
+            .text(", Name: ").escaped(SpaceObject::getSatelliteName)
+            .text(", Country: ").string(SpaceObject::getCountry)
+            .text(", Orbit Type: ").string(SpaceObject::getOrbitType)
+            .text(", Launch Year: ").integer(SpaceObject::getLaunchYear)
+            .text(", Launch Site: ").string(SpaceObject::getLaunchSite)
+            .text(", Longitude: ").fixed(SpaceObject::getLongitude, 2)
+            .text(", Avg Longitude: ").fixed(SpaceObject::getAvgLongitude, 2)
+            .text(", Geohash: ").escaped(SpaceObject::getGeoHash)
+            .text(", Days Old: ").integer(SpaceObject::getDaysOld)
+            .text("\n")
+            .build();
+
     /**
      * Exports all tracked space object data to a CSV file.
      *
+     * @param objects  the objects to export
      * @param fileName the name of the CSV file to write to
      */
-    private void exportToCSV(String fileName) {
-        try (PrintWriter writer = new PrintWriter(fileName)) {
-            writer.println("RecordID,Name,Country,OrbitType,ObjectType,LaunchYear,LaunchSite,Longitude,AvgLongitude,GeoHash,DaysOld,StillInOrbit,RiskLevel");
+    private void exportToCSV(List<SpaceObject> objects, String fileName) {
+        String header = "RecordID,Name,Country,OrbitType,ObjectType,LaunchYear,LaunchSite,Longitude,AvgLongitude,GeoHash,DaysOld,StillInOrbit,RiskLevel" + System.lineSeparator();
+        if (partitionedExport) {
+            try {
+                PartitionedExport.write(fileName, header, objects, ASSESSED_DEBRIS_ROW::write);
+                System.out.println("CSV export complete.");
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            return;
+        }
+        try (CSVWriter writer = CSVWriter.open(fileName)) {
+            writer.append(header);
 
-            for (SpaceObject obj : spaceObjects) {
-                writer.printf("%d,%s,%s,%s,%s,%d,%s,%.2f,%.2f,%s,%d,%b,%s\n",
-                        obj.getRecordId(),
-                        obj.getSatelliteName(),
-                        obj.getCountry(),
-                        obj.getOrbitType(),
-                        obj.getObjectType(),
-                        obj.getLaunchYear(),
-                        obj.getLaunchSite(),
-                        obj.getLongitude(),
-                        obj.getAvgLongitude(),
-                        obj.getGeoHash(),
-                        obj.getDaysOld(),
-                        obj.isStillInOrbit(),
-                        obj.getRiskLevel()
-                );
+            for (SpaceObject obj : objects) {
+                ASSESSED_DEBRIS_ROW.write(writer, obj);
             }
 
             System.out.println("CSV export complete.");
@@ -174,27 +725,27 @@ public class TrackingSystem {
      * @param exitedDebris  list of objects that have exited orbit
      */
     private void writeExitedDebrisReport(String fileName, int inOrbit, int exited, List<SpaceObject> exitedDebris) {
-        try (PrintWriter writer = new PrintWriter(fileName)) {
-            writer.println("Orbit Assessment Report");
-            writer.println("========================");
-            writer.println("In-Orbit Count: " + inOrbit);
-            writer.println("Exited Count: " + exited);
-            writer.println();
-
-            writer.println("Exited Debris Details:");
+        String newline = System.lineSeparator();
+        // Partitions each repeat the summary, so each reads as a report of its own
+        String header = "Orbit Assessment Report" + newline
+                + "========================" + newline
+                + "In-Orbit Count: " + inOrbit + newline
+                + "Exited Count: " + exited + newline
+                + newline
+                + "Exited Debris Details:" + newline;
+        if (partitionedExport) {
+            try {
+                PartitionedExport.write(fileName, header, exitedDebris, EXITED_DEBRIS_ROW::write);
+                System.out.println("TXT report written successfully.");
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            return;
+        }
+        try (CSVWriter writer = CSVWriter.open(fileName)) {
+            writer.append(header);
             for (SpaceObject obj : exitedDebris) {
-                writer.printf("Record ID: %d, Name: %s, Country: %s, Orbit Type: %s, Launch Year: %d, Launch Site: %s, Longitude: %.2f, Avg Longitude: %.2f, Geohash: %s, Days Old: %d\n",
-                        obj.getRecordId(),
-                        obj.getSatelliteName(),
-                        obj.getCountry(),
-                        obj.getOrbitType(),
-                        obj.getLaunchYear(),
-                        obj.getLaunchSite(),
-                        obj.getLongitude(),
-                        obj.getAvgLongitude(),
-                        obj.getGeoHash(),
-                        obj.getDaysOld()
-                );
+                EXITED_DEBRIS_ROW.write(writer, obj);
             }
 
             System.out.println("TXT report written successfully.");
@@ -205,35 +756,400 @@ public class TrackingSystem {
 
     /**
      * Generates a density report of tracked space objects within a specified longitude range.
+     * The range is found by binary search in the longitude index. If {@code minLongitude} is
+     * greater than {@code maxLongitude}, the range wraps across the antimeridian.
      *
      * @param minLongitude the minimum longitude for the range
      * @param maxLongitude the maximum longitude for the range
      */
     public void generateDensityReport(double minLongitude, double maxLongitude) {
-        System.out.printf("\nGenerating density report for longitude range %.2f to %.2f...\n", minLongitude, maxLongitude);
-        int count = 0;
+        CatalogVersion version = current;
+        int[] rows = version.longitudeIndex().rows(minLongitude, maxLongitude);
+        List<SpaceObject> objects = version.slots();
+        printDensityHeader(minLongitude, maxLongitude);
+        // Rows are formatted in parallel ranges and printed in order
+        StringBuilder lines = ParallelScan.reduce(ParallelScan.Scan.DENSITY_REPORT, rows.length, (from, to) -> {
+            StringBuilder range = new StringBuilder();
+            for (int i = from; i < to; i++) {
+                range.append(formatDensityRow(objects.get(rows[i])));
+            }
+            return range;
+        }, StringBuilder::append);
+        System.out.print(lines);
+        System.out.println("Total objects in range: " + rows.length);
+    }
 
-        System.out.printf("%-10s %-25s %-15s %-12s %-12s %-15s\n", 
-            "RecordID", "Satellite Name", "Country", "Orbit Type", 
-            "Launch Year", "Object Type");
+    /**
+     * Generates a density report over any sequence of space objects, such as a
+     * {@link CSVReader.ObjectStream}, visiting each object once. As in
+     * {@link #generateDensityReport(double, double)}, if {@code minLongitude} is greater than
+     * {@code maxLongitude}, the range wraps across the antimeridian.
+     *
+     * @param objects      the space objects to report on
+     * @param minLongitude the minimum longitude for the range
+     * @param maxLongitude the maximum longitude for the range
+     */
+    public static void generateDensityReport(Iterable<? extends SpaceObject> objects,
+                                             double minLongitude, double maxLongitude) {
+        printDensityHeader(minLongitude, maxLongitude);
+        boolean wraps = minLongitude > maxLongitude;
+        int count = 0;
 
-        for (SpaceObject obj : spaceObjects) {
+        for (SpaceObject obj : objects) {
             double lon = obj.getLongitude();
-            if (lon >= minLongitude && lon <= maxLongitude) {
+            if (wraps ? lon >= minLongitude || lon <= maxLongitude : lon >= minLongitude && lon <= maxLongitude) {
                 count++;
-                System.out.printf("%-10s %-25s %-15s %-12s %-12s %-15s\n", 
-                    obj.getRecordId(), obj.getSatelliteName(), obj.getCountry(), 
-                    obj.getOrbitType(), obj.getLaunchYear(), obj.getObjectType());
+                printDensityRow(obj);
             }
         }
 
         System.out.println("Total objects in range: " + count);
     }
 
+    private static void printDensityHeader(double minLongitude, double maxLongitude) {
+        System.out.printf("\nGenerating density report for longitude range %.2f to %.2f...\n", minLongitude, maxLongitude);
+        System.out.printf("%-10s %-25s %-15s %-12s %-12s %-15s\n", 
+            "RecordID", "Satellite Name", "Country", "Orbit Type", 
+            "Launch Year", "Object Type");
+    }
+
+    private static void printDensityRow(SpaceObject obj) {
+        System.out.print(formatDensityRow(obj));
+    }
+
+    private static String formatDensityRow(SpaceObject obj) {
+        return String.format("%-10s %-25s %-15s %-12s %-12s %-15s\n", 
+            obj.getRecordId(), obj.getSatelliteName(), obj.getCountry(), 
+            obj.getOrbitType(), obj.getLaunchYear(), obj.getObjectType());
+    }
+
     /**
      * Analyzes the long-term impact of space objects using the {@link ImpactAnalysis} module.
      */
     public void analyzeLongTermImpact() {
-        impactAnalysis.analyzeLongTermImpact(spaceObjects); // Delegate the analysis
+        // Checked on the objects themselves, so conjunction counts set since the last load count
+        impactAnalysis.analyzeLongTermImpact(getAllObjects());
+    }
+
+    /**
+     * Starts a query over the tracked objects.
+     *
+     * @return an empty query, matching every object
+     * @see Query
+     */
+    public Query query() {
+        return new Query(this);
+    }
+
+    /**
+     * A query over a {@link TrackingSystem}, built from predicates, an optional sort order
+     * and an optional limit, for example
+     * <pre>
+     * List&lt;String&gt; names = system.query()
+     *         .orbitType("LEO")
+     *         .daysOld(201, Integer.MAX_VALUE)
+     *         .conjunctionCount(1, Integer.MAX_VALUE)
+     *         .orderBy(Comparator.comparingInt(SpaceObject::getDaysOld).reversed())
+     *         .limit(20)
+     *         .select(SpaceObject::getSatelliteName);
+     * </pre>
+     *
+     * <p>All predicates must hold. When the query runs, the predicate with the smallest
+     * matching set in an index (object type, orbit type, or a longitude range once the
+     * longitude index is built) supplies the candidate rows; otherwise every row is a
+     * candidate. The other column predicates and then the {@link #where} predicates are
+     * checked in one pass over the candidates, and a {@link SpaceObject} is only read for
+     * rows that pass the column checks. String comparisons ignore case, like
+     * {@link TrackingSystem#filterByType}, and ranges include both bounds.</p>
+     *
+     * <p>The column predicates read the catalog's scan columns, which may hold an object's
+     * values from when it was last added or upserted. Of those values only the conjunction
+     * count has a setter, so {@link #conjunctionCount} may miss a count set on an object
+     * until the object is upserted again; a {@link #where} predicate, which reads the object
+     * itself, always sees it.</p>
+     *
+     * <p>A query may be run more than once; each run sees the catalog version published
+     * when it starts, even if the catalog changes while it runs.</p>
+     */
+    public static final class Query {
+        private final TrackingSystem system;
+        private final List<String> objectTypes = new ArrayList<>();
+        private final List<String> orbitTypes = new ArrayList<>();
+        private final List<String> countries = new ArrayList<>();
+        private final List<double[]> longitudeRanges = new ArrayList<>();
+        private final List<int[]> daysOldRanges = new ArrayList<>();
+        private final List<int[]> conjunctionRanges = new ArrayList<>();
+        private final List<int[]> launchYearRanges = new ArrayList<>();
+        private final List<Predicate<? super SpaceObject>> objectPredicates = new ArrayList<>();
+        private Comparator<? super SpaceObject> order;
+        private int limit = Integer.MAX_VALUE;
+
+        private Query(TrackingSystem system) {
+            this.system = system;
+        }
+
+        /** @param type object type, e.g. "Debris" @return this query */
+        public Query objectType(String type) {
+            objectTypes.add(type);
+            return this;
+        }
+
+        /** @param type orbit type, e.g. "LEO" @return this query */
+        public Query orbitType(String type) {
+            orbitTypes.add(type);
+            return this;
+        }
+
+        /** @param country country code, e.g. "US" @return this query */
+        public Query country(String country) {
+            countries.add(country);
+            return this;
+        }
+
+        /**
+         * Restricts the longitude. If {@code min} is greater than {@code max}, the range
+         * wraps across the antimeridian.
+         *
+         * @param min lowest longitude
+         * @param max highest longitude
+         * @return this query
+         */
+        public Query longitude(double min, double max) {
+            longitudeRanges.add(new double[] {min, max});
+            return this;
+        }
+
+        /** @param min fewest days since launch @param max most days since launch @return this query */
+        public Query daysOld(int min, int max) {
+            daysOldRanges.add(new int[] {min, max});
+            return this;
+        }
+
+        /** @param min fewest conjunctions @param max most conjunctions @return this query */
+        public Query conjunctionCount(int min, int max) {
+            conjunctionRanges.add(new int[] {min, max});
+            return this;
+        }
+
+        /** @param min earliest launch year @param max latest launch year @return this query */
+        public Query launchYear(int min, int max) {
+            launchYearRanges.add(new int[] {min, max});
+            return this;
+        }
+
+        /**
+         * Adds a predicate on the objects themselves, checked after all column predicates.
+         * Over a large catalog it may be called from several threads at once.
+         *
+         * @param predicate the condition objects must meet
+         * @return this query
+         */
+        public Query where(Predicate<? super SpaceObject> predicate) {
+            objectPredicates.add(predicate);
+            return this;
+        }
+
+        /**
+         * Sorts the results; without an order they come in catalog order. With a limit as well,
+         * only the best {@code limit} objects are kept while scanning, and objects that compare
+         * equal may come in any order.
+         *
+         * @param order the sort order
+         * @return this query
+         */
+        public Query orderBy(Comparator<? super SpaceObject> order) {
+            this.order = order;
+            return this;
+        }
+
+        /**
+         * Keeps only the first results, after sorting.
+         *
+         * @param limit the most results to return
+         * @return this query
+         */
+        public Query limit(int limit) {
+            if (limit < 0) throw new IllegalArgumentException("limit must not be negative");
+            this.limit = limit;
+            return this;
+        }
+
+        /**
+         * Runs the query.
+         *
+         * @return the matching objects
+         */
+        public List<SpaceObject> list() {
+            CatalogVersion version = system.current;
+            List<SpaceObject> objects = version.slots();
+            IntPredicate columnFilter = compileColumnFilter(version.columns());
+            int[] candidates = candidateRows(version);
+            int candidateCount = candidates == null ? objects.size() : candidates.length;
+            IntPredicate matches = i -> {
+                int row = candidates == null ? i : candidates[i];
+                return columnFilter.test(row) && matchesObjectPredicates(objects.get(row));
+            };
+            List<SpaceObject> result = new ArrayList<>();
+
+            if (order == null && limit < Integer.MAX_VALUE) {
+                // Without a sort order the scan can stop at the limit
+                for (int i = 0; i < candidateCount && result.size() < limit; i++) {
+                    if (matches.test(i)) result.add(objects.get(candidates == null ? i : candidates[i]));
+                }
+                return result;
+            }
+
+            // Every candidate has to be checked, so large candidate sets are checked in parallel ranges
+            int[] matched = ParallelScan.filter(ParallelScan.Scan.QUERY, candidateCount, matches);
+            PriorityQueue<SpaceObject> top = order != null && limit < Integer.MAX_VALUE
+                    ? new PriorityQueue<>(Math.max(1, limit), order.reversed()) : null;
+            for (int i : matched) {
+                SpaceObject obj = objects.get(candidates == null ? i : candidates[i]);
+                if (top == null) {
+                    result.add(obj);
+                } else if (top.size() < limit) {
+                    top.add(obj);
+                } else if (limit > 0 && order.compare(obj, top.peek()) < 0) {
+                    top.poll();
+                    top.add(obj);
+                }
+            }
+
+            if (top != null) result.addAll(top);
+            if (order != null) {
+                result.sort(order);
+                if (result.size() > limit) result = new ArrayList<>(result.subList(0, limit));
+            }
+            return result;
+        }
+
+        /**
+         * Runs the query and maps each result.
+         *
+         * @param projection the function applied to each matching object
+         * @param <R>        the projected type
+         * @return the projected results
+         */
+        public <R> List<R> select(Function<? super SpaceObject, ? extends R> projection) {
+            List<SpaceObject> objects = list();
+            List<R> result = new ArrayList<>(objects.size());
+            for (SpaceObject obj : objects) {
+                result.add(projection.apply(obj));
+            }
+            return result;
+        }
+
+        /**
+         * Counts the matching objects. When there are no {@link #where} predicates, no
+         * {@link SpaceObject} is read.
+         *
+         * @return the number of matches, at most the limit
+         */
+        public int count() {
+            if (!objectPredicates.isEmpty()) return list().size();
+            CatalogVersion version = system.current;
+            List<SpaceObject> objects = version.slots();
+            IntPredicate columnFilter = compileColumnFilter(version.columns());
+            int[] candidates = candidateRows(version);
+            int candidateCount = candidates == null ? objects.size() : candidates.length;
+            int count = ParallelScan.reduce(ParallelScan.Scan.QUERY, candidateCount, (from, to) -> {
+                int rangeCount = 0;
+                for (int i = from; i < to; i++) {
+                    if (columnFilter.test(candidates == null ? i : candidates[i])) rangeCount++;
+                }
+                return rangeCount;
+            }, Integer::sum);
+            return Math.min(count, limit);
+        }
+
+        /**
+         * Returns the rows of the most selective indexed predicate, or {@code null} to scan
+         * every row. The chosen predicate is still checked again by the column filter.
+         */
+        private int[] candidateRows(CatalogVersion version) {
+            int best = Integer.MAX_VALUE;
+            int[] rows = null;
+            if (!objectTypes.isEmpty()) {
+                CategoryIndex typeIndex = version.typeIndex();
+                for (String type : objectTypes) {
+                    int count = typeIndex.count(type);
+                    if (count < best) {
+                        best = count;
+                        rows = typeIndex.rows(type);
+                    }
+                }
+            }
+            if (!orbitTypes.isEmpty()) {
+                CategoryIndex orbitIndex = version.orbitIndex();
+                for (String type : orbitTypes) {
+                    int count = orbitIndex.count(type);
+                    if (count < best) {
+                        best = count;
+                        rows = orbitIndex.rows(type);
+                    }
+                }
+            }
+            // Building the longitude index costs more than a scan, so only use one already built
+            LongitudeIndex longitudeIndex = version.longitudeIndexIfBuilt();
+            if (longitudeIndex != null) {
+                for (double[] range : longitudeRanges) {
+                    int count = longitudeIndex.count(range[0], range[1]);
+                    if (count < best) {
+                        best = count;
+                        rows = longitudeIndex.rows(range[0], range[1]);
+                    }
+                }
+            }
+            return rows;
+        }
+
+        /**
+         * Combines the column predicates into one row test over a version's columns.
+         */
+        private IntPredicate compileColumnFilter(ColumnarCatalog columns) {
+            IntPredicate filter = columns::hasObject;
+            for (String type : objectTypes) {
+                boolean[] codes = columns.objectTypeCodes(type);
+                filter = filter.and(row -> hasCode(codes, columns.getObjectTypeCode(row)));
+            }
+            for (String type : orbitTypes) {
+                boolean[] codes = columns.orbitTypeCodes(type);
+                filter = filter.and(row -> hasCode(codes, columns.getOrbitTypeCode(row)));
+            }
+            for (String country : countries) {
+                boolean[] codes = columns.countryCodes(country);
+                filter = filter.and(row -> hasCode(codes, columns.getCountryCode(row)));
+            }
+            for (double[] range : longitudeRanges) {
+                double min = range[0];
+                double max = range[1];
+                filter = filter.and(min <= max
+                        ? row -> columns.getLongitude(row) >= min && columns.getLongitude(row) <= max
+                        : row -> columns.getLongitude(row) >= min || columns.getLongitude(row) <= max);
+            }
+            for (int[] range : daysOldRanges) {
+                filter = filter.and(row -> columns.getDaysOld(row) >= range[0] && columns.getDaysOld(row) <= range[1]);
+            }
+            for (int[] range : conjunctionRanges) {
+                filter = filter.and(row -> columns.getConjunctionCount(row) >= range[0]
+                        && columns.getConjunctionCount(row) <= range[1]);
+            }
+            for (int[] range : launchYearRanges) {
+                filter = filter.and(row -> columns.getLaunchYear(row) >= range[0]
+                        && columns.getLaunchYear(row) <= range[1]);
+            }
+            return filter;
+        }
+
+        private boolean matchesObjectPredicates(SpaceObject obj) {
+            for (Predicate<? super SpaceObject> predicate : objectPredicates) {
+                if (!predicate.test(obj)) return false;
+            }
+            return true;
+        }
+
+        private static boolean hasCode(boolean[] codes, int code) {
+            return code >= 0 && codes[code];
+        }
     }
 }
@@ -48,6 +48,7 @@ public class UnknownObject extends SpaceObject {
      * @param conjunctionCount the number of conjunction events
      */
     public void setConjunctionCount(int conjunctionCount) {
+        if (this.conjunctionCount != conjunctionCount) markDirty();
         this.conjunctionCount = conjunctionCount;
     }
 